@@ -0,0 +1,120 @@
+/*******************************************************************************
+* Copyright (c) 2015 ARM Ltd. and others
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* ARM Ltd and ARM Germany GmbH - Initial API and implementation
+*******************************************************************************/
+
+package com.arm.cmsis.pack.generic;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Global table of attribute keys and interned attribute values shared by all Attributes instances.
+ * <p>
+ * Every key gets a dense integer id that is used by Attributes instead of storing own key strings.
+ * The number of distinct keys is small (attribute names from pdsc, gpdsc and rteconfig schemas), therefore the table is never cleared.
+ * </p>
+ */
+public final class AttributeStrings {
+
+	/**
+	 * Values longer than that are not interned: they are mostly unique (descriptions, paths, URLs)
+	 */
+	public static final int MAX_INTERNED_VALUE_LENGTH = 64;
+
+	private static final ConcurrentHashMap<String, Integer> keyIds = new ConcurrentHashMap<String, Integer>();
+	private static volatile String[] keys = new String[64];
+	private static int keyCount = 0;
+
+	private AttributeStrings() {
+		// static methods only
+	}
+
+	/**
+	 * Returns id of the given key, registers the key if not yet done
+	 * @param key attribute key
+	 * @return key id, non-negative integer
+	 */
+	public static int getKeyId(String key) {
+		Integer id = keyIds.get(key);
+		if(id != null) {
+			return id;
+		}
+		return registerKey(key);
+	}
+
+	/**
+	 * Returns id of the given key without registering it
+	 * @param key attribute key
+	 * @return key id or -1 if the key is not registered, i.e. no Attributes instance contains it
+	 */
+	public static int findKeyId(String key) {
+		if(key == null) {
+			return -1;
+		}
+		Integer id = keyIds.get(key);
+		if(id != null) {
+			return id;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns key string for the given id
+	 * @param id key id returned by getKeyId()
+	 * @return attribute key
+	 */
+	public static String getKey(int id) {
+		return keys[id];
+	}
+
+	/**
+	 * Compares keys for the given ids using natural string order
+	 * @param id1 first key id
+	 * @param id2 second key id
+	 * @return the same as String.compareTo()
+	 */
+	public static int compareKeys(int id1, int id2) {
+		if(id1 == id2) {
+			return 0;
+		}
+		String[] k = keys;
+		return k[id1].compareTo(k[id2]);
+	}
+
+	/**
+	 * Returns canonical representation of the attribute value
+	 * @param value attribute value
+	 * @return interned value if it is short enough, the value itself otherwise
+	 */
+	public static String internValue(String value) {
+		if(value == null || value.length() > MAX_INTERNED_VALUE_LENGTH) {
+			return value;
+		}
+		return value.intern(); // JVM string table does not prevent unused values from garbage collection
+	}
+
+	private static synchronized int registerKey(String key) {
+		Integer id = keyIds.get(key);
+		if(id != null) {
+			return id; // registered by another thread
+		}
+		int newId = keyCount;
+		String[] k = keys;
+		if(newId >= k.length) {
+			String[] grown = new String[k.length * 2];
+			System.arraycopy(k, 0, grown, 0, k.length);
+			k = grown;
+		}
+		k[newId] = key.intern();
+		keys = k; // publish array before id becomes visible
+		keyCount++;
+		keyIds.put(k[newId], newId);
+		return newId;
+	}
+}
@@ -11,6 +11,8 @@
 
 package com.arm.cmsis.pack.generic;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.TreeMap;
@@ -20,10 +22,185 @@ import com.arm.cmsis.pack.utils.WildCards;
 
 /**
  * Default implementation of IAttributes interface
+ * <p>
+ * Attributes are stored in compact form: a sorted array of key ids from global AttributeStrings table
+ * and a parallel array of interned values. Arrays are kept sorted by key strings to get consistent string representation.
+ * </p>
+ * <p>
+ * Until {@link #freeze()} is called, the arrays are modified in place and all access is synchronized.
+ * Pack items are frozen once they are committed to the pack collection: the arrays are trimmed into an immutable store
+ * that is read without locking. A frozen object remains modifiable, but every modification replaces the store (copy-on-write),
+ * which is cheap since frozen items are rarely modified.
+ * </p>
  */
 public class Attributes implements IAttributes {
 
-	protected Map<String, String> fAttributes = null;
+	/**
+	 * Attribute store: sorted key ids and corresponding values.
+	 * A mutable store belongs to a single Attributes object, an immutable one can be shared
+	 */
+	protected static final class Store {
+		static final Store EMPTY = new Store(new int[0], new String[0], 0, true);
+
+		int[] keys;
+		String[] values;
+		int size;
+		final boolean immutable;
+		volatile Map<String, String> map = null; // sorted unmodifiable view created on demand
+
+		Store(int[] keys, String[] values, int size, boolean immutable) {
+			this.keys = keys;
+			this.values = values;
+			this.size = size;
+			this.immutable = immutable;
+		}
+
+		/**
+		 * Returns copy of this store
+		 * @param bImmutable true to create trimmed immutable copy, false to create mutable one
+		 * @return new Store
+		 */
+		Store copy(boolean bImmutable) {
+			if(bImmutable && size == 0) {
+				return EMPTY;
+			}
+			int capacity = bImmutable ? size : size + 1;
+			return new Store(Arrays.copyOf(keys, capacity), Arrays.copyOf(values, capacity), size, bImmutable);
+		}
+
+		/**
+		 * Returns index of the given key id
+		 * @param keyId key id
+		 * @return index or -1 if not found
+		 */
+		int indexOf(int keyId) {
+			if(keyId < 0) {
+				return -1;
+			}
+			for(int i = 0; i < size; i++) {
+				if(keys[i] == keyId) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * Returns index of the given key
+		 * @param key attribute key
+		 * @return index or -1 if not found
+		 */
+		int indexOf(String key) {
+			if(size == 0) {
+				return -1;
+			}
+			return indexOf(AttributeStrings.findKeyId(key));
+		}
+
+		/**
+		 * Returns value for the given key
+		 * @param key attribute key
+		 * @return value or null if not found
+		 */
+		String get(String key) {
+			int index = indexOf(key);
+			return index >= 0 ? values[index] : null;
+		}
+
+		/**
+		 * Adds or replaces value in place keeping key order, the store must be mutable
+		 * @param keyId key id
+		 * @param value value to put, not null
+		 * @return true if the store is modified
+		 */
+		boolean put(int keyId, String value) {
+			int pos = 0;
+			for(; pos < size; pos++) {
+				int cmp = AttributeStrings.compareKeys(keys[pos], keyId);
+				if(cmp == 0) {
+					if(value.equals(values[pos])) {
+						return false;
+					}
+					values[pos] = value;
+					map = null;
+					return true;
+				}
+				if(cmp > 0) {
+					break;
+				}
+			}
+			if(size == keys.length) {
+				int capacity = size < 4 ? size + 2 : size + (size >> 1);
+				keys = Arrays.copyOf(keys, capacity);
+				values = Arrays.copyOf(values, capacity);
+			}
+			System.arraycopy(keys, pos, keys, pos + 1, size - pos);
+			System.arraycopy(values, pos, values, pos + 1, size - pos);
+			keys[pos] = keyId;
+			values[pos] = value;
+			size++;
+			map = null;
+			return true;
+		}
+
+		/**
+		 * Removes entry at the given index in place, the store must be mutable
+		 * @param index entry index
+		 */
+		void remove(int index) {
+			System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+			System.arraycopy(values, index + 1, values, index, size - index - 1);
+			size--;
+			values[size] = null;
+			map = null;
+		}
+
+		/**
+		 * Adds entries of another store in place, the store must be mutable
+		 * @param other store to add
+		 * @param bReplace true to replace existing values, false to add missing keys only
+		 * @param prefix if not null or empty - add only keys with that prefix
+		 * @return true if the store is modified
+		 */
+		boolean putAll(Store other, boolean bReplace, String prefix) {
+			boolean bModified = false;
+			for(int i = 0; i < other.size; i++) {
+				int keyId = other.keys[i];
+				if(prefix != null && !prefix.isEmpty() && !AttributeStrings.getKey(keyId).startsWith(prefix)) {
+					continue;
+				}
+				if(bReplace || indexOf(keyId) < 0) {
+					bModified |= put(keyId, other.values[i]); // values are already interned
+				}
+			}
+			return bModified;
+		}
+
+		/**
+		 * Returns sorted unmodifiable map of the attributes, the map is created once until the store is modified
+		 * @return Map of attributes
+		 */
+		Map<String, String> asMap() {
+			Map<String, String> m = map;
+			if(m == null) {
+				Map<String, String> sorted = new TreeMap<String, String>();
+				for(int i = 0; i < size; i++) {
+					sorted.put(AttributeStrings.getKey(keys[i]), values[i]);
+				}
+				m = Collections.unmodifiableMap(sorted);
+				map = m;
+			}
+			return m;
+		}
+
+		boolean isEmpty() {
+			return size == 0;
+		}
+	}
+
+	protected volatile Store fStore = null; // current attribute store, null if attributes were never set
+	protected volatile boolean bFrozen = false; // true if the store is immutable and can be read without locking
+	protected volatile int fModificationCount = 0;
 
 	/**
 	 * Default constructor
@@ -37,25 +214,158 @@ public class Attributes implements IAttributes {
 	 * @param copyFrom
 	 */
 	public Attributes(final IAttributes copyFrom) {
-		setAttributes(copyFrom.getAttributesAsMap());
+		setAttributes(copyFrom);
+	}
+
+	/**
+	 * Freezes the attributes: the store is trimmed and becomes immutable, subsequent reads do not need locking.
+	 * Frozen attributes can still be modified, each modification creates a new immutable store
+	 */
+	synchronized public void freeze() {
+		if(bFrozen) {
+			return;
+		}
+		Store store = fStore;
+		if(store != null && !store.immutable) {
+			fStore = store.copy(true);
+		}
+		bFrozen = true;
+	}
+
+	/**
+	 * Checks if the attributes are frozen
+	 * @return true if frozen
+	 */
+	public boolean isFrozen() {
+		return bFrozen;
+	}
+
+	/**
+	 * Returns number of modifications made to the attributes, allows to detect changes
+	 * @return modification count
+	 */
+	public int getModificationCount() {
+		return fModificationCount;
+	}
+
+	/**
+	 * Returns immutable store with the current attributes, the store can be shared with other objects and read without locking.
+	 * A mutable store is replaced by its immutable copy, which is copied again on the next modification
+	 * @return immutable Store, null if attributes were never set
+	 */
+	protected Store immutableStore() {
+		if(bFrozen) {
+			return fStore;
+		}
+		synchronized (this) {
+			Store store = fStore;
+			if(store != null && !store.immutable) {
+				store = store.copy(true);
+				fStore = store;
+			}
+			return store;
+		}
+	}
+
+	/**
+	 * Returns immutable store of supplied attributes, the store of an Attributes object is shared
+	 * @param attributes IAttributes to get the store of
+	 * @return Store, empty if attributes are null or contain no attributes
+	 */
+	protected static Store storeOf(IAttributes attributes) {
+		if(attributes instanceof Attributes) {
+			Store store = ((Attributes)attributes).immutableStore();
+			return store != null ? store : Store.EMPTY;
+		}
+		if(attributes == null || !attributes.hasAttributes()) {
+			return Store.EMPTY;
+		}
+		Store store = Store.EMPTY.copy(false);
+		putAll(store, attributes.getAttributesAsMap());
+		return store;
+	}
+
+	/**
+	 * Adds all attributes from the supplied map to a mutable store
+	 * @param store Store to add to
+	 * @param attributes map of attributes
+	 */
+	protected static void putAll(Store store, Map<String, String> attributes) {
+		for(Entry<String, String> e : attributes.entrySet()) {
+			String key = e.getKey();
+			String value = e.getValue();
+			if(key != null && value != null) {
+				store.put(AttributeStrings.getKeyId(key), AttributeStrings.internValue(value));
+			}
+		}
+	}
+
+	/**
+	 * Returns store to modify, must be called with the lock of this object held.
+	 * Frozen and shared stores are copied, the copy is published by {@link #commit(Store)}
+	 * @return mutable Store
+	 */
+	protected Store modifiableStore() {
+		Store store = fStore;
+		if(store == null) {
+			return Store.EMPTY.copy(false);
+		}
+		return store.immutable ? store.copy(false) : store;
 	}
 
+	/**
+	 * Publishes modified store, must be called with the lock of this object held
+	 * @param store modified Store returned by {@link #modifiableStore()}, null to clear attributes
+	 */
+	protected void commit(Store store) {
+		if(store != null && bFrozen && !store.immutable) {
+			store = new Store(store.keys, store.values, store.size, true); // the copy is not referenced elsewhere
+		}
+		fStore = store;
+		fModificationCount++;
+	}
 
 	@Override
-	synchronized public boolean hasAttribute(String key) {
-		return fAttributes != null && fAttributes.containsKey(key);
+	public boolean hasAttribute(String key) {
+		if(!bFrozen) {
+			synchronized (this) {
+				return fStore != null && fStore.indexOf(key) >= 0;
+			}
+		}
+		Store store = fStore;
+		return store != null && store.indexOf(key) >= 0;
+	}
+
+	/**
+	 * Returns attribute value for the given key id, allows lookups without key string resolution
+	 * @param keyId key id obtained from AttributeStrings.getKeyId()
+	 * @return attribute value or null if not found
+	 */
+	public String getAttributeByKeyId(int keyId) {
+		if(!bFrozen) {
+			synchronized (this) {
+				int index = fStore != null ? fStore.indexOf(keyId) : -1;
+				return index >= 0 ? fStore.values[index] : null;
+			}
+		}
+		Store store = fStore;
+		int index = store != null ? store.indexOf(keyId) : -1;
+		return index >= 0 ? store.values[index] : null;
 	}
 
 	@Override
-	synchronized public String getAttribute(String key) {
-		if(fAttributes != null) {
-			return fAttributes.get(key);
+	public String getAttribute(String key) {
+		if(!bFrozen) {
+			synchronized (this) {
+				return fStore != null ? fStore.get(key) : null;
+			}
 		}
-		return null;
+		Store store = fStore;
+		return store != null ? store.get(key) : null;
 	}
 
 	@Override
-	synchronized public String getAttribute(String key, String defaultValue) {
+	public String getAttribute(String key, String defaultValue) {
 		String value = getAttribute(key);
 		if(value != null) {
 			return value;
@@ -102,13 +412,13 @@ public class Attributes implements IAttributes {
 		if(key == null) {
 			return;
 		}
-		if(fAttributes == null) {
-			fAttributes = new TreeMap<String, String>(); // use natural sorting to get consistent string representation
-		}
 		if(value != null) {
-			fAttributes.put(key, value);
-		} else if(fAttributes != null) {
-			fAttributes.remove(key);
+			Store store = modifiableStore();
+			if(store.put(AttributeStrings.getKeyId(key), AttributeStrings.internValue(value)) || fStore == null) {
+				commit(store);
+			}
+		} else {
+			removeAttribute(key);
 		}
 	}
 
@@ -125,8 +435,14 @@ public class Attributes implements IAttributes {
 
 	@Override
 	synchronized public void removeAttribute(String key) {
-		if(fAttributes != null ) {
-			fAttributes.remove(key);
+		if(fStore == null) {
+			return;
+		}
+		int index = fStore.indexOf(key);
+		if(index >= 0) {
+			Store store = modifiableStore();
+			store.remove(index);
+			commit(store);
 		}
 	}
 
@@ -139,23 +455,38 @@ public class Attributes implements IAttributes {
 
 
 	@Override
-	synchronized public boolean hasAttributes() {
-		return fAttributes != null && !fAttributes.isEmpty();
+	public boolean hasAttributes() {
+		if(!bFrozen) {
+			synchronized (this) {
+				return fStore != null && !fStore.isEmpty();
+			}
+		}
+		Store store = fStore;
+		return store != null && !store.isEmpty();
 	}
 
+	/**
+	 * Returns sorted unmodifiable view of the attributes.
+	 * The view is created once until the attributes are modified, it does not reflect later modifications
+	 */
 	@Override
-	synchronized public Map<String, String> getAttributesAsMap() {
-		return fAttributes;
+	public Map<String, String> getAttributesAsMap() {
+		Store store = immutableStore();
+		if(store == null) {
+			return null;
+		}
+		return store.asMap();
 	}
 
 	@Override
 	synchronized public void setAttributes(Map<String, String> attributes) {
 		if(attributes == null) {
-			fAttributes = null;
+			commit(null);
 		} else {
 			// make copy
-			fAttributes = new TreeMap<String, String>();
-			fAttributes.putAll(attributes);
+			Store store = Store.EMPTY.copy(false);
+			putAll(store, attributes);
+			commit(store);
 		}
 	}
 
@@ -163,73 +494,85 @@ public class Attributes implements IAttributes {
 	synchronized public void addAttributes(Map<String, String> attributes) {
 		if(attributes != null && !attributes.isEmpty()) {
 			// make copy
-			if(fAttributes == null) {
-				setAttributes(attributes);
-			} else {
-				fAttributes.putAll(attributes);
-			}			
+			Store store = modifiableStore();
+			putAll(store, attributes);
+			commit(store);
 		}
 	}
-	
+
 	@Override
 	public void setAttributes(String attributesString) {
-		fAttributes = splitString(attributesString);
+		setAttributes(splitString(attributesString));
 	}
 
 
 	@Override
 	synchronized public void setAttributes(IAttributes attributes) {
-		if(attributes != null && attributes.hasAttributes()) {
+		if(attributes == this) {
+			return;
+		}
+		if(attributes instanceof Attributes) {
+			// immutable stores can be shared, the store is copied on modification
+			Store store = ((Attributes)attributes).immutableStore();
+			commit(store != null && !store.isEmpty() ? store : null);
+		} else if(attributes != null && attributes.hasAttributes()) {
 			setAttributes(attributes.getAttributesAsMap());
 		} else {
-			fAttributes = null;
+			commit(null);
 		}
 	}
 
 	@Override
 	synchronized public void addAttributes(IAttributes attributes) {
-		if(attributes != null && attributes.hasAttributes()) {
-			addAttributes(attributes.getAttributesAsMap());
-		} 
+		if(attributes == null || attributes == this || !attributes.hasAttributes()) {
+			return;
+		}
+		if(fStore == null) {
+			setAttributes(attributes);
+			return;
+		}
+		Store store = modifiableStore();
+		if(store.putAll(storeOf(attributes), true, null)) {
+			commit(store);
+		}
 	}
 
 	
 	@Override
 	synchronized public void mergeAttributes(final IAttributes attributes) {
-		if(attributes == null || !attributes.hasAttributes()) {
+		if(attributes == null || attributes == this || !attributes.hasAttributes()) {
 			return; // nothing to merge
 		}
-		Map<String, String> attributesMap = attributes.getAttributesAsMap();
-		if(fAttributes == null) {
-			setAttributes(attributesMap);
+		if(fStore == null) {
+			setAttributes(attributes);
+			return;
 		}
-		for(Entry<String, String> e: attributesMap.entrySet()) {
-			mergeAttribute(e.getKey(), e.getValue());
+		Store store = modifiableStore();
+		if(store.putAll(storeOf(attributes), false, null)) {
+			commit(store);
 		}
 	}
 
 	@Override
 	synchronized public void mergeAttributes(final IAttributes attributes, final String prefix) {
-		if(attributes == null || !attributes.hasAttributes()) {
+		if(attributes == null || attributes == this || !attributes.hasAttributes()) {
 			return; // nothing to merge
 		}
-		Map<String, String> attributesMap = attributes.getAttributesAsMap();
-		for(Entry<String, String> e: attributesMap.entrySet()) {
-			String key = e.getKey();
-			if(key.startsWith(prefix)) {
-				mergeAttribute(key, e.getValue());
-			}
+		Store store = modifiableStore();
+		if(store.putAll(storeOf(attributes), false, prefix)) {
+			commit(store);
 		}
 	}
 
 
 	@Override
-	synchronized public boolean containsAttribute(String pattern) {
-		if(fAttributes == null) {
+	public boolean containsAttribute(String pattern) {
+		Store store = immutableStore();
+		if(store == null) {
 			return false;
 		}
-		for(String key : fAttributes.keySet()){
-			if(WildCards.match(pattern, key)) {
+		for(int i = 0; i < store.size; i++){
+			if(WildCards.match(pattern, AttributeStrings.getKey(store.keys[i]))) {
 				return true;
 			}
 		}
@@ -268,17 +611,21 @@ public class Attributes implements IAttributes {
 	 * @return true if matches, false otherwise
 	 */
 	protected boolean matchAttributes(final IAttributes attributes, String prefix, boolean bCommon){
+		Store store = immutableStore();
 		if(attributes == null) {
-			return fAttributes == null || fAttributes.isEmpty();
+			return store == null || store.isEmpty();
 		}
-		for(Entry<String, String> e : fAttributes.entrySet()){
-			String key = e.getKey();
+		if(store == null) {
+			return true;
+		}
+		for(int i = 0; i < store.size; i++){
+			String key = AttributeStrings.getKey(store.keys[i]);
 			if(prefix != null && !prefix.isEmpty()) {
 				if(!key.startsWith(prefix)) {
 					continue;
 				}
 			}
-			String val = e.getValue();
+			String val = store.values[i];
 			String pattern = attributes.getAttribute(key);
 			if(pattern == null) {
 				if(bCommon) {
@@ -302,21 +649,28 @@ public class Attributes implements IAttributes {
 
 	@Override
 	public boolean containsValue(String value) {
-		if(fAttributes == null || fAttributes.isEmpty()) {
+		Store store = immutableStore();
+		if(store == null || value == null) {
 			return false;
 		}
-		return fAttributes.containsValue(value);
+		for(int i = 0; i < store.size; i++) {
+			if(store.values[i].equals(value)) {
+				return true;
+			}
+		}
+		return false;
 	}
 
 
 	@Override
 	public boolean containsValuePattern(String pattern) {
-		if(pattern == null || fAttributes == null || fAttributes.isEmpty()) {
+		Store store = immutableStore();
+		if(pattern == null || store == null) {
 			return false;
 		}
-		for(Entry<String, String> e : fAttributes.entrySet()){
-			String key = e.getKey();
-			String val = e.getValue();
+		for(int i = 0; i < store.size; i++){
+			String key = AttributeStrings.getKey(store.keys[i]);
+			String val = store.values[i];
 			if(matchAttribute(key, val, pattern)) {
 				return true;
 			}
@@ -359,21 +713,22 @@ public class Attributes implements IAttributes {
 	 * Returns string containing all attributes in the form "key0"="value0", "key1"=value1,...
 	 * @return string containing keys and values of all attributes
 	 */
-	synchronized public String getAttributesAsString() {
-		String s = CmsisConstants.EMPTY_STRING;
-		if(hasAttributes()) {
-			for(Entry<String, String> e : fAttributes.entrySet()){
-				if(!s.isEmpty())
-				 {
-					s += ", "; //$NON-NLS-1$
-				}
-				s += e.getKey();
-				s += "=\""; //$NON-NLS-1$
-				s += e.getValue();
-				s += "\""; //$NON-NLS-1$
+	public String getAttributesAsString() {
+		Store store = immutableStore();
+		if(store == null || store.isEmpty()) {
+			return CmsisConstants.EMPTY_STRING;
+		}
+		StringBuilder s = new StringBuilder();
+		for(int i = 0; i < store.size; i++){
+			if(i > 0) {
+				s.append(", "); //$NON-NLS-1$
 			}
+			s.append(AttributeStrings.getKey(store.keys[i]));
+			s.append("=\""); //$NON-NLS-1$
+			s.append(store.values[i]);
+			s.append('"');
 		}
-		return s;
+		return s.toString();
 	}
 
 	/**
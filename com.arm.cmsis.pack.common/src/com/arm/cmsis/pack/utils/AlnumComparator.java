@@ -219,6 +219,41 @@ public class AlnumComparator implements Comparator<String> {
 		return alnumCompare(str1, str2, false);
 	}
 
+	/**
+	 * Returns normalized form of a string without wild cards: strings that are equal according to alnumCompare()
+	 * have equal normalized forms, therefore it can be used as a hash key consistent with the comparator
+	 * @param str string to normalize
+	 * @param cs case sensitive flag
+	 * @return normalized string: digit groups are replaced by their decimal values, letters are upper-cased if cs is false
+	 */
+	public static String alnumNormalize(final String str, boolean cs) {
+		if (str == null) {
+			return null;
+		}
+		int l = str.length();
+		StringBuilder sb = new StringBuilder(l);
+		int i = 0;
+		while (i < l) {
+			char c = str.charAt(i);
+			if (Character.isDigit(c)) {
+				int digitBegin = i;
+				while (i < l && Character.isDigit(str.charAt(i))) {
+					i++;
+				}
+				String s = str.substring(digitBegin, i);
+				try {
+					sb.append(Integer.decode(s).intValue()); // same conversion as in alnumCompare()
+				} catch (NumberFormatException e) {
+					sb.append(s);
+				}
+			} else {
+				sb.append(cs ? c : Character.toUpperCase(c));
+				i++;
+			}
+		}
+		return sb.toString();
+	}
+
 	/**
 	 * Check if a String matches a Regex Pattern
 	 * @param pattern - the regex pattern
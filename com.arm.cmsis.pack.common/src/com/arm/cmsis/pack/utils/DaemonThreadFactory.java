@@ -0,0 +1,52 @@
+/*******************************************************************************
+* Copyright (c) 2015 ARM Ltd. and others
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* ARM Ltd and ARM Germany GmbH - Initial API and implementation
+*******************************************************************************/
+
+package com.arm.cmsis.pack.utils;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread factory creating numbered daemon threads for background work that must not block shutdown
+ */
+public class DaemonThreadFactory implements ThreadFactory {
+
+	/**
+	 * Upper limit for the default number of worker threads
+	 */
+	public static final int MAX_DEFAULT_THREADS = 8;
+
+	private final String fName;
+	private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+	/**
+	 * Constructs factory
+	 * @param name thread name prefix, threads are named "name 1", "name 2", ...
+	 */
+	public DaemonThreadFactory(String name) {
+		fName = name;
+	}
+
+	@Override
+	public Thread newThread(Runnable r) {
+		Thread t = new Thread(r, fName + ' ' + threadNumber.getAndIncrement());
+		t.setDaemon(true);
+		return t;
+	}
+
+	/**
+	 * Returns default number of worker threads for CPU bound parallel work
+	 * @return number of available processors limited by MAX_DEFAULT_THREADS, at least 1
+	 */
+	public static int getDefaultThreadCount() {
+		return Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), MAX_DEFAULT_THREADS));
+	}
+}
@@ -0,0 +1,141 @@
+/*******************************************************************************
+* Copyright (c) 2015 ARM Ltd. and others
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* ARM Ltd and ARM Germany GmbH - Initial API and implementation
+*******************************************************************************/
+
+package com.arm.cmsis.pack.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded thread-safe cache with approximate LRU eviction.
+ * <p/>
+ * The lookup is lock-free: every cached entry remembers the number of cache misses at its last use,
+ * the least recently used half of the entries is removed when the cache is full.
+ *
+ * @param <K> key type
+ * @param <V> value type
+ */
+public class LruCache<K, V> {
+
+	private final int fMaxSize;
+	private final Map<K, Entry<V>> fEntries;
+	private final AtomicLong fMissCount = new AtomicLong();
+
+	/**
+	 * Cached value with last use stamp
+	 */
+	private static final class Entry<V> {
+		private final V value;
+		private long lastUsed; // cache miss count at last use, races are harmless
+
+		Entry(V value, long stamp) {
+			this.value = value;
+			this.lastUsed = stamp;
+		}
+	}
+
+	/**
+	 * Constructs cache with the given size limit
+	 * @param maxSize maximum number of cached entries
+	 * @param initialCapacity initial capacity of the underlying map
+	 */
+	public LruCache(int maxSize, int initialCapacity) {
+		fMaxSize = maxSize > 1 ? maxSize : 2;
+		fEntries = new ConcurrentHashMap<K, Entry<V>>(initialCapacity);
+	}
+
+	/**
+	 * Returns cached value and marks it as recently used
+	 * @param key key to look up, not null
+	 * @return cached value or null if not in cache
+	 */
+	public V get(K key) {
+		Entry<V> e = fEntries.get(key);
+		if(e == null) {
+			return null;
+		}
+		long stamp = fMissCount.get();
+		if(e.lastUsed != stamp) {
+			e.lastUsed = stamp; // avoid writes to frequently used entries
+		}
+		return e.value;
+	}
+
+	/**
+	 * Puts value into the cache, evicts least recently used entries if the cache is full
+	 * @param key key, not null
+	 * @param value value to put, not null
+	 */
+	public void put(K key, V value) {
+		long stamp = fMissCount.incrementAndGet();
+		if(fEntries.size() >= fMaxSize) {
+			evict();
+		}
+		fEntries.put(key, new Entry<V>(value, stamp));
+	}
+
+	/**
+	 * Puts value into the cache unless another thread has already put a value for the key
+	 * @param key key, not null
+	 * @param value value to put, not null
+	 * @return value in the cache: the existing one or the supplied one
+	 */
+	public V putIfAbsent(K key, V value) {
+		long stamp = fMissCount.incrementAndGet();
+		if(fEntries.size() >= fMaxSize) {
+			evict();
+		}
+		Entry<V> existing = fEntries.putIfAbsent(key, new Entry<V>(value, stamp));
+		return existing != null ? existing.value : value;
+	}
+
+	/**
+	 * Removes least recently used half of the cached entries including all entries with the median stamp:
+	 * at least half of the entries is removed even if all of them have the same stamp
+	 */
+	protected synchronized void evict() {
+		if(fEntries.size() < fMaxSize) {
+			return; // already done by another thread
+		}
+		List<Long> stamps = new ArrayList<Long>(fEntries.size());
+		for(Entry<V> e : fEntries.values()) {
+			stamps.add(e.lastUsed);
+		}
+		Collections.sort(stamps);
+		long threshold = stamps.get(stamps.size() / 2);
+		fEntries.values().removeIf(e -> e.lastUsed <= threshold);
+	}
+
+	/**
+	 * Removes all cached entries
+	 */
+	public void clear() {
+		fEntries.clear();
+	}
+
+	/**
+	 * @return number of cached entries
+	 */
+	public int size() {
+		return fEntries.size();
+	}
+
+	/**
+	 * @return maximum number of cached entries
+	 */
+	public int getMaxSize() {
+		return fMaxSize;
+	}
+}
@@ -23,13 +23,13 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.Set;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 
 import com.arm.cmsis.pack.common.CmsisConstants;
 
@@ -372,6 +372,24 @@ public class Utils {
 		}
 	}
 
+	/**
+	 * Move directory to another location: rename it atomically if possible, otherwise copy and delete the source
+	 *
+	 * @param sourceLocation source directory
+	 * @param destLocation destination directory, should not exist
+	 * @throws IOException
+	 */
+	public static void moveDirectory(File sourceLocation, File destLocation) throws IOException {
+		try {
+			Files.move(sourceLocation.toPath(), destLocation.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			return;
+		} catch (IOException e) {
+			// different file systems, destination exists or is locked
+		}
+		copyDirectory(sourceLocation, destLocation);
+		deleteFolderRecursive(sourceLocation);
+	}
+
 	/**
 	 * Get the String of current date in the format of "dd-mm-yyyy"
 	 * @return String of current date in the format of "dd-mm-yyyy"
@@ -450,29 +468,6 @@ public class Utils {
 		}
 	}
 
-	/**
-	 * @param archiveFile the zip file
-	 * @return the number of files contained in this zip file
-	 * @throws IOException
-	 */
-	public static int getFilesCount(File archiveFile) throws IOException {
-		ZipInputStream zipInput;
-		zipInput = new ZipInputStream(new FileInputStream(archiveFile));
-		ZipEntry zipEntry = zipInput.getNextEntry();
-		int count = 0;
-		while (zipEntry != null) {
-			if (!zipEntry.isDirectory()) {
-				count++;
-			}
-			zipEntry = zipInput.getNextEntry();
-		}
-		zipInput.closeEntry();
-		zipInput.close();
-
-		return count;
-	}
-
-
 	/**
 	 * Count the number of files in specific folder
 	 * @param folder the root folder
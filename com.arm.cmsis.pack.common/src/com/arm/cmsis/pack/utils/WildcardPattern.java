@@ -0,0 +1,394 @@
+/*******************************************************************************
+* Copyright (c) 2015 ARM Ltd. and others
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* ARM Ltd and ARM Germany GmbH - Initial API and implementation
+*******************************************************************************/
+
+package com.arm.cmsis.pack.utils;
+
+/**
+ * Compiled wild card pattern: string that is split into matching elements once, see {@link WildCards} for syntax and semantics.
+ * <p/>
+ * Matching a compiled pattern does not allocate memory: strings without wild cards are matched directly,
+ * other strings are compiled once and kept in a bounded {@link LruCache}.
+ */
+public final class WildcardPattern {
+
+	/**
+	 * Maximum number of compiled patterns kept in the cache
+	 */
+	public static final int CACHE_SIZE = 4096;
+
+	private static final LruCache<String, WildcardPattern> cache = new LruCache<String, WildcardPattern>(CACHE_SIZE, 256);
+
+	// match states: state k corresponds to the k-th matching element, the last state is the end of string
+	private final String s;
+	private final int last;				// index of the end state
+	private final int[] from;			// start of character range, -1 if none
+	private final int[] to;				// end of character range (exclusive)
+	private final boolean[] asterisk;	// element is preceded by '*'
+	private final boolean[] asteriskSeen;	// '*' is found in this or any previous element
+
+	private WildcardPattern(String s) {
+		this.s = s;
+		int len = s.length();
+		int[] f = new int[len + 1];
+		int[] t = new int[len + 1];
+		boolean[] a = new boolean[len + 1];
+		boolean[] seen = new boolean[len + 1];
+		int k = 0;
+		int index = 0;
+		boolean bSeen = false;
+		while(true) {
+			// create range
+			f[k] = t[k] = -1;
+			a[k] = false;
+			if(index < len) {
+				char ch = s.charAt(index);
+				if(ch == '*') {
+					bSeen = a[k] = true;
+					// skip all asterisks and questions
+					index++;
+					while(index < len) {
+						ch = s.charAt(index);
+						if(ch != '*' && ch != '?') {
+							break;
+						}
+						index++;
+					}
+				}
+				if(index < len) {
+					if(ch == '[') {
+						index++;
+						if(index < len) {
+							t[k] = f[k] = index;
+							while(index < len) {
+								ch = s.charAt(index);
+								if(ch == ']') {
+									break;
+								}
+								index++;
+								t[k] = index;
+							}
+						}
+					} else {
+						f[k] = index;
+						t[k] = index + 1;
+					}
+				}
+			}
+			seen[k] = bSeen;
+			if(index >= len) {
+				break;
+			}
+			index++;
+			k++;
+		}
+		last = k;
+		from = f;
+		to = t;
+		asterisk = a;
+		asteriskSeen = seen;
+	}
+
+	/**
+	 * Compiles supplied string into a pattern
+	 * @param pattern string with wild cards, not null
+	 * @return compiled WildcardPattern
+	 */
+	public static WildcardPattern compile(String pattern) {
+		if(pattern == null) {
+			throw new IllegalArgumentException("Pattern must not be null"); //$NON-NLS-1$
+		}
+		return new WildcardPattern(pattern);
+	}
+
+	/**
+	 * Returns compiled pattern for the supplied string from the cache, compiles and caches it if not found
+	 * @param pattern string with wild cards, not null
+	 * @return compiled WildcardPattern
+	 */
+	public static WildcardPattern get(String pattern) {
+		WildcardPattern p = cache.get(pattern);
+		if(p != null) {
+			return p;
+		}
+		return cache.putIfAbsent(pattern, compile(pattern));
+	}
+
+	/**
+	 * Clears pattern cache
+	 */
+	public static void clearCache() {
+		cache.clear();
+	}
+
+	/**
+	 * Returns source string of the pattern
+	 * @return pattern string
+	 */
+	public String getPattern() {
+		return s;
+	}
+
+	@Override
+	public String toString() {
+		return s;
+	}
+
+	/**
+	 * Matches the pattern with supplied string that can also contain wild cards (case sensitive)
+	 * @param str string to match
+	 * @return <b>true</b> if strings match, <b>false</b> otherwise
+	 */
+	public boolean matches(CharSequence str) {
+		return matches(str, true);
+	}
+
+	/**
+	 * Matches the pattern with supplied string that can also contain wild cards
+	 * @param str string to match
+	 * @param cs case sensitive flag (true: respect case, false: ignore case)
+	 * @return <b>true</b> if strings match, <b>false</b> otherwise
+	 */
+	public boolean matches(CharSequence str, boolean cs) {
+		if(str == null || str.length() == 0) {
+			return s.isEmpty();
+		} else if(s.isEmpty()) {
+			return false;
+		}
+		String other = str.toString();
+		if(containsWildCards(other)) {
+			return match(this, s, get(other), other, cs);
+		}
+		return match(this, s, null, other, cs);
+	}
+
+	/**
+	 * Matches the pattern with another compiled pattern
+	 * @param other pattern to match
+	 * @param cs case sensitive flag (true: respect case, false: ignore case)
+	 * @return <b>true</b> if patterns match, <b>false</b> otherwise
+	 */
+	public boolean matches(WildcardPattern other, boolean cs) {
+		if(other == null) {
+			return s.isEmpty();
+		}
+		if(s.isEmpty() || other.s.isEmpty()) {
+			return s.isEmpty() && other.s.isEmpty();
+		}
+		return match(this, s, other, other.s, cs);
+	}
+
+	/**
+	 * Checks if supplied string contains any wild card characters
+	 * @param str string to check
+	 * @return true if str contains '*', '?' or '['
+	 */
+	public static boolean containsWildCards(CharSequence str) {
+		for(int i = 0; i < str.length(); i++) {
+			char ch = str.charAt(i);
+			if(ch == '*' || ch == '?' || ch == '[') {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Matches two non-empty strings, each is either compiled pattern or a string without wild cards
+	 * @param p1 compiled first string or null if it contains no wild cards
+	 * @param s1 first string
+	 * @param p2 compiled second string or null if it contains no wild cards
+	 * @param s2 second string
+	 * @param cs case sensitive flag
+	 * @return <b>true</b> if strings match, <b>false</b> otherwise
+	 */
+	static boolean match(WildcardPattern p1, String s1, WildcardPattern p2, String s2, boolean cs) {
+		// pattern without '*' and string without wild cards: elements are matched one by one
+		if (p2 == null && p1 != null && !p1.asteriskSeen[p1.last])
+			return p1.matchElements(s2, cs);
+		if (p1 == null && p2 != null && !p2.asteriskSeen[p2.last])
+			return p2.matchElements(s1, cs);
+
+		if (isAsterisk(p1, 0) && isEnd(p1, s1, 0))
+			return true;
+		if (isAsterisk(p2, 0) && isEnd(p2, s2, 0))
+			return true;
+
+		long r = wildCardMatch(p1, s1, p2, s2, cs);
+		boolean result = r < 0;
+
+		// we need a symmetric comparison in case both strings contain '*' :
+		// a*d and a*cd should be treated as equal
+		if (!result && isAsteriskSeen(p1, stateOf1(r)) && isAsteriskSeen(p2, stateOf2(r))) {
+			if (wildCardMatch(p2, s2, p1, s1, cs) < 0)
+				return true;
+		}
+		return result;
+	}
+
+	/**
+	 * Matches pattern without asterisks with a string without wild cards: each pattern element must match one character
+	 * @param str string without wild cards
+	 * @param cs case sensitive flag
+	 * @return <b>true</b> if strings match, <b>false</b> otherwise
+	 */
+	private boolean matchElements(String str, boolean cs) {
+		if(last != str.length()) {
+			return false;
+		}
+		for(int k = 0; k < last; k++) {
+			int f = from[k];
+			char otherCh = str.charAt(k);
+			if(to[k] - f == 1) {
+				char ch = s.charAt(f);
+				if(ch == otherCh || ch == '?')
+					continue;
+				if(cs || Character.toUpperCase(ch) != Character.toUpperCase(otherCh))
+					return false;
+			} else if(!compare(this, s, k, null, str, k, cs)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Performs one-way match
+	 * @return final states of both strings packed into long, negative value if strings match
+	 */
+	private static long wildCardMatch(WildcardPattern p1, String s1, WildcardPattern p2, String s2, boolean cs) {
+		int k1 = 0;
+		int k2 = 0;
+		while (true) {
+			if (isAsterisk(p1, k1)) {
+				if (isEnd(p1, s1, k1))
+					return result(true, k1, k2); // end of str2 is irrelevant
+				k2 = skip(p2, s2, k2, p1, s1, k1, cs);
+				if (isEnd(p2, s2, k2)) {
+					return result(isAsterisk(p2, k2) || isQuestion(p2, s2, k2), k1, k2);
+				}
+			}
+
+			if (isAsterisk(p2, k2)) {
+				if (isEnd(p2, s2, k2))
+					return result(true, k1, k2); // end of str1 is irrelevant
+				k1 = skip(p1, s1, k1, p2, s2, k2, cs);
+				if (isEnd(p1, s1, k1)) {
+					return result(isAsterisk(p1, k1) || isQuestion(p1, s1, k1), k1, k2);
+				}
+			}
+
+			if (isEnd(p1, s1, k1) || isEnd(p2, s2, k2))
+				break;
+
+			if (!compare(p1, s1, k1, p2, s2, k2, cs)) {
+				return result(false, k1, k2);
+			}
+			k1 = next(p1, s1, k1);
+			k2 = next(p2, s2, k2);
+		}
+		return result(isEnd(p1, s1, k1) && isEnd(p2, s2, k2), k1, k2);
+	}
+
+	private static long result(boolean match, int k1, int k2) {
+		long r = ((long)k1 << 32) | (k2 & 0xFFFFFFFFL);
+		return match ? r | Long.MIN_VALUE : r;
+	}
+
+	private static int stateOf1(long r) {
+		return (int)((r >>> 32) & 0x7FFFFFFFL);
+	}
+
+	private static int stateOf2(long r) {
+		return (int)r;
+	}
+
+	// state accessors: null pattern means a string without wild cards, where every character is an element
+
+	private static boolean isEnd(WildcardPattern p, String s, int k) {
+		return p != null ? k >= p.last : k >= s.length();
+	}
+
+	private static boolean isAsterisk(WildcardPattern p, int k) {
+		return p != null && p.asterisk[k];
+	}
+
+	private static boolean isAsteriskSeen(WildcardPattern p, int k) {
+		return p != null && p.asteriskSeen[k];
+	}
+
+	private static int rangeFrom(WildcardPattern p, String s, int k) {
+		if(p != null) {
+			return p.from[k];
+		}
+		return k < s.length() ? k : -1;
+	}
+
+	private static int rangeTo(WildcardPattern p, String s, int k) {
+		if(p != null) {
+			return p.to[k];
+		}
+		return k < s.length() ? k + 1 : -1;
+	}
+
+	private static boolean isQuestion(WildcardPattern p, String s, int k) {
+		if(p == null) {
+			return false; // no wild cards
+		}
+		int rangeFrom = p.from[k];
+		return rangeFrom >= 0 && s.charAt(rangeFrom) == '?';
+	}
+
+	private static int next(WildcardPattern p, String s, int k) {
+		if (isEnd(p, s, k))
+			return k;
+		return k + 1;
+	}
+
+	private static int skip(WildcardPattern p, String s, int k, WildcardPattern other, String otherS, int otherK, boolean cs) {
+		while (!isEnd(p, s, k) && !compare(p, s, k, other, otherS, otherK, cs)) {
+			k = next(p, s, k);
+		}
+		return k;
+	}
+
+	private static boolean compare(WildcardPattern p1, String s1, int k1, WildcardPattern p2, String s2, int k2, boolean cs) {
+		if (isQuestion(p1, s1, k1) || isQuestion(p2, s2, k2))
+			return true;
+		int from1 = rangeFrom(p1, s1, k1);
+		int from2 = rangeFrom(p2, s2, k2);
+		if(from1 < 0 && from2 < 0)
+			return true;
+
+		int to1 = rangeTo(p1, s1, k1);
+		int to2 = rangeTo(p2, s2, k2);
+		if(to1 - from1 == 1 && to2 - from2 == 1) {
+			// most common case: two single characters
+			char ch = s1.charAt(from1);
+			char otherCh = s2.charAt(from2);
+			if(ch == otherCh)
+				return true;
+			return !cs && Character.toUpperCase(ch) == Character.toUpperCase(otherCh);
+		}
+		for(int i = from1; i < to1; i++) {
+			char ch = s1.charAt(i);
+			if(!cs)
+				ch = Character.toUpperCase(ch);
+			for(int j = from2; j < to2; j++) {
+				char otherCh = s2.charAt(j);
+				if(!cs)
+					otherCh = Character.toUpperCase(otherCh);
+				if(ch == otherCh)
+					return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,270 @@
+/*******************************************************************************
+* Copyright (c) 2016 ARM Ltd. and others
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* ARM Ltd and ARM Germany GmbH - Initial API and implementation
+*******************************************************************************/
+
+package com.arm.cmsis.pack.utils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+/**
+ * Extracts zip archives using random access to archive entries.
+ * <p>
+ * Entries and the number of files are taken from the central directory without reading the archive content.
+ * Files are written in parallel, size and CRC of every extracted file are verified.
+ * {@link #extractInto} does not stage the content: callers extract into their own staging directory.
+ * </p>
+ */
+public class ZipExtractor implements Closeable {
+
+	public static final int BUFFER_SIZE = 256 * 1024;
+	private static final int MIN_BUFFER_SIZE = 4096;
+	private static final int POLL_TIME = 100; // ms
+	private static final int TERMINATION_TIME = 60; // s
+
+	protected File fArchiveFile;
+	protected ZipFile fZipFile;
+	protected List<ZipEntry> fFileEntries = new ArrayList<ZipEntry>(); // file entries, directories are not included
+	// maximum number of files extracted in parallel, 1 means sequential extraction
+	protected int nThreads = DaemonThreadFactory.getDefaultThreadCount();
+
+	/**
+	 * Opens the archive and reads its central directory
+	 * @param archiveFile zip file to extract
+	 * @throws IOException if the file cannot be opened or is not a zip archive
+	 */
+	public ZipExtractor(File archiveFile) throws IOException {
+		fArchiveFile = archiveFile;
+		fZipFile = new ZipFile(archiveFile);
+		Map<String, ZipEntry> entries = new LinkedHashMap<String, ZipEntry>(); // the last entry wins for duplicate names
+		Enumeration<? extends ZipEntry> e = fZipFile.entries();
+		while (e.hasMoreElements()) {
+			ZipEntry entry = e.nextElement();
+			if (!entry.isDirectory()) {
+				entries.put(entry.getName(), entry);
+			}
+		}
+		fFileEntries.addAll(entries.values());
+		// start with the largest files to balance the load between threads
+		Collections.sort(fFileEntries, (e1, e2) -> Long.compare(e2.getSize(), e1.getSize()));
+	}
+
+	/**
+	 * Returns number of files in the archive
+	 * @return number of file entries
+	 */
+	public int getFilesCount() {
+		return fFileEntries.size();
+	}
+
+	/**
+	 * Returns maximum number of files extracted in parallel
+	 * @return number of extraction threads, 1 if files are extracted sequentially
+	 */
+	public int getThreads() {
+		return nThreads;
+	}
+
+	/**
+	 * Sets maximum number of files extracted in parallel
+	 * @param threads number of extraction threads, 1 or less to extract sequentially
+	 */
+	public void setThreads(int threads) {
+		nThreads = threads > 1 ? threads : 1;
+	}
+
+	@Override
+	public void close() throws IOException {
+		fZipFile.close();
+	}
+
+	/**
+	 * Extracts the archive directly into the directory without staging: the caller is responsible for
+	 * removing partially extracted content if the method fails or is canceled.
+	 * Progress is reported and cancellation is checked by the calling thread
+	 * @param dir directory to extract to, typically a new empty staging directory of the caller
+	 * @param isCanceled returns true if extraction must be canceled, may be null
+	 * @param worked receives number of extracted files, may be null
+	 * @return true if the archive is extracted, false if canceled
+	 * @throws IOException if an entry cannot be extracted, is corrupt or the archive contains no data
+	 */
+	public boolean extractInto(File dir, BooleanSupplier isCanceled, IntConsumer worked) throws IOException {
+		if (isCanceled == null) {
+			isCanceled = () -> false;
+		}
+		if (worked == null) {
+			worked = w -> {};
+		}
+		long bytes = extractEntries(dir.getAbsoluteFile().toPath(), isCanceled, worked);
+		if (bytes < 0) {
+			return false;
+		}
+		if (bytes == 0) { // something went wrong, empty archive?
+			throw new ZipException("No data extracted from " + fArchiveFile); //$NON-NLS-1$
+		}
+		return true;
+	}
+
+	/**
+	 * Extracts all file entries to the directory
+	 * @return number of extracted bytes or -1 if canceled
+	 */
+	protected long extractEntries(Path dir, BooleanSupplier isCanceled, IntConsumer worked) throws IOException {
+		List<Path> targets = createDirectories(dir);
+		int nFiles = fFileEntries.size();
+		int threads = Math.min(nThreads, nFiles);
+		long bytes = 0;
+		if (threads <= 1) {
+			try {
+				for (int i = 0; i < nFiles; i++) {
+					if (isCanceled.getAsBoolean()) {
+						return -1;
+					}
+					bytes += extractEntry(fFileEntries.get(i), targets.get(i), isCanceled);
+					worked.accept(1);
+				}
+			} catch (CancellationException e) {
+				return -1;
+			}
+			return bytes;
+		}
+
+		final AtomicBoolean stop = new AtomicBoolean(false);
+		final BooleanSupplier isStopped = stop::get;
+		ExecutorService executor = Executors.newFixedThreadPool(threads, new DaemonThreadFactory("CMSIS Unzip")); //$NON-NLS-1$
+		CompletionService<Long> completionService = new ExecutorCompletionService<Long>(executor);
+		try {
+			for (int i = 0; i < nFiles; i++) {
+				final ZipEntry entry = fFileEntries.get(i);
+				final Path target = targets.get(i);
+				completionService.submit(() -> extractEntry(entry, target, isStopped));
+			}
+			int remaining = nFiles;
+			while (remaining > 0) {
+				if (isCanceled.getAsBoolean()) {
+					return -1;
+				}
+				Future<Long> future = completionService.poll(POLL_TIME, TimeUnit.MILLISECONDS);
+				if (future == null) {
+					continue;
+				}
+				remaining--;
+				bytes += future.get();
+				worked.accept(1);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			throw new IOException(cause);
+		} finally {
+			stop.set(true);
+			executor.shutdownNow();
+			try {
+				// running extractions stop at the next buffer, the temporary directory must not be written afterwards
+				executor.awaitTermination(TERMINATION_TIME, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		return bytes;
+	}
+
+	/**
+	 * Resolves entry target files and creates their parent directories
+	 * @return list of target files in the order of file entries
+	 */
+	protected List<Path> createDirectories(Path dir) throws IOException {
+		List<Path> targets = new ArrayList<Path>(fFileEntries.size());
+		Set<Path> dirs = new HashSet<Path>();
+		for (ZipEntry entry : fFileEntries) {
+			Path target = dir.resolve(entry.getName()).normalize();
+			if (!target.startsWith(dir) || target.equals(dir)) {
+				throw new ZipException("Invalid entry name: " + entry.getName()); //$NON-NLS-1$
+			}
+			Path parent = target.getParent();
+			if (dirs.add(parent)) {
+				Files.createDirectories(parent);
+			}
+			targets.add(target);
+		}
+		return targets;
+	}
+
+	/**
+	 * Extracts single file entry, verifies its size and CRC and makes the file read-only
+	 * @param entry ZipEntry to extract
+	 * @param target file to write
+	 * @param isCanceled checked after each buffer
+	 * @return number of extracted bytes
+	 * @throws IOException if the entry cannot be extracted or is corrupt
+	 * @throws CancellationException if canceled
+	 */
+	protected long extractEntry(ZipEntry entry, Path target, BooleanSupplier isCanceled) throws IOException {
+		long size = entry.getSize();
+		int bufferSize = size < 0 || size > BUFFER_SIZE ? BUFFER_SIZE : Math.max((int) size, MIN_BUFFER_SIZE);
+		byte[] buf = new byte[bufferSize];
+		CRC32 crc = new CRC32();
+		long count = 0;
+		try (InputStream input = fZipFile.getInputStream(entry);
+			OutputStream output = Files.newOutputStream(target)) {
+			int bytesRead;
+			while ((bytesRead = input.read(buf)) > 0) {
+				if (isCanceled.getAsBoolean()) {
+					throw new CancellationException();
+				}
+				output.write(buf, 0, bytesRead);
+				crc.update(buf, 0, bytesRead);
+				count += bytesRead;
+			}
+		}
+		if (size >= 0 && count != size) {
+			throw new ZipException("Invalid size of entry " + entry.getName()); //$NON-NLS-1$
+		}
+		if (entry.getCrc() >= 0 && crc.getValue() != entry.getCrc()) {
+			throw new ZipException("CRC error in entry " + entry.getName()); //$NON-NLS-1$
+		}
+		target.toFile().setReadOnly();
+		return count;
+	}
+}
@@ -12,6 +12,7 @@
 package com.arm.cmsis.pack.build;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
@@ -49,6 +50,11 @@ public class BuildSettings extends Attributes implements IBuildSettings {
 
 	}
 
+	@Override
+	public Map<Integer, Collection<String>> getStringListValues() {
+		return Collections.unmodifiableMap(stringSets);
+	}
+
 	@Override
 	public String getDeviceAttribute(String key) {
 		return null; // default implementation has no idea about device properties
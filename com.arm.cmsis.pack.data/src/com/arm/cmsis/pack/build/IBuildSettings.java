@@ -11,6 +11,7 @@
 package com.arm.cmsis.pack.build;
 
 import java.util.Collection;
+import java.util.Map;
 
 
 
@@ -37,6 +38,14 @@ public interface IBuildSettings extends IAttributes {
 	 */
 	void addStringListValue(int type, String value);
 
+	/**
+	 * Returns all string list values
+	 * @return unmodifiable map of setting type to collection of strings, null if not supported (default)
+	 */
+	default Map<Integer, Collection<String>> getStringListValues() {
+		return null;
+	}
+
 	/**
 	 * Retrieves attribute of selected device<br>
 	 * See: <a href="http://www.keil.com/pack/doc/CMSIS/Pack/html/pdsc_family_pg.html#element_processor">"http://www.keil.com/pack/doc/CMSIS/Pack/html/pdsc_family_pg.html#element_processor"</a><br>
@@ -19,6 +19,8 @@ import com.arm.cmsis.pack.enums.EEvaluationResult;
  */
 public class CpCondition extends CpItem implements ICpCondition {
 
+	protected volatile CpConditionProgram fProgram = null; // compiled on first request
+
 	/**
 	 * @param parent
 	 */
@@ -51,6 +53,18 @@ public class CpCondition extends CpItem implements ICpCondition {
 		return child;
 	}
 
+	/**
+	 * Returns compiled form of this condition for device and toolchain evaluation, compiles it if not yet done
+	 * @return CpConditionProgram or null if the condition cannot be compiled
+	 */
+	public CpConditionProgram getProgram() {
+		CpConditionProgram program = fProgram;
+		if(program == null) {
+			return CpConditionProgram.compile(this);
+		}
+		return program != CpConditionProgram.NOT_COMPILABLE ? program : null;
+	}
+
 	@Override
 	public EEvaluationResult evaluate(ICpConditionContext context) {
 		EEvaluationResult result = EEvaluationResult.UNDEFINED;
@@ -0,0 +1,148 @@
+/*******************************************************************************
+* Copyright (c) 2015 ARM Ltd. and others
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* ARM Ltd and ARM Germany GmbH - Initial API and implementation
+*******************************************************************************/
+
+package com.arm.cmsis.pack.data;
+
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.arm.cmsis.pack.common.CmsisConstants;
+import com.arm.cmsis.pack.enums.EEvaluationResult;
+import com.arm.cmsis.pack.utils.LruCache;
+
+/**
+ * Bounded cache of condition and expression evaluation results shared between condition contexts.
+ * <p>
+ * A result is stored for an item and an attribute fingerprint of the context that evaluated it,
+ * so contexts with the same device and toolchain attributes reuse results of each other.
+ * The cache must be cleared when packs are reloaded.
+ * </p>
+ */
+public class CpConditionCache {
+
+	public static final int DEFAULT_CACHE_SIZE = 65536;
+
+	private static final CpConditionCache theDefault = new CpConditionCache(DEFAULT_CACHE_SIZE);
+
+	protected final LruCache<Key, EEvaluationResult> fResults;
+	protected final Map<String, String> fFingerprints = new ConcurrentHashMap<String, String>();
+
+	/**
+	 * Cache key: evaluated item and fingerprint of context attributes
+	 */
+	protected static final class Key {
+		private final ICpItem item;
+		private final String fingerprint;
+		private final int hash;
+
+		Key(ICpItem item, String fingerprint) {
+			this.item = item;
+			this.fingerprint = fingerprint;
+			this.hash = 31 * item.hashCode() + fingerprint.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if(this == obj) {
+				return true;
+			}
+			if(!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key)obj;
+			return hash == other.hash && fingerprint.equals(other.fingerprint) && item.equals(other.item);
+		}
+	}
+
+	/**
+	 * Constructs cache with the given size limit
+	 * @param maxSize maximum number of cached results
+	 */
+	public CpConditionCache(int maxSize) {
+		fResults = new LruCache<Key, EEvaluationResult>(maxSize, 1024);
+	}
+
+	/**
+	 * Returns cache shared by all component filters
+	 * @return default CpConditionCache
+	 */
+	public static CpConditionCache getDefault() {
+		return theDefault;
+	}
+
+	/**
+	 * Returns canonical fingerprint string for the given attributes
+	 * @param attributes sorted attribute map as returned by IAttributes.getAttributesAsMap(), can be null
+	 * @return fingerprint string, the same instance for equal attribute maps
+	 */
+	public String getFingerprint(Map<String, String> attributes) {
+		if(attributes == null || attributes.isEmpty()) {
+			return CmsisConstants.EMPTY_STRING;
+		}
+		StringBuilder sb = new StringBuilder();
+		for(Entry<String, String> e : attributes.entrySet()) {
+			sb.append(e.getKey()).append('=').append(e.getValue()).append('\n');
+		}
+		String fp = sb.toString();
+		String existing = fFingerprints.putIfAbsent(fp, fp);
+		return existing != null ? existing : fp;
+	}
+
+	/**
+	 * Returns cached result
+	 * @param item evaluated ICpItem
+	 * @param fingerprint fingerprint of context attributes
+	 * @return cached result or null if not in cache
+	 */
+	public EEvaluationResult get(ICpItem item, String fingerprint) {
+		if(item == null || fingerprint == null) {
+			return null;
+		}
+		return fResults.get(new Key(item, fingerprint));
+	}
+
+	/**
+	 * Puts result into the cache, UNDEFINED results are not cached
+	 * @param item evaluated ICpItem
+	 * @param fingerprint fingerprint of context attributes
+	 * @param result evaluation result
+	 */
+	public void put(ICpItem item, String fingerprint, EEvaluationResult result) {
+		if(item == null || fingerprint == null || result == null || result == EEvaluationResult.UNDEFINED) {
+			return;
+		}
+		if(fFingerprints.size() > fResults.getMaxSize()) {
+			fFingerprints.clear(); // only canonicalization is lost
+		}
+		fResults.put(new Key(item, fingerprint), result);
+	}
+
+	/**
+	 * Removes all cached results, must be called when packs are reloaded
+	 */
+	public void clear() {
+		fResults.clear();
+		fFingerprints.clear();
+	}
+
+	/**
+	 * @return number of cached results
+	 */
+	public int size() {
+		return fResults.size();
+	}
+}
@@ -27,6 +27,9 @@ public class CpConditionContext extends CpAttributes implements ICpConditionCont
 
 	protected EEvaluationResult fResult = EEvaluationResult.IGNORED;
 	protected Map<ICpItem, EEvaluationResult> fResults = null;
+	protected CpConditionCache fSharedCache = null; // optional cache shared with other contexts
+	protected String fFingerprint = null; // attribute fingerprint for shared cache
+	protected int fFingerprintModification = -1; // attribute modification count the fingerprint is calculated for
 	
 	// temporary variables
 	protected Set<ICpCondition> tConditionsBeingEvaluated = new HashSet<ICpCondition>(); // to prevent recursion
@@ -35,11 +38,46 @@ public class CpConditionContext extends CpAttributes implements ICpConditionCont
 	
 	public CpConditionContext() {
 	}
+
+	/**
+	 * Sets cache to share evaluation results with other contexts having the same attributes.
+	 * Only contexts whose results depend on their attributes alone may use a shared cache. 
+	 * @param cache CpConditionCache or null to use local results only
+	 */
+	public void setSharedCache(CpConditionCache cache) {
+		fSharedCache = cache;
+		fFingerprint = null;
+	}
+
+	/**
+	 * Returns cache shared with other contexts
+	 * @return CpConditionCache or null if not set
+	 */
+	public CpConditionCache getSharedCache() {
+		return fSharedCache;
+	}
+
+	/**
+	 * Returns fingerprint of context attributes used as shared cache key
+	 * @return fingerprint string or null if no shared cache is set
+	 */
+	protected String getFingerprint() {
+		if(fSharedCache == null) {
+			return null;
+		}
+		int modification = getModificationCount();
+		if(fFingerprint == null || fFingerprintModification != modification) {
+			fFingerprint = fSharedCache.getFingerprint(getAttributesAsMap());
+			fFingerprintModification = modification;
+		}
+		return fFingerprint;
+	}
 	
 	@Override
 	public void resetResult() {
 		fResult = EEvaluationResult.IGNORED;
 		fResults = null;
+		fFingerprint = null;
 		tResultAccept = EEvaluationResult.UNDEFINED;
 		tbDeny = false;
 		tConditionsBeingEvaluated.clear();
@@ -100,9 +138,18 @@ public class CpConditionContext extends CpAttributes implements ICpConditionCont
 	 * @return cached result or null if not yet in cache
 	 */
 	protected EEvaluationResult getCachedResult(ICpItem item) {
+		 EEvaluationResult res = null;
 		 if(fResults != null)
-			 return fResults.get(item);
-		 return null;
+			 res = fResults.get(item);
+		 if(res == null && fSharedCache != null) {
+			 res = fSharedCache.get(item, getFingerprint());
+			 if(res != null) {
+				 if(fResults == null)
+					 fResults = new HashMap<ICpItem, EEvaluationResult>();
+				 fResults.put(item, res);
+			 }
+		 }
+		 return res;
 	 }
 
 	 /**
@@ -114,6 +161,8 @@ public class CpConditionContext extends CpAttributes implements ICpConditionCont
 		 if(fResults == null)
 			 fResults = new HashMap<ICpItem, EEvaluationResult>();
 		fResults.put(item, res);
+		if(fSharedCache != null)
+			fSharedCache.put(item, getFingerprint(), res);
 	 }
 
 	 
@@ -136,8 +185,23 @@ public class CpConditionContext extends CpAttributes implements ICpConditionCont
 		return EEvaluationResult.ERROR;
 	}
 
+	/**
+	 * Checks if conditions can be evaluated by their compiled programs.
+	 * Subclasses that override expression evaluation or attribute matching must return false.
+	 * @return true if compiled condition programs are used
+	 */
+	protected boolean isUseCompiledConditions() {
+		return true;
+	}
+
 	@Override
 	public EEvaluationResult evaluateCondition(ICpCondition condition) {
+		if(isUseCompiledConditions() && condition instanceof CpCondition) {
+			CpConditionProgram program = ((CpCondition)condition).getProgram();
+			if(program != null) {
+				return program.evaluate(this);
+			}
+		}
 		if(tConditionsBeingEvaluated.contains(condition))
 			return EEvaluationResult.ERROR; // recursion
 		
@@ -0,0 +1,318 @@
+/*******************************************************************************
+* Copyright (c) 2015 ARM Ltd. and others
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* ARM Ltd and ARM Germany GmbH - Initial API and implementation
+*******************************************************************************/
+
+package com.arm.cmsis.pack.data;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import com.arm.cmsis.pack.common.CmsisConstants;
+import com.arm.cmsis.pack.enums.EEvaluationResult;
+import com.arm.cmsis.pack.generic.AttributeStrings;
+import com.arm.cmsis.pack.generic.Attributes;
+import com.arm.cmsis.pack.utils.DeviceVendor;
+import com.arm.cmsis.pack.utils.WildCards;
+import com.arm.cmsis.pack.utils.WildcardPattern;
+
+/**
+ * Immutable compiled form of a condition evaluated against device and toolchain attributes.
+ * <p>
+ * Every expression of the condition becomes one instruction: an attribute test, a reference to the compiled program
+ * of the referenced condition or a constant result. Attribute tests of all instructions are stored in flat arrays
+ * with precompiled patterns. Recursive references are detected at compile time and yield ERROR as the interpreter does.
+ * Evaluation does not allocate and does not modify any state, therefore it can be performed concurrently.
+ * </p>
+ * @see CpConditionContext#evaluateCondition(ICpCondition)
+ */
+public final class CpConditionProgram {
+
+	// operand kinds
+	private static final byte ATTRIBUTES = 0;	// device or toolchain attribute test
+	private static final byte REFERENCE = 1;	// referenced condition
+	private static final byte CONSTANT = 2;	// constant result: component expression, missing reference, error
+
+	private static final int DVENDOR_ID = AttributeStrings.getKeyId(CmsisConstants.DVENDOR);
+
+	private static final CpConditionProgram ERROR_PROGRAM = new CpConditionProgram(
+			new boolean[] {false}, new boolean[] {false}, new byte[] {CONSTANT}, new int[] {0}, new int[] {0},
+			new EEvaluationResult[] {EEvaluationResult.ERROR}, new CpConditionProgram[0],
+			new int[0], new String[0], new WildcardPattern[0]);
+
+	/**
+	 * Marks conditions that can only be evaluated by the interpreter, never executed
+	 */
+	static final CpConditionProgram NOT_COMPILABLE = new CpConditionProgram(
+			new boolean[0], new boolean[0], new byte[0], new int[0], new int[0],
+			new EEvaluationResult[0], new CpConditionProgram[0],
+			new int[0], new String[0], new WildcardPattern[0]);
+
+	// instructions
+	private final boolean[] accept;		// accept expression, otherwise require or deny
+	private final boolean[] deny;			// deny expression
+	private final byte[] kind;			// operand kind
+	private final int[] operand;			// operand index: first test, reference or constant
+	private final int[] testEnd;			// end of attribute tests (exclusive) for ATTRIBUTES kind
+	private final EEvaluationResult[] constants;
+	private final CpConditionProgram[] references;
+	// attribute tests
+	private final int[] keyIds;
+	private final String[] patterns;
+	private final WildcardPattern[] compiled; // null if pattern contains no wild cards
+
+	private CpConditionProgram(boolean[] accept, boolean[] deny, byte[] kind, int[] operand, int[] testEnd,
+			EEvaluationResult[] constants, CpConditionProgram[] references,
+			int[] keyIds, String[] patterns, WildcardPattern[] compiled) {
+		this.accept = accept;
+		this.deny = deny;
+		this.kind = kind;
+		this.operand = operand;
+		this.testEnd = testEnd;
+		this.constants = constants;
+		this.references = references;
+		this.keyIds = keyIds;
+		this.patterns = patterns;
+		this.compiled = compiled;
+	}
+
+	/**
+	 * Compiles the condition and all conditions it references
+	 * @param condition CpCondition to compile
+	 * @return compiled program or null if the condition contains items that can only be evaluated by the interpreter
+	 */
+	public static CpConditionProgram compile(CpCondition condition) {
+		return new Compiler().compile(condition);
+	}
+
+	/**
+	 * Evaluates the program for supplied device and toolchain attributes
+	 * @param context attributes to evaluate against
+	 * @return evaluation result
+	 */
+	public EEvaluationResult evaluate(Attributes context) {
+		EEvaluationResult resultRequire = EEvaluationResult.IGNORED;
+		EEvaluationResult resultAccept = EEvaluationResult.UNDEFINED;
+		for(int i = 0; i < kind.length; i++) {
+			EEvaluationResult res;
+			switch(kind[i]) {
+			case ATTRIBUTES:
+				boolean bMatch = matchAttributes(context, operand[i], testEnd[i]);
+				if(deny[i]) {
+					res = bMatch ? EEvaluationResult.INCOMPATIBLE : EEvaluationResult.FULFILLED;
+				} else {
+					res = bMatch ? EEvaluationResult.FULFILLED : EEvaluationResult.FAILED;
+				}
+				break;
+			case REFERENCE:
+				res = references[operand[i]].evaluate(context);
+				if(deny[i]) {
+					res = denyResult(res);
+				}
+				break;
+			default:
+				res = constants[operand[i]];
+				break;
+			}
+			if(res == EEvaluationResult.IGNORED || res == EEvaluationResult.UNDEFINED) {
+				continue;
+			} else if(res == EEvaluationResult.ERROR) {
+				return res;
+			}
+			if(accept[i]) {
+				if(res.ordinal() > resultAccept.ordinal()) {
+					resultAccept = res;
+				}
+			} else if(res.ordinal() < resultRequire.ordinal()) {
+				resultRequire = res;
+			}
+		}
+		if(resultAccept != EEvaluationResult.UNDEFINED &&
+		   resultAccept.ordinal() < resultRequire.ordinal()) {
+			return resultAccept;
+		}
+		return resultRequire;
+	}
+
+	/**
+	 * Matches context attributes with expression attributes in the given range,
+	 * attributes missing in the context are not tested
+	 */
+	private boolean matchAttributes(Attributes context, int start, int end) {
+		for(int t = start; t < end; t++) {
+			String value = context.getAttributeByKeyId(keyIds[t]);
+			if(value == null) {
+				continue;
+			}
+			if(!matchAttribute(t, value)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean matchAttribute(int t, String value) {
+		String pattern = patterns[t];
+		if(keyIds[t] == DVENDOR_ID) {
+			return DeviceVendor.match(value, pattern);
+		}
+		WildcardPattern p = compiled[t];
+		if(p != null) {
+			return p.matches(value);
+		}
+		if(pattern.isEmpty() || value.isEmpty() || WildcardPattern.containsWildCards(value)) {
+			return WildCards.match(pattern, value);
+		}
+		return pattern.equals(value);
+	}
+
+	/**
+	 * Converts result of an expression to result of the deny expression, the same as CpDenyExpresion does
+	 */
+	private static EEvaluationResult denyResult(EEvaluationResult result) {
+		switch(result) {
+		case FULFILLED:
+			return EEvaluationResult.INCOMPATIBLE;
+		case UNDEFINED:
+		case ERROR:
+		case IGNORED:
+		case INCOMPATIBLE:
+			return result;
+		default:
+			break;
+		}
+		return EEvaluationResult.FULFILLED;
+	}
+
+	/**
+	 * Builds programs, keeps track of conditions being compiled to detect recursion
+	 */
+	private static final class Compiler {
+		private final Set<ICpCondition> conditionsBeingCompiled = new HashSet<ICpCondition>();
+
+		CpConditionProgram compile(CpCondition condition) {
+			CpConditionProgram program = condition.fProgram;
+			if(program == NOT_COMPILABLE) {
+				return null;
+			} else if(program != null) {
+				return program;
+			}
+			if(!conditionsBeingCompiled.add(condition)) {
+				return ERROR_PROGRAM; // recursion: all conditions in the cycle evaluate to ERROR
+			}
+			try {
+				program = build(condition);
+			} finally {
+				conditionsBeingCompiled.remove(condition);
+			}
+			condition.fProgram = program != null ? program : NOT_COMPILABLE; // do not try again
+			return program;
+		}
+
+		private CpConditionProgram build(CpCondition condition) {
+			Collection<? extends ICpItem> children = condition.getChildren();
+			if(children == null) {
+				return ERROR_PROGRAM; // the interpreter reports an error for empty conditions as well
+			}
+			List<ICpExpression> expressions = new ArrayList<ICpExpression>();
+			for(ICpItem child : children) {
+				if(!(child instanceof ICpExpression)) {
+					continue;
+				}
+				if(child.getClass() != CpExpression.class && child.getClass() != CpDenyExpresion.class) {
+					return null; // unknown evaluation semantics
+				}
+				expressions.add((ICpExpression)child);
+			}
+
+			int n = expressions.size();
+			boolean[] accept = new boolean[n];
+			boolean[] deny = new boolean[n];
+			byte[] kind = new byte[n];
+			int[] operand = new int[n];
+			int[] testEnd = new int[n];
+			List<EEvaluationResult> constants = new ArrayList<EEvaluationResult>();
+			List<CpConditionProgram> references = new ArrayList<CpConditionProgram>();
+			List<Integer> keyIds = new ArrayList<Integer>();
+			List<String> patterns = new ArrayList<String>();
+
+			for(int i = 0; i < n; i++) {
+				ICpExpression expr = expressions.get(i);
+				accept[i] = expr.getExpressionType() == ICpExpression.ACCEPT_EXPRESSION;
+				deny[i] = expr instanceof CpDenyExpresion;
+				switch(expr.getExpressionDomain()) {
+				case ICpExpression.DEVICE_EXPRESSION:
+				case ICpExpression.TOOLCHAIN_EXPRESSION:
+					kind[i] = ATTRIBUTES;
+					operand[i] = keyIds.size();
+					Map<String, String> attributes = expr.attributes().getAttributesAsMap();
+					if(attributes != null) {
+						for(Entry<String, String> e : attributes.entrySet()) {
+							keyIds.add(AttributeStrings.getKeyId(e.getKey()));
+							patterns.add(e.getValue());
+						}
+					}
+					testEnd[i] = keyIds.size();
+					break;
+				case ICpExpression.REFERENCE_EXPRESSION:
+					ICpItem referenced = expr.getCondition();
+					if(referenced == null) {
+						kind[i] = CONSTANT;
+						operand[i] = constants.size();
+						constants.add(EEvaluationResult.IGNORED);
+						break;
+					}
+					if(referenced.getClass() != CpCondition.class) {
+						return null;
+					}
+					CpConditionProgram program = compile((CpCondition)referenced);
+					if(program == null) {
+						return null;
+					}
+					kind[i] = REFERENCE;
+					operand[i] = references.size();
+					references.add(program);
+					break;
+				case ICpExpression.COMPONENT_EXPRESSION:
+					kind[i] = CONSTANT;
+					operand[i] = constants.size();
+					constants.add(EEvaluationResult.IGNORED); // not relevant for device and toolchain context
+					break;
+				default:
+					kind[i] = CONSTANT;
+					operand[i] = constants.size();
+					constants.add(EEvaluationResult.ERROR);
+					break;
+				}
+			}
+
+			int nTests = keyIds.size();
+			int[] keyIdArray = new int[nTests];
+			String[] patternArray = new String[nTests];
+			WildcardPattern[] compiled = new WildcardPattern[nTests];
+			for(int t = 0; t < nTests; t++) {
+				keyIdArray[t] = keyIds.get(t);
+				String pattern = patterns.get(t);
+				patternArray[t] = pattern;
+				if(!pattern.isEmpty() && WildcardPattern.containsWildCards(pattern)) {
+					compiled[t] = WildcardPattern.compile(pattern);
+				}
+			}
+			return new CpConditionProgram(accept, deny, kind, operand, testEnd,
+					constants.toArray(new EEvaluationResult[constants.size()]),
+					references.toArray(new CpConditionProgram[references.size()]),
+					keyIdArray, patternArray, compiled);
+		}
+	}
+}
@@ -159,7 +159,7 @@ public class CpDeviceItem extends CpDeviceItemContainer implements ICpDeviceItem
 		// add processor attributes to the properties
 		ICpItem pItem = getProcessor(processorName); 
 		if(pItem != null) { 
-			props.attributes().setAttributes(pItem.attributes().getAttributesAsMap());
+			props.attributes().setAttributes(pItem.attributes());
 			// directly insert processor property since it is already collected
 			props.addChild(pItem);
 		} else {
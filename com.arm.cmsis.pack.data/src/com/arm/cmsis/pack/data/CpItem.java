@@ -24,6 +24,7 @@ import java.util.TreeMap;
 import com.arm.cmsis.pack.common.CmsisConstants;
 import com.arm.cmsis.pack.enums.EEvaluationResult;
 import com.arm.cmsis.pack.enums.EVersionMatchMode;
+import com.arm.cmsis.pack.generic.Attributes;
 import com.arm.cmsis.pack.generic.IAttributes;
 import com.arm.cmsis.pack.item.CmsisTreeItem;
 import com.arm.cmsis.pack.utils.AlnumComparator;
@@ -67,6 +68,23 @@ public class CpItem extends CmsisTreeItem<ICpItem> implements ICpItem {
 		return fAttributes;
 	}
 
+	/**
+	 * Freezes attributes of this item and its descendants, frozen attributes are read without locking.
+	 * Children are taken as they are, content that is not loaded yet is not loaded
+	 */
+	public void freezeAttributes() {
+		if(fAttributes instanceof Attributes) {
+			((Attributes)fAttributes).freeze();
+		}
+		if(fChildren != null) {
+			for(ICpItem child : fChildren) {
+				if(child instanceof CpItem) {
+					((CpItem)child).freezeAttributes();
+				}
+			}
+		}
+	}
+
 	@Override
 	public String getAttribute(String key) {
 		 // Proxy method to get attribute from attributes 
@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright (c) 2015 ARM Ltd. and others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * ARM Ltd and ARM Germany GmbH - Initial API and implementation
+ *******************************************************************************/
+
+package com.arm.cmsis.pack.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.arm.cmsis.pack.common.CmsisConstants;
+import com.arm.cmsis.pack.events.IRteEventProxy;
+import com.arm.cmsis.pack.events.RteEvent;
+import com.arm.cmsis.pack.parser.CpPackCache;
+import com.arm.cmsis.pack.parser.ICpXmlParser;
+import com.arm.cmsis.pack.parser.PdscStreamParser;
+
+/**
+ * Pack that is initially constructed from pdsc header only: pack description, releases, requirements, etc.
+ * together with devices, boards and examples, which are needed to build device, board and example trees at startup.
+ * The remaining content sections (components, conditions, apis, ...) are loaded on first access to them.
+ */
+public class CpLazyPack extends CpPack {
+
+	/**
+	 * Top-level pdsc sections that are not read by header parsing
+	 */
+	public static final Set<String> CONTENT_TAGS = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(
+			CmsisConstants.CONDITIONS_TAG,
+			CmsisConstants.COMPONENTS_TAG,
+			CmsisConstants.APIS_TAG,
+			CmsisConstants.TAXONOMY_TAG,
+			CmsisConstants.GENERATORS_TAG)));
+
+	protected volatile boolean bLoaded = false;
+	protected CpPackCache fCache = null; // cache to use for loading full content
+	protected IRteEventProxy fRteEventProxy = null; // to report errors of loading full content
+	protected List<String> fLoadErrors = null;
+
+	public CpLazyPack(String tag, String fileName) {
+		super(tag, fileName);
+	}
+
+	/**
+	 * Sets cache to use when loading full pack content
+	 * @param cache CpPackCache, can be null
+	 */
+	public void setCache(CpPackCache cache) {
+		fCache = cache;
+	}
+
+	/**
+	 * Sets event proxy to emit errors of loading full pack content as PRINT_ERROR events
+	 * @param rteEventProxy IRteEventProxy, can be null
+	 */
+	public void setRteEventProxy(IRteEventProxy rteEventProxy) {
+		fRteEventProxy = rteEventProxy;
+	}
+
+	/**
+	 * Returns errors of loading full pack content
+	 * @return list of error strings, null if the content is not loaded yet or loaded successfully
+	 */
+	public List<String> getLoadErrors() {
+		return fLoadErrors;
+	}
+
+	/**
+	 * Checks if full pack content is loaded
+	 * @return true if loaded or loading has failed
+	 */
+	public boolean isLoaded() {
+		return bLoaded;
+	}
+
+	/**
+	 * Loads full pack content if not yet done
+	 */
+	public void ensureLoaded() {
+		if(!bLoaded) {
+			load();
+		}
+	}
+
+	/**
+	 * Parses entire pdsc file and merges content sections with the header items in document order.
+	 * The header items are kept, since they could already be referenced.
+	 * The merged child list is built aside and published at once, the header list is not modified.
+	 * If the file cannot be parsed, the pack keeps header content only and the parser errors are reported once
+	 */
+	protected synchronized void load() {
+		if(bLoaded) {
+			return;
+		}
+		ICpXmlParser parser = new PdscStreamParser();
+		parser.setCache(fCache);
+		ICpItem root = parser.parseFile(getFileName());
+		if(root == null) {
+			reportLoadErrors(parser.getErrorStrings());
+		} else if(root.getChildren() != null) {
+			List<ICpItem> header = fChildren != null ? new ArrayList<ICpItem>(fChildren) : new ArrayList<ICpItem>();
+			List<ICpItem> children = new ArrayList<ICpItem>(header.size() + CONTENT_TAGS.size());
+			int h = 0;
+			for(ICpItem child : root.getChildren()) {
+				if(CONTENT_TAGS.contains(child.getTag())) {
+					child.setParent(this);
+					if(child instanceof CpItem) {
+						((CpItem)child).freezeAttributes(); // header items are already frozen when the pack is committed
+					}
+					children.add(child);
+				} else if(h < header.size() && header.get(h).getTag().equals(child.getTag())) {
+					children.add(header.get(h++)); // already read by header parsing
+				}
+			}
+			// keep header items not matched because the file has changed since header parsing
+			children.addAll(header.subList(h, header.size()));
+			fChildren = children;
+		}
+		// reset data collected from header content
+		conditions = null;
+		cachedChildArray = null;
+		bLoaded = true;
+	}
+
+	/**
+	 * Keeps errors of loading full content and emits them as PRINT_ERROR events
+	 * @param errors parser error strings
+	 */
+	protected void reportLoadErrors(Collection<String> errors) {
+		fLoadErrors = new ArrayList<String>();
+		if(errors != null) {
+			fLoadErrors.addAll(errors);
+		}
+		if(fLoadErrors.isEmpty()) {
+			fLoadErrors.add(getFileName() + ": Error loading pack content"); //$NON-NLS-1$
+		}
+		if(fRteEventProxy == null) {
+			return;
+		}
+		for(String msg : fLoadErrors) {
+			if(msg != null && !msg.isEmpty()) {
+				fRteEventProxy.emitRteEvent(RteEvent.PRINT_ERROR, msg);
+			}
+		}
+	}
+
+	@Override
+	public Collection<? extends ICpItem> getChildren() {
+		ensureLoaded();
+		return super.getChildren();
+	}
+
+	@Override
+	public ICpItem getFirstChild(String key) {
+		if(key != null && !CONTENT_TAGS.contains(key)) {
+			synchronized (this) { // load() replaces the child list
+				if(!bLoaded) {
+					// header contains all other top-level elements, do not use getChildren() to avoid loading
+					return findHeaderChild(key);
+				}
+			}
+		}
+		ensureLoaded();
+		return super.getFirstChild(key);
+	}
+
+	/**
+	 * Searches header items for a child with the given key
+	 * @param key child key
+	 * @return first matching child or null if not found
+	 */
+	protected ICpItem findHeaderChild(String key) {
+		if(fChildren != null) {
+			for(ICpItem child : fChildren) {
+				if(key.equals(getItemKey(child))) {
+					return child;
+				}
+			}
+		}
+		return null;
+	}
+}
@@ -101,6 +101,7 @@ public class CpPackCollection extends CpItem implements ICpPackCollection {
 			return;
 		}
 		cachedChildArray = null;
+		fLatestPackIDs = null;
 		ICpPack pack = (ICpPack)item;
 		if(fPackFamilies == null) {
 			fPackFamilies = new TreeMap<String, ICpPackFamily>(new AlnumComparator(false, false));
@@ -116,6 +117,12 @@ public class CpPackCollection extends CpItem implements ICpPackCollection {
 		family.addChild(item);
 	}
 
+	@Override
+	public void removeChild(ICpItem item) {
+		super.removeChild(item);
+		fLatestPackIDs = null;
+	}
+
 
 	@Override
 	public Collection<ICpPack> getPacks() {
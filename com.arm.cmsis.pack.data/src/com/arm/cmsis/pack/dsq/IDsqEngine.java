@@ -18,6 +18,12 @@ import java.util.Collection;
  */
 public interface IDsqEngine extends IDsqApiVersion {
 
+	/**
+	 * System property read by engines that compile sequences when they are created:
+	 * "false" makes them interpret sequences, for example to compare both execution modes
+	 */
+	String COMPILE_PROPERTY = "com.arm.cmsis.pack.dsq.compile"; //$NON-NLS-1$
+
 	/**
 	 * Get the sequence name list
 	 * @return A list of sequence names provided by the engine, or an empty array
@@ -0,0 +1,581 @@
+/*******************************************************************************
+* Copyright (c) 2015 ARM Ltd. and others
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* ARM Ltd and ARM Germany GmbH - Initial API and implementation
+*******************************************************************************/
+
+package com.arm.cmsis.pack.parser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.ref.SoftReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.arm.cmsis.pack.data.ICpItem;
+
+/**
+ * Persistent cache of parsed XML files.
+ * <p>
+ * The cache stores the sequence of parser callbacks (element start, attributes, text, element end)
+ * recorded during parsing in a compact binary form. Replaying the sequence recreates the same
+ * {@link ICpItem} tree without DOM parsing and schema validation.
+ * </p>
+ * Cache entries are keyed by absolute file name and are only valid if file size and modification time match.
+ * The entire cache is discarded if its format or the version string supplied by the client differs.
+ * <p>
+ * Only the entry index is kept in memory: recorded data of saved entries is read from the cache file on demand
+ * and held by soft references, data of new entries is kept until the cache is saved.
+ * </p>
+ */
+public class CpPackCache {
+
+	private static final int MAGIC = 0x43504B43; // "CPKC"
+	private static final int FORMAT_VERSION = 1;
+
+	// record types
+	private static final byte START = 1;
+	private static final byte ATTRIBUTE = 2;
+	private static final byte TEXT = 3;
+	private static final byte END = 4;
+
+	/**
+	 * Single cache entry
+	 */
+	protected static class Entry {
+		public final long size;
+		public final long lastModified;
+		protected byte[] pending; // data not saved in the cache file yet
+		protected SoftReference<byte[]> cached = null; // data read from the cache file
+		protected long offset = -1; // data position in the cache file
+		protected int length = 0;
+
+		/**
+		 * Constructs entry for newly recorded data
+		 */
+		public Entry(long size, long lastModified, byte[] data) {
+			this.size = size;
+			this.lastModified = lastModified;
+			this.pending = data;
+		}
+
+		/**
+		 * Constructs entry for data stored in the cache file
+		 */
+		public Entry(long size, long lastModified, long offset, int length) {
+			this.size = size;
+			this.lastModified = lastModified;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		/**
+		 * Marks data as saved in the cache file at the given position
+		 */
+		synchronized void saved(byte[] data, long offset) {
+			this.pending = null;
+			this.cached = new SoftReference<byte[]>(data);
+			this.offset = offset;
+			this.length = data.length;
+		}
+	}
+
+	/**
+	 * Input stream counting read bytes to know data positions in the cache file
+	 */
+	private static class CountingInputStream extends FilterInputStream {
+		private long position = 0;
+
+		CountingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if(b >= 0) {
+				position++;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if(n > 0) {
+				position += n;
+			}
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			position += skipped;
+			return skipped;
+		}
+
+		long getPosition() {
+			return position;
+		}
+	}
+
+	protected String fCacheFile;
+	protected String fVersion;
+	protected Map<String, Entry> fEntries = new ConcurrentHashMap<String, Entry>();
+	protected volatile boolean bDirty = false;
+	protected final Object fFileLock = new Object(); // guards cache file access: save() moves data in the file
+
+	/**
+	 * Constructs the cache
+	 * @param cacheFile absolute file name to store the cache in
+	 * @param version version string the cache is valid for, for example plug-in version and schema file
+	 */
+	public CpPackCache(String cacheFile, String version) {
+		fCacheFile = cacheFile;
+		fVersion = version != null ? version : ""; //$NON-NLS-1$
+	}
+
+	/**
+	 * Returns cache file name
+	 * @return absolute cache file name
+	 */
+	public String getCacheFile() {
+		return fCacheFile;
+	}
+
+	/**
+	 * Returns version string the cache is valid for
+	 * @return version string
+	 */
+	public String getVersion() {
+		return fVersion;
+	}
+
+	/**
+	 * Checks if the cache has been modified since it was loaded or saved
+	 * @return true if modified
+	 */
+	public boolean isDirty() {
+		return bDirty;
+	}
+
+	/**
+	 * Removes all entries
+	 */
+	public void clear() {
+		if(!fEntries.isEmpty()) {
+			fEntries.clear();
+			bDirty = true;
+		}
+	}
+
+	/**
+	 * Removes entries for files not contained in supplied collection
+	 * @param fileNames collection of files to keep
+	 */
+	public void retainAll(Collection<String> fileNames) {
+		Set<String> keep = new HashSet<String>(fileNames);
+		if(fEntries.keySet().retainAll(keep)) {
+			bDirty = true;
+		}
+	}
+
+	/**
+	 * Loads the cache from the cache file, discards the content if the file is invalid or outdated
+	 * @return true if the cache file has been successfully loaded
+	 */
+	public boolean load() {
+		synchronized (fFileLock) {
+			fEntries.clear();
+			bDirty = false;
+			File f = new File(fCacheFile);
+			if(!f.exists()) {
+				return false;
+			}
+			try(CountingInputStream counter = new CountingInputStream(new BufferedInputStream(new FileInputStream(f)));
+					DataInputStream in = new DataInputStream(counter)) {
+				if(in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !fVersion.equals(in.readUTF())) {
+					bDirty = true; // outdated cache => overwrite it
+					return false;
+				}
+				int count = in.readInt();
+				for(int i = 0; i < count; i++) {
+					String file = in.readUTF();
+					long size = in.readLong();
+					long lastModified = in.readLong();
+					int length = in.readInt();
+					long offset = counter.getPosition();
+					if(length < 0 || offset + length > f.length()) {
+						throw new IOException("Invalid cache file"); //$NON-NLS-1$
+					}
+					skipFully(in, length); // data is read on demand
+					fEntries.put(file, new Entry(size, lastModified, offset, length));
+				}
+			} catch (IOException e) {
+				fEntries.clear();
+				bDirty = true;
+				return false;
+			}
+			return true;
+		}
+	}
+
+	private static void skipFully(InputStream in, long n) throws IOException {
+		while(n > 0) {
+			long skipped = in.skip(n);
+			if(skipped <= 0) {
+				throw new IOException("Unexpected end of cache file"); //$NON-NLS-1$
+			}
+			n -= skipped;
+		}
+	}
+
+	/**
+	 * Returns recorded data of an entry, reads it from the cache file if it is not in memory
+	 * @param entry cache Entry
+	 * @return recorded data
+	 * @throws IOException if data cannot be read
+	 */
+	protected byte[] getData(Entry entry) throws IOException {
+		synchronized (entry) {
+			if(entry.pending != null) {
+				return entry.pending;
+			}
+			byte[] data = entry.cached != null ? entry.cached.get() : null;
+			if(data != null) {
+				return data;
+			}
+		}
+		synchronized (fFileLock) {
+			synchronized (entry) {
+				byte[] data = entry.cached != null ? entry.cached.get() : null;
+				if(data != null || entry.pending != null) {
+					return data != null ? data : entry.pending;
+				}
+				data = new byte[entry.length];
+				try(RandomAccessFile raf = new RandomAccessFile(fCacheFile, "r")) { //$NON-NLS-1$
+					raf.seek(entry.offset);
+					raf.readFully(data);
+				}
+				entry.cached = new SoftReference<byte[]>(data);
+				return data;
+			}
+		}
+	}
+
+	/**
+	 * Saves the cache to the cache file if it has been modified
+	 * @return true if successful
+	 */
+	public boolean save() {
+		if(!bDirty) {
+			return true;
+		}
+		synchronized (fFileLock) {
+			File f = new File(fCacheFile);
+			File tmp = new File(fCacheFile + ".tmp"); //$NON-NLS-1$
+			List<Map.Entry<String, Entry>> entries = new ArrayList<Map.Entry<String, Entry>>(fEntries.entrySet());
+			List<byte[]> savedData = new ArrayList<byte[]>(entries.size());
+			List<Long> offsets = new ArrayList<Long>(entries.size());
+			try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT_VERSION);
+				out.writeUTF(fVersion);
+				out.writeInt(entries.size());
+				for(Map.Entry<String, Entry> e : entries) {
+					Entry entry = e.getValue();
+					byte[] data = getData(entry);
+					out.writeUTF(e.getKey());
+					out.writeLong(entry.size);
+					out.writeLong(entry.lastModified);
+					out.writeInt(data.length);
+					offsets.add(Long.valueOf(out.size()));
+					out.write(data);
+					savedData.add(data);
+				}
+			} catch (IOException e) {
+				tmp.delete();
+				return false;
+			}
+			try {
+				Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (IOException e) {
+				tmp.delete();
+				return false;
+			}
+			// entries refer to the new file now
+			for(int i = 0; i < entries.size(); i++) {
+				entries.get(i).getValue().saved(savedData.get(i), offsets.get(i));
+			}
+			bDirty = false;
+			return true;
+		}
+	}
+
+	/**
+	 * Checks if the cache contains a valid entry for the supplied file
+	 * @param file absolute file name
+	 * @return true if entry exists and file has not been changed since
+	 */
+	public boolean isValid(String file) {
+		return getValidEntry(file) != null;
+	}
+
+	/**
+	 * Returns cache entry for given file if the file has not been modified
+	 * @param file absolute file name
+	 * @return Entry or null if not found or outdated
+	 */
+	protected Entry getValidEntry(String file) {
+		if(file == null) {
+			return null;
+		}
+		Entry entry = fEntries.get(file);
+		if(entry == null) {
+			return null;
+		}
+		File f = new File(file);
+		if(f.length() != entry.size || f.lastModified() != entry.lastModified) {
+			return null;
+		}
+		return entry;
+	}
+
+	/**
+	 * Stores recorded parser data for a file
+	 * @param file absolute file name
+	 * @param size file size at the time the file was parsed
+	 * @param lastModified file modification time at the time the file was parsed
+	 * @param recorder Recorder containing the data
+	 */
+	public void put(String file, long size, long lastModified, Recorder recorder) {
+		if(file == null || recorder == null) {
+			return;
+		}
+		try {
+			fEntries.put(file, new Entry(size, lastModified, recorder.toByteArray()));
+			bDirty = true;
+		} catch (IOException e) {
+			// do not cache
+		}
+	}
+
+	/**
+	 * Removes entry for the supplied file
+	 * @param file absolute file name
+	 */
+	public void remove(String file) {
+		if(file != null && fEntries.remove(file) != null) {
+			bDirty = true;
+		}
+	}
+
+	/**
+	 * Recreates item tree for given file by replaying recorded callbacks on the supplied parser
+	 * @param parser CpXmlParser to create items, must be cleared and have xml file set
+	 * @param file absolute file name
+	 * @return root ICpItem or null if the file is not cached or cached data is invalid
+	 */
+	public ICpItem restore(CpXmlParser parser, String file) {
+		Entry entry = getValidEntry(file);
+		if(entry == null) {
+			return null;
+		}
+		try {
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(getData(entry)));
+			String[] strings = new String[readInt(in)];
+			for(int i = 0; i < strings.length; i++) {
+				byte[] bytes = new byte[readInt(in)];
+				in.readFully(bytes);
+				strings[i] = new String(bytes, StandardCharsets.UTF_8);
+			}
+			if(in.readByte() != START) {
+				throw new IOException("Invalid cache entry"); //$NON-NLS-1$
+			}
+			return readElement(parser, in, strings, null);
+		} catch (IOException | IndexOutOfBoundsException e) {
+			remove(file);
+			return null;
+		}
+	}
+
+	/**
+	 * Reads element record and its content, performs the same calls as CpXmlParser.parseElement()
+	 */
+	protected ICpItem readElement(CpXmlParser parser, DataInputStream in, String[] strings, ICpItem parent) throws IOException {
+		String tag = strings[readInt(in)];
+		ICpItem item = parser.createItem(parent, tag);
+		if(item == null) {
+			return null;
+		}
+		byte record = in.readByte();
+		while(record == ATTRIBUTE) {
+			String key = strings[readInt(in)];
+			String value = strings[readInt(in)];
+			item.attributes().setAttribute(key, value);
+			record = in.readByte();
+		}
+
+		// add child item here since parent implementation can query item attributes
+		if(parent != null) {
+			parent.addChild(item);
+		}
+
+		while(record != END) {
+			switch(record) {
+			case START:
+				if(readElement(parser, in, strings, item) == null) {
+					return null;
+				}
+				break;
+			case TEXT:
+				item.setText(strings[readInt(in)]);
+				break;
+			default:
+				throw new IOException("Invalid cache entry"); //$NON-NLS-1$
+			}
+			record = in.readByte();
+		}
+		parser.processItem(item);
+		return item;
+	}
+
+	/**
+	 * Writes non-negative integer in variable-length format
+	 */
+	static void writeInt(OutputStream out, int value) throws IOException {
+		while((value & ~0x7F) != 0) {
+			out.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	/**
+	 * Reads non-negative integer in variable-length format
+	 */
+	static int readInt(InputStream in) throws IOException {
+		int value = 0;
+		for(int shift = 0; shift < 32; shift += 7) {
+			int b = in.read();
+			if(b < 0) {
+				throw new IOException("Unexpected end of cache entry"); //$NON-NLS-1$
+			}
+			value |= (b & 0x7F) << shift;
+			if((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("Invalid cache entry"); //$NON-NLS-1$
+	}
+
+	/**
+	 * Records parser callbacks for a single file, strings are stored once in a string table
+	 */
+	public static class Recorder {
+		private Map<String, Integer> fStringIndex = new HashMap<String, Integer>();
+		private List<String> fStrings = new ArrayList<String>();
+		private ByteArrayOutputStream fRecords = new ByteArrayOutputStream();
+
+		private void writeString(String s) throws IOException {
+			Integer index = fStringIndex.get(s);
+			if(index == null) {
+				index = fStrings.size();
+				fStrings.add(s);
+				fStringIndex.put(s, index);
+			}
+			writeInt(fRecords, index);
+		}
+
+		/**
+		 * Records element start
+		 * @param tag element tag
+		 */
+		public void startElement(String tag) throws IOException {
+			fRecords.write(START);
+			writeString(tag);
+		}
+
+		/**
+		 * Records element attribute, must directly follow startElement() or another attribute() call
+		 * @param key attribute key
+		 * @param value adjusted attribute value
+		 */
+		public void attribute(String key, String value) throws IOException {
+			fRecords.write(ATTRIBUTE);
+			writeString(key);
+			writeString(value);
+		}
+
+		/**
+		 * Records element end
+		 * @param text element text or null if element has no text
+		 */
+		public void endElement(String text) throws IOException {
+			if(text != null) {
+				fRecords.write(TEXT);
+				writeString(text);
+			}
+			fRecords.write(END);
+		}
+
+		/**
+		 * Returns recorded data in binary form
+		 * @return byte array
+		 */
+		public byte[] toByteArray() throws IOException {
+			ByteArrayOutputStream out = new ByteArrayOutputStream(fRecords.size() + fStrings.size() * 16);
+			writeInt(out, fStrings.size());
+			for(String s : fStrings) {
+				byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+				writeInt(out, bytes.length);
+				out.write(bytes);
+			}
+			fRecords.writeTo(out);
+			return out.toByteArray();
+		}
+	}
+
+	/**
+	 * Returns number of cached files
+	 * @return number of cache entries
+	 */
+	public int size() {
+		return fEntries.size();
+	}
+
+	/**
+	 * Returns collection of cached files
+	 * @return collection of absolute file names
+	 */
+	public Collection<String> getFiles() {
+		return new ArrayList<String>(fEntries.keySet());
+	}
+}
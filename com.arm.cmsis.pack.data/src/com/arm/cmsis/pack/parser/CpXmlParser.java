@@ -78,6 +78,10 @@ public abstract class CpXmlParser implements ICpXmlParser {
 	private DocumentBuilder docBuilder = null;
 	protected XmlErrorHandler errorHandler = null;
 
+	// cache of parsed files
+	protected CpPackCache cache = null;
+	protected CpPackCache.Recorder recorder = null; // records parsing of current file for the cache
+
 	public CpXmlParser() {
 	}
 
@@ -90,6 +94,7 @@ public abstract class CpXmlParser implements ICpXmlParser {
 		xmlFile = null;
 		xmlString = null;
 		rootItem 	= null;
+		recorder = null;
 		errorStrings.clear();
 		nErrors   = 0;
 		nWarnings = 0;
@@ -132,6 +137,24 @@ public abstract class CpXmlParser implements ICpXmlParser {
 	}
 
 
+	@Override
+	public CpPackCache getCache() {
+		return cache;
+	}
+
+	@Override
+	public void setCache(CpPackCache cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * Checks if the cache can be used for parsing: recorded content depends on ignored tags
+	 * @return true if cache is set and no tags are ignored
+	 */
+	protected boolean isCacheUsed() {
+		return cache != null && (ignoreTags == null || ignoreTags.isEmpty());
+	}
+
 	@Override
 	public void setIgnoreTags(Set<String> ignoreTags) {
 		this.ignoreTags = ignoreTags;
@@ -312,6 +335,34 @@ public abstract class CpXmlParser implements ICpXmlParser {
 	public ICpItem parseFile(String file) {
 		clear();
 		this.xmlFile = file;
+		long fileSize = 0;
+		long lastModified = 0;
+		if(isCacheUsed()) {
+			ICpItem item = cache.restore(this, file);
+			if(item != null) {
+				return item;
+			}
+			clear(); // restore could leave partly constructed items
+			this.xmlFile = file;
+			File f = new File(file);
+			fileSize = f.length();
+			lastModified = f.lastModified();
+			recorder = new CpPackCache.Recorder();
+		}
+
+		ICpItem item = parseXmlFile();
+		if(item != null && recorder != null && nErrors == 0 && nWarnings == 0) {
+			cache.put(file, fileSize, lastModified, recorder);
+		}
+		recorder = null;
+		return item;
+	}
+
+	/**
+	 * Parses current XML file using DOM
+	 * @return root ICpItem object or null if parsing failed
+	 */
+	protected ICpItem parseXmlFile() {
 		if(!init()) {
 			return null;
 		}
@@ -369,6 +420,7 @@ public abstract class CpXmlParser implements ICpXmlParser {
 		if(item == null) {
 			return false;
 		}
+		record(tag, null, null);
 		// process node attributes
 		NamedNodeMap attributes = elementNode.getAttributes();
 		if (attributes != null && attributes.getLength() > 0) {
@@ -389,6 +441,7 @@ public abstract class CpXmlParser implements ICpXmlParser {
 					}
 					value = adjustAttributeValue(key, value.trim());
 					item.attributes().setAttribute(key, value);
+					record(null, key, value);
 				}
 			}
 		}
@@ -399,6 +452,7 @@ public abstract class CpXmlParser implements ICpXmlParser {
 		}
 
 		// insert children and text
+		String text = null;
 		for (Node node = elementNode.getFirstChild(); node != null; node = node.getNextSibling()) {
 			switch (node.getNodeType()) {
 			case Node.ELEMENT_NODE: {
@@ -408,9 +462,10 @@ public abstract class CpXmlParser implements ICpXmlParser {
 				break;
 			}
 			case Node.TEXT_NODE: {
-				String text = node.getNodeValue();
-				if (text != null) {
-					item.setText(text.trim());
+				String nodeText = node.getNodeValue();
+				if (nodeText != null) {
+					text = nodeText.trim();
+					item.setText(text);
 				}
 				break;
 			}
@@ -419,12 +474,50 @@ public abstract class CpXmlParser implements ICpXmlParser {
 			}
 		}
 
+		recordEnd(text);
+
 		// do some post processing of the item
 		processItem(item);
 
 		return true;
 	}
 
+	/**
+	 * Records element start or attribute for the cache
+	 * @param tag element tag to record element start, null to record an attribute
+	 * @param key attribute key
+	 * @param value attribute value
+	 */
+	protected void record(String tag, String key, String value) {
+		if(recorder == null) {
+			return;
+		}
+		try {
+			if(tag != null) {
+				recorder.startElement(tag);
+			} else {
+				recorder.attribute(key, value);
+			}
+		} catch (IOException e) {
+			recorder = null; // stop recording, file will not be cached
+		}
+	}
+
+	/**
+	 * Records element end for the cache
+	 * @param text element text or null if element has no text
+	 */
+	protected void recordEnd(String text) {
+		if(recorder == null) {
+			return;
+		}
+		try {
+			recorder.endElement(text);
+		} catch (IOException e) {
+			recorder = null;
+		}
+	}
+
 	/**
 	 * Process the item just created
 	 * @param item item just created
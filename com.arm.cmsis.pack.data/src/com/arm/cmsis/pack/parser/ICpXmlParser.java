@@ -59,6 +59,23 @@ public interface ICpXmlParser extends ICpItemFactory {
 	 */
 	int getWarningCount();
 
+	/**
+	 * Returns cache used to skip parsing of unchanged files
+	 * @return CpPackCache or null if no cache is used, default implementation returns null
+	 */
+	default CpPackCache getCache() {
+		return null;
+	}
+
+	/**
+	 * Sets cache to skip parsing of unchanged files, parsed files are added to the cache.
+	 * Default implementation does nothing: the parser does not support caching
+	 * @param cache CpPackCache to use, null to parse all files
+	 */
+	default void setCache(CpPackCache cache) {
+		// caching is not supported
+	}
+
 	/**
 	 * Sets XML tags to ignore during parsing
 	 * @param ignoreTags set of tags to ignore
@@ -0,0 +1,86 @@
+/*******************************************************************************
+* Copyright (c) 2015 ARM Ltd. and others
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* ARM Ltd and ARM Germany GmbH - Initial API and implementation
+*******************************************************************************/
+
+package com.arm.cmsis.pack.parser;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import com.arm.cmsis.pack.data.CpLazyPack;
+import com.arm.cmsis.pack.data.ICpItem;
+import com.arm.cmsis.pack.events.IRteEventProxy;
+
+/**
+ * Class to parse pdsc file header only: creates CpLazyPack with top-level elements except content sections
+ * (components, conditions, apis, ...) that are skipped and loaded by the pack on demand.
+ * Devices, boards and examples are read, they are needed to build device, board and example trees.
+ */
+public class PdscHeaderParser extends PdscStreamParser {
+
+	protected boolean bFallback = false; // DOM fallback reads entire content
+	protected IRteEventProxy rteEventProxy = null; // passed to created packs to report content loading errors
+
+	public PdscHeaderParser() {
+	}
+
+	/**
+	 * Sets event proxy that created packs use to report errors of loading their full content
+	 * @param rteEventProxy IRteEventProxy, can be null
+	 */
+	public void setRteEventProxy(IRteEventProxy rteEventProxy) {
+		this.rteEventProxy = rteEventProxy;
+	}
+
+	@Override
+	public ICpItem createRootItem(String tag) {
+		if(bFallback || !isStreamingUsed()) {
+			return super.createRootItem(tag);
+		}
+		CpLazyPack pack = new CpLazyPack(tag, xmlFile);
+		pack.setCache(cache);
+		pack.setRteEventProxy(rteEventProxy);
+		return pack;
+	}
+
+	@Override
+	protected boolean isCacheUsed() {
+		return false; // cache contains full content only
+	}
+
+	@Override
+	protected boolean isStreamingUsed() {
+		return getInputFactory() != null; // header is never validated
+	}
+
+	@Override
+	protected ICpItem parseXmlFile() {
+		bFallback = false;
+		return super.parseXmlFile();
+	}
+
+	@Override
+	protected void resetForFallback() {
+		super.resetForFallback();
+		bFallback = true;
+	}
+
+	@Override
+	protected boolean parseStreamElement(XMLStreamReader reader, ICpItem parent) throws XMLStreamException {
+		if(parent != null && parent == rootItem && rootItem instanceof CpLazyPack) {
+			String tag = getQualifiedName(reader.getPrefix(), reader.getLocalName());
+			if(CpLazyPack.CONTENT_TAGS.contains(tag)) {
+				skipElement(reader);
+				return true;
+			}
+		}
+		return super.parseStreamElement(reader, parent);
+	}
+}
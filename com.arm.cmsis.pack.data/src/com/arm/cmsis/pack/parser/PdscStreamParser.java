@@ -0,0 +1,282 @@
+/*******************************************************************************
+* Copyright (c) 2015 ARM Ltd. and others
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* ARM Ltd and ARM Germany GmbH - Initial API and implementation
+*******************************************************************************/
+
+package com.arm.cmsis.pack.parser;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import com.arm.cmsis.pack.data.ICpItem;
+
+/**
+ * Class to parse pdsc files using StAX: creates ICpItem objects directly from stream events without building DOM.
+ * <p>
+ * The callback order (createItem, attributes, addChild, children and text, processItem) is the same as in DOM-based parsing.
+ * Falls back to DOM parsing if schema validation is requested or the stream cannot be parsed,
+ * the latter produces the usual error messages.
+ * </p>
+ */
+public class PdscStreamParser extends PdscParser {
+
+	/**
+	 * JDK StAX property to report CDATA sections as CDATA events: otherwise they are reported as characters
+	 */
+	public static final String REPORT_CDATA_EVENT = "http://java.sun.com/xml/stream/properties/report-cdata-event"; //$NON-NLS-1$
+
+	private XMLInputFactory inputFactory = null;
+
+	public PdscStreamParser() {
+	}
+
+	public PdscStreamParser(String xsdFile) {
+		super(xsdFile);
+	}
+
+	/**
+	 * Checks if stream parsing can be used: schema validation requires DOM,
+	 * the StAX implementation must report CDATA sections separately to keep DOM text node rules
+	 * @return true if streaming is used
+	 */
+	protected boolean isStreamingUsed() {
+		return (xsdFile == null || xsdFile.isEmpty()) && getInputFactory() != null;
+	}
+
+	/**
+	 * Returns StAX input factory, creates it if needed
+	 * @return XMLInputFactory or null if the StAX implementation cannot report CDATA events
+	 */
+	protected XMLInputFactory getInputFactory() {
+		if(inputFactory == null) {
+			XMLInputFactory factory = XMLInputFactory.newInstance();
+			if(!factory.isPropertySupported(REPORT_CDATA_EVENT)) {
+				return null;
+			}
+			factory.setProperty(REPORT_CDATA_EVENT, Boolean.TRUE);
+			factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+			factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+			factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+			factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+			inputFactory = factory;
+		}
+		return inputFactory;
+	}
+
+	@Override
+	protected ICpItem parseXmlFile() {
+		if(!isStreamingUsed()) {
+			return super.parseXmlFile();
+		}
+		try (InputStream is = new FileInputStream(xmlFile)) {
+			XMLStreamReader reader = getInputFactory().createXMLStreamReader(is);
+			try {
+				ICpItem item = parseStream(reader);
+				if(item != null) {
+					return item;
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException | IOException e) {
+			// fall through to DOM parsing to get errors reported
+		}
+		resetForFallback();
+		return super.parseXmlFile();
+	}
+
+	@Override
+	public ICpItem parseXmlString(String xml) {
+		if(!isStreamingUsed()) {
+			return super.parseXmlString(xml);
+		}
+		clear();
+		this.xmlString = xml;
+		try (Reader sr = new StringReader(xml)) {
+			XMLStreamReader reader = getInputFactory().createXMLStreamReader(sr);
+			try {
+				ICpItem item = parseStream(reader);
+				if(item != null) {
+					return item;
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException | IOException e) {
+			// fall through to DOM parsing to get errors reported
+		}
+		return super.parseXmlString(xml);
+	}
+
+	/**
+	 * Discards partly created items and recorded data before falling back to DOM parsing
+	 */
+	protected void resetForFallback() {
+		rootItem = null;
+		if(recorder != null) {
+			recorder = new CpPackCache.Recorder();
+		}
+	}
+
+	/**
+	 * Parses XML stream
+	 * @param reader XMLStreamReader positioned at the document start
+	 * @return root ICpItem or null if parsing failed
+	 * @throws XMLStreamException in case of XML errors
+	 */
+	protected ICpItem parseStream(XMLStreamReader reader) throws XMLStreamException {
+		while(reader.hasNext()) {
+			if(reader.next() == XMLStreamConstants.START_ELEMENT) {
+				if(parseStreamElement(reader, null)) {
+					return rootItem;
+				}
+				return null;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Parses single element: creates child ICpItem, adds it to parent and processes element content
+	 * @param reader XMLStreamReader positioned at element start
+	 * @param parent parent ICpItem
+	 * @return true if successful
+	 * @throws XMLStreamException in case of XML errors
+	 */
+	protected boolean parseStreamElement(XMLStreamReader reader, ICpItem parent) throws XMLStreamException {
+		String tag = getQualifiedName(reader.getPrefix(), reader.getLocalName());
+		if (isTagIgnored(tag)) {
+			skipElement(reader);
+			return true; // no further processing
+		}
+		ICpItem item = createItem(parent, tag);
+		if(item == null) {
+			return false;
+		}
+		record(tag, null, null);
+
+		// process namespace declarations and attributes the same way as DOM does
+		for(int i = 0; i < reader.getNamespaceCount(); i++) {
+			String prefix = reader.getNamespacePrefix(i);
+			String key = (prefix == null || prefix.isEmpty()) ? "xmlns" : "xmlns:" + prefix; //$NON-NLS-1$ //$NON-NLS-2$
+			setAttribute(item, key, reader.getNamespaceURI(i));
+		}
+		for(int i = 0; i < reader.getAttributeCount(); i++) {
+			String key = getQualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i));
+			setAttribute(item, key, reader.getAttributeValue(i));
+		}
+
+		// add child item here since parent implementation can query item attributes
+		if(parent != null) {
+			parent.addChild(item);
+		}
+
+		// insert children and text, every text node (sequence of character events) replaces the text,
+		// CDATA sections are not text nodes in DOM: they only end the current one
+		String text = null;
+		StringBuilder textNode = null;
+		while(reader.hasNext()) {
+			int event = reader.next();
+			switch(event) {
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.SPACE:
+				if(textNode == null) {
+					textNode = new StringBuilder();
+				}
+				textNode.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+				break;
+			case XMLStreamConstants.START_ELEMENT:
+			case XMLStreamConstants.END_ELEMENT:
+			case XMLStreamConstants.COMMENT:
+			case XMLStreamConstants.PROCESSING_INSTRUCTION:
+			case XMLStreamConstants.CDATA:
+				if(textNode != null) {
+					text = textNode.toString().trim();
+					item.setText(text);
+					textNode = null;
+				}
+				if(event == XMLStreamConstants.START_ELEMENT) {
+					if (!parseStreamElement(reader, item)) {
+						return false;
+					}
+				} else if(event == XMLStreamConstants.END_ELEMENT) {
+					recordEnd(text);
+					// do some post processing of the item
+					processItem(item);
+					return true;
+				}
+				break;
+			default:
+				break;
+			}
+		}
+		return false; // unexpected end of document
+	}
+
+	/**
+	 * Adjusts and sets attribute value to the item
+	 * @param item ICpItem to set attribute to
+	 * @param key attribute key
+	 * @param value attribute value
+	 */
+	protected void setAttribute(ICpItem item, String key, String value) {
+		if (key == null || value == null) {
+			return;
+		}
+		key = key.trim();
+		if (key.isEmpty()) {
+			return;
+		}
+		value = adjustAttributeValue(key, value.trim());
+		item.attributes().setAttribute(key, value);
+		record(null, key, value);
+	}
+
+	/**
+	 * Skips current element including its content
+	 * @param reader XMLStreamReader positioned at element start
+	 * @return true if skipped element contains child elements
+	 * @throws XMLStreamException in case of XML errors
+	 */
+	protected boolean skipElement(XMLStreamReader reader) throws XMLStreamException {
+		boolean hasChildElements = false;
+		int depth = 1;
+		while(depth > 0 && reader.hasNext()) {
+			int event = reader.next();
+			if(event == XMLStreamConstants.START_ELEMENT) {
+				hasChildElements = true;
+				depth++;
+			} else if(event == XMLStreamConstants.END_ELEMENT) {
+				depth--;
+			}
+		}
+		return hasChildElements;
+	}
+
+	/**
+	 * Returns qualified XML name
+	 * @param prefix namespace prefix, can be null or empty
+	 * @param localName local name
+	 * @return "prefix:localName" or localName if prefix is empty
+	 */
+	protected static String getQualifiedName(String prefix, String localName) {
+		if(prefix == null || prefix.isEmpty()) {
+			return localName;
+		}
+		return prefix + ':' + localName;
+	}
+}
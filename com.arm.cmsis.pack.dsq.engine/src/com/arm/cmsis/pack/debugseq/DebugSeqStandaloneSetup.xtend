@@ -3,13 +3,27 @@
  */
 package com.arm.cmsis.pack.debugseq
 
+import com.google.inject.Injector
 
 /**
  * Initialization support for running Xtext languages without Equinox extension registry.
  */
 class DebugSeqStandaloneSetup extends DebugSeqStandaloneSetupGenerated {
 
+	static Injector sharedInjector
+
 	def static void doSetup() {
 		new DebugSeqStandaloneSetup().createInjectorAndDoEMFRegistration()
 	}
+
+	/**
+	 * Returns injector shared by all debug sequence engines, creates it and does EMF registration once
+	 * @return Injector
+	 */
+	def static synchronized Injector getSharedInjector() {
+		if (sharedInjector === null) {
+			sharedInjector = new DebugSeqStandaloneSetup().createInjectorAndDoEMFRegistration()
+		}
+		sharedInjector
+	}
 }
@@ -0,0 +1,416 @@
+/*******************************************************************************
+* Copyright (c) 2016 ARM Ltd. and others
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* ARM Ltd and ARM Germany GmbH - Initial API and implementation
+*******************************************************************************/
+
+package com.arm.cmsis.pack.debugseq.engine
+
+import static extension com.arm.cmsis.pack.debugseq.engine.DebugSeqSymbolTable.*
+import static extension com.arm.cmsis.pack.debugseq.util.DebugSeqUtil.*
+
+import com.arm.cmsis.pack.debugseq.debugSeq.And
+import com.arm.cmsis.pack.debugseq.debugSeq.Assignment
+import com.arm.cmsis.pack.debugseq.debugSeq.BitAnd
+import com.arm.cmsis.pack.debugseq.debugSeq.BitNot
+import com.arm.cmsis.pack.debugseq.debugSeq.BitOr
+import com.arm.cmsis.pack.debugseq.debugSeq.BitXor
+import com.arm.cmsis.pack.debugseq.debugSeq.Block
+import com.arm.cmsis.pack.debugseq.debugSeq.Comparison
+import com.arm.cmsis.pack.debugseq.debugSeq.DapDelay
+import com.arm.cmsis.pack.debugseq.debugSeq.DapJtagSequence
+import com.arm.cmsis.pack.debugseq.debugSeq.DapSwjClock
+import com.arm.cmsis.pack.debugseq.debugSeq.DapSwjPins
+import com.arm.cmsis.pack.debugseq.debugSeq.DapSwjSequence
+import com.arm.cmsis.pack.debugseq.debugSeq.DapWriteABORT
+import com.arm.cmsis.pack.debugseq.debugSeq.Div
+import com.arm.cmsis.pack.debugseq.debugSeq.Equality
+import com.arm.cmsis.pack.debugseq.debugSeq.Expression
+import com.arm.cmsis.pack.debugseq.debugSeq.IntConstant
+import com.arm.cmsis.pack.debugseq.debugSeq.LoadDebugInfo
+import com.arm.cmsis.pack.debugseq.debugSeq.Message
+import com.arm.cmsis.pack.debugseq.debugSeq.Minus
+import com.arm.cmsis.pack.debugseq.debugSeq.Mul
+import com.arm.cmsis.pack.debugseq.debugSeq.Not
+import com.arm.cmsis.pack.debugseq.debugSeq.Or
+import com.arm.cmsis.pack.debugseq.debugSeq.Plus
+import com.arm.cmsis.pack.debugseq.debugSeq.Read16
+import com.arm.cmsis.pack.debugseq.debugSeq.Read32
+import com.arm.cmsis.pack.debugseq.debugSeq.Read64
+import com.arm.cmsis.pack.debugseq.debugSeq.Read8
+import com.arm.cmsis.pack.debugseq.debugSeq.ReadAP
+import com.arm.cmsis.pack.debugseq.debugSeq.ReadDP
+import com.arm.cmsis.pack.debugseq.debugSeq.Rem
+import com.arm.cmsis.pack.debugseq.debugSeq.Shift
+import com.arm.cmsis.pack.debugseq.debugSeq.Statement
+import com.arm.cmsis.pack.debugseq.debugSeq.StringConstant
+import com.arm.cmsis.pack.debugseq.debugSeq.Ternary
+import com.arm.cmsis.pack.debugseq.debugSeq.VariableDeclaration
+import com.arm.cmsis.pack.debugseq.debugSeq.VariableRef
+import com.arm.cmsis.pack.debugseq.debugSeq.Write16
+import com.arm.cmsis.pack.debugseq.debugSeq.Write32
+import com.arm.cmsis.pack.debugseq.debugSeq.Write64
+import com.arm.cmsis.pack.debugseq.debugSeq.Write8
+import com.arm.cmsis.pack.debugseq.debugSeq.WriteAP
+import com.arm.cmsis.pack.debugseq.debugSeq.WriteDP
+import com.arm.cmsis.pack.dsq.DsqException
+import com.arm.cmsis.pack.dsq.IDsqClient
+import com.arm.cmsis.pack.dsq.IDsqCommand
+import com.arm.cmsis.pack.dsq.IDsqLogger
+import com.arm.cmsis.pack.info.ICpDeviceInfo
+import java.util.List
+import java.util.function.LongBinaryOperator
+import java.util.function.LongSupplier
+import java.util.function.LongUnaryOperator
+
+/**
+ * Executes an atomic block in a single pass.
+ * <p>
+ * The statements are evaluated once: commands are collected with their parameters, values depending on command results
+ * are recorded as nodes of a dataflow plan instead of being computed.
+ * The validator ensures that command parameters do not depend on results of other commands in the block,
+ * therefore all commands can be sent to the client at once.
+ * Afterwards the plan is applied in program order: deferred variable writes are stored and the statements are logged,
+ * the nodes are computed from the command results when their values are needed.
+ * </p>
+ */
+class DebugSeqAtomicBlock {
+
+	/**
+	 * Value depending on command results, computed once when it is needed
+	 */
+	static class Node {
+		val LongSupplier function
+		boolean computed
+		long result
+
+		new(LongSupplier function) {
+			this.function = function
+		}
+
+		def long get() {
+			if (!computed) {
+				result = function.getAsLong
+				computed = true
+			}
+			result
+		}
+	}
+
+	val DebugSeqEngine engine
+	val long[][] frames
+	val IDsqClient client
+	val IDsqLogger logger
+	val ICpDeviceInfo deviceInfo
+
+	val List<IDsqCommand> commands = newArrayList
+	val List<Runnable> steps = newArrayList // deferred writes and logs in program order
+	val Object[][] deferred // nodes of variables waiting for command results, indexed like frames
+	int pure // > 0 while evaluating operands of a condition depending on command results
+
+	/**
+	 * Creates executor for one atomic block execution
+	 * @param engine DebugSeqEngine creating the commands
+	 * @param frames symbol frames of the engine indexed by slot depth
+	 * @param client IDsqClient executing the commands
+	 * @param logger IDsqLogger, may be null
+	 * @param deviceInfo ICpDeviceInfo to resolve file paths
+	 */
+	new(DebugSeqEngine engine, long[][] frames, IDsqClient client, IDsqLogger logger, ICpDeviceInfo deviceInfo) {
+		this.engine = engine
+		this.frames = frames
+		this.client = client
+		this.logger = logger
+		this.deviceInfo = deviceInfo
+		this.deferred = newArrayOfSize(frames.length)
+	}
+
+	/**
+	 * Executes the atomic block
+	 * @param block Block to execute
+	 * @return value of the last statement
+	 * @throws DsqException if a command parameter or a condition with side effects depends on a command result
+	 */
+	def long execute(Block block) throws DsqException {
+		if (logger !== null)
+			logger.logBlockStart(true, block.info)
+		var Object result = 0L
+		for (stmt : block.statements) {
+			val value = evaluate(stmt)
+			if (logger !== null) {
+				steps.add([| engine.log(logger, stmt, value.resolve)])
+			}
+			result = value
+		}
+
+		// Execute the Debug Access Commands
+		client.execute(commands, true)
+
+		for (step : steps) {
+			step.run
+		}
+		if (logger !== null)
+			logger.logBlockEnd()
+		result.resolve
+	}
+
+	def private Object evaluate(Statement stmt) {
+		if (stmt instanceof VariableDeclaration) {
+			val slot = stmt.slot
+			store(slot.depth, slot.index, stmt.value.evaluate.number)
+		} else {
+			evaluate(stmt as Expression)
+		}
+	}
+
+	/**
+	 * Evaluates expression
+	 * @return Long or String value, Node if the value depends on command results
+	 */
+	def private Object evaluate(Expression e) {
+		switch (e) {
+			IntConstant: e.value
+			StringConstant: e.value
+			VariableRef: {
+				val slot = e.slot
+				load(slot.depth, slot.index)
+			}
+			Not: unary(e.expression.evaluate, [v | if (v == 0) 1L else 0L])
+			BitNot: unary(e.expression.evaluate, [v | v.bitwiseNot])
+			Assignment: assign(e)
+			Ternary: {
+				val condition = e.left.evaluate
+				if (!condition.isDeferred) {
+					if (condition.toLong != 0) e.exp1.evaluate else e.exp2.evaluate
+				} else {
+					val exp1 = e.exp1.evaluatePure
+					val exp2 = e.exp2.evaluatePure
+					new Node([| if (condition.resolve != 0) exp1.resolve else exp2.resolve])
+				}
+			}
+			Or: logical(e.left, e.right, true)
+			And: logical(e.left, e.right, false)
+			BitOr: binary(e.left.evaluate, e.right.evaluate, [a, b | a.bitwiseOr(b)])
+			BitXor: binary(e.left.evaluate, e.right.evaluate, [a, b | a.bitwiseXor(b)])
+			BitAnd: binary(e.left.evaluate, e.right.evaluate, [a, b | a.bitwiseAnd(b)])
+			Equality: {
+				val equal = e.op == '=='
+				val left = e.left.evaluate
+				val right = e.right.evaluate
+				if (!left.isDeferred && !right.isDeferred) {
+					((left == right) == equal).toLong
+				} else if (left instanceof String || right instanceof String) {
+					new Node([| if ((left == right) == equal) 1L else 0L]) // a command result never equals a string
+				} else {
+					new Node([| if ((left.resolve == right.resolve) == equal) 1L else 0L])
+				}
+			}
+			Comparison: {
+				val LongBinaryOperator op = switch (e.op) {
+					case '&lt;': [a, b | if (Long.compareUnsigned(a, b) < 0) 1L else 0L]
+					case '&gt;': [a, b | if (Long.compareUnsigned(a, b) > 0) 1L else 0L]
+					case '&lt;=': [a, b | if (Long.compareUnsigned(a, b) <= 0) 1L else 0L]
+					case '&gt;=': [a, b | if (Long.compareUnsigned(a, b) >= 0) 1L else 0L]
+					default: [a, b | 0L]
+				}
+				binary(e.left.evaluate, e.right.evaluate, op)
+			}
+			Shift: {
+				val LongBinaryOperator op = switch (e.op) {
+					case '&lt;&lt;': [a, b | a << b.toInteger]
+					case '&gt;&gt;': [a, b | a >> b.toInteger]
+					default: [a, b | 0L]
+				}
+				binary(e.left.evaluate, e.right.evaluate, op)
+			}
+			Plus: binary(e.left.evaluate, e.right.evaluate, [a, b | a + b])
+			Minus: binary(e.left.evaluate, e.right.evaluate, [a, b | a - b])
+			Mul: binary(e.left.evaluate, e.right.evaluate, [a, b | a * b])
+			Div: binary(e.left.evaluate, e.right.evaluate, [a, b | Long.divideUnsigned(a, b)])
+			Rem: binary(e.left.evaluate, e.right.evaluate, [a, b | Long.remainderUnsigned(a, b)])
+			LoadDebugInfo: record(IDsqCommand.DSQ_LOAD_DEBUG_INFO, #[], #[deviceInfo.getAbsolutePath(e.path)])
+			Message: {
+				val parameters = <Object>newArrayList
+				for (parameter : e.parameters) {
+					parameters += (parameter as Expression).evaluate.concrete
+				}
+				val message = e.format.formatWithValues(parameters)
+				record(IDsqCommand.DSQ_MESSAGE, #[e.type.evaluate.concrete.toLong], #[message])
+			}
+			Read8: command(IDsqCommand.DSQ_READ_8, e.addr)
+			Read16: command(IDsqCommand.DSQ_READ_16, e.addr)
+			Read32: command(IDsqCommand.DSQ_READ_32, e.addr)
+			Read64: command(IDsqCommand.DSQ_READ_64, e.addr)
+			ReadAP: command(IDsqCommand.DSQ_READ_AP, e.addr)
+			ReadDP: command(IDsqCommand.DSQ_READ_DP, e.addr)
+			Write8: command(IDsqCommand.DSQ_WRITE_8, e.addr, e.^val)
+			Write16: command(IDsqCommand.DSQ_WRITE_16, e.addr, e.^val)
+			Write32: command(IDsqCommand.DSQ_WRITE_32, e.addr, e.^val)
+			Write64: command(IDsqCommand.DSQ_WRITE_64, e.addr, e.^val)
+			WriteAP: command(IDsqCommand.DSQ_WRITE_AP, e.addr, e.^val)
+			WriteDP: command(IDsqCommand.DSQ_WRITE_DP, e.addr, e.^val)
+			DapDelay: command(IDsqCommand.DSQ_DAP_DELAY, e.delay)
+			DapWriteABORT: command(IDsqCommand.DSQ_DAP_WRITE_ABORT, e.value)
+			DapSwjPins: command(IDsqCommand.DSQ_DAP_SWJ_PINS, e.pinout, e.pinselect, e.pinwait)
+			DapSwjClock: command(IDsqCommand.DSQ_DAP_SWJ_CLOCK, e.value)
+			DapSwjSequence: command(IDsqCommand.DSQ_DAP_SWJ_SEQUENCE, e.cnt, e.^val)
+			DapJtagSequence: command(IDsqCommand.DSQ_DAP_JTAG_SEQUENCE, e.cnt, e.tms, e.tdi)
+			default: engine.interpret(e) // sequence calls and queries are not allowed in atomic blocks
+		}
+	}
+
+	def private Object assign(Assignment e) {
+		val slot = (e.left as VariableRef).slot
+		val depth = slot.depth
+		val index = slot.index
+		val i = load(depth, index)
+		val v = e.right.evaluate.number
+		val LongBinaryOperator op = switch (e.op) {
+			case '+=': [a, b | a + b]
+			case '-=': [a, b | a - b]
+			case '*=': [a, b | a * b]
+			case '/=': [a, b | Long.divideUnsigned(a, b)]
+			case '%=': [a, b | Long.remainderUnsigned(a, b)]
+			case '&lt;&lt;=': [a, b | a << b.toInteger]
+			case '&gt;&gt;=': [a, b | a >> b.toInteger]
+			case '&amp;=': [a, b | a.bitwiseAnd(b)]
+			case '^=': [a, b | a.bitwiseXor(b)]
+			case '|=': [a, b | a.bitwiseOr(b)]
+			default: null
+		}
+		if (e.op == '=') {
+			store(depth, index, v)
+		} else if (op !== null) {
+			store(depth, index, binary(i, v, op))
+		} else {
+			0L
+		}
+	}
+
+	/**
+	 * Evaluates || or &amp;&amp;, the right operand is skipped if the left one decides the result
+	 */
+	def private Object logical(Expression leftExp, Expression rightExp, boolean isOr) {
+		val left = leftExp.evaluate
+		if (!left.isDeferred) {
+			if ((left.toLong != 0) == isOr) {
+				return if (isOr) 1L else 0L
+			}
+			return unary(rightExp.evaluate, [v | if (v != 0) 1L else 0L])
+		}
+		val right = rightExp.evaluatePure
+		if (isOr) {
+			new Node([| if (left.resolve != 0 || right.resolve != 0) 1L else 0L])
+		} else {
+			new Node([| if (left.resolve != 0 && right.resolve != 0) 1L else 0L])
+		}
+	}
+
+	/**
+	 * Evaluates operand of a condition depending on command results.
+	 * The operand must not have side effects, its value is deferred and computed only if the condition selects it
+	 */
+	def private Object evaluatePure(Expression e) {
+		if (e.hasSideEffects || e.eAllContents.filter(Expression).exists[hasSideEffects]) {
+			throw new DsqException("Expression with side effects depends on a command result in an atomic block")
+		}
+		pure++
+		try {
+			e.evaluate
+		} finally {
+			pure--
+		}
+	}
+
+	def private static boolean hasSideEffects(Expression e) {
+		switch (e) {
+			IntConstant, StringConstant, VariableRef, Not, BitNot, Ternary, Or, And, BitOr, BitXor, BitAnd,
+			Equality, Comparison, Shift, Plus, Minus, Mul, Div, Rem: false
+			default: true
+		}
+	}
+
+	def private Object unary(Object value, LongUnaryOperator op) {
+		if (value.isDeferred) {
+			new Node([| op.applyAsLong(value.resolve)])
+		} else {
+			op.applyAsLong(value.toLong)
+		}
+	}
+
+	def private Object binary(Object left, Object right, LongBinaryOperator op) {
+		if (left.isDeferred || right.isDeferred) {
+			new Node([| op.applyAsLong(left.resolve, right.resolve)])
+		} else {
+			op.applyAsLong(left.toLong, right.toLong)
+		}
+	}
+
+	def private Object command(String cmdName, Expression... params) {
+		val values = <Long>newArrayList
+		for (p : params) {
+			values += p.evaluate.concrete.toLong
+		}
+		record(cmdName, values, null)
+	}
+
+	def private Object record(String cmdName, List<Long> params, List<String> strings) {
+		val command = engine.createCommand(cmdName, params, strings)
+		commands += command
+		new Node([| command.output])
+	}
+
+	def private boolean isDeferred(Object value) {
+		pure > 0 || value instanceof Node
+	}
+
+	def private Object load(int depth, int index) {
+		val nodes = deferred.get(depth)
+		val node = if (nodes === null) null else nodes.get(index)
+		if (node !== null) node else frames.get(depth).get(index)
+	}
+
+	def private Object store(int depth, int index, Object value) {
+		var nodes = deferred.get(depth)
+		if (value instanceof Node) {
+			if (nodes === null) {
+				nodes = newArrayOfSize(frames.get(depth).length)
+				deferred.set(depth, nodes)
+			}
+			nodes.set(index, value)
+			val node = value as Node
+			steps.add([| frames.get(depth).set(index, node.get)])
+		} else {
+			val v = value.toLong
+			frames.get(depth).set(index, v)
+			if (nodes !== null && nodes.get(index) !== null) {
+				nodes.set(index, null)
+				steps.add([| frames.get(depth).set(index, v)]) // keep the order of writes to the variable
+			}
+		}
+		value
+	}
+
+	/**
+	 * Checks that command parameter does not depend on command results
+	 */
+	def private static Object concrete(Object value) {
+		if (value instanceof Node) {
+			throw new DsqException("Nested command execution is not allowed in an atomic block")
+		}
+		value
+	}
+
+	def private static Object number(Object value) {
+		if (value instanceof Node) value else value.toLong
+	}
+
+	def private static long resolve(Object value) {
+		if (value instanceof Node) value.get else value.toLong
+	}
+}
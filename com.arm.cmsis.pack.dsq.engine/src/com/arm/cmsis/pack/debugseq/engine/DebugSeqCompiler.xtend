@@ -0,0 +1,524 @@
+/*******************************************************************************
+* Copyright (c) 2016 ARM Ltd. and others
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* ARM Ltd and ARM Germany GmbH - Initial API and implementation
+*******************************************************************************/
+
+package com.arm.cmsis.pack.debugseq.engine
+
+import static extension com.arm.cmsis.pack.debugseq.engine.DebugSeqSymbolTable.*
+import static extension com.arm.cmsis.pack.debugseq.util.DebugSeqUtil.*
+
+import com.arm.cmsis.pack.debugseq.debugSeq.And
+import com.arm.cmsis.pack.debugseq.debugSeq.Assignment
+import com.arm.cmsis.pack.debugseq.debugSeq.BitAnd
+import com.arm.cmsis.pack.debugseq.debugSeq.BitNot
+import com.arm.cmsis.pack.debugseq.debugSeq.BitOr
+import com.arm.cmsis.pack.debugseq.debugSeq.BitXor
+import com.arm.cmsis.pack.debugseq.debugSeq.Block
+import com.arm.cmsis.pack.debugseq.debugSeq.CodeBlock
+import com.arm.cmsis.pack.debugseq.debugSeq.Comparison
+import com.arm.cmsis.pack.debugseq.debugSeq.Control
+import com.arm.cmsis.pack.debugseq.debugSeq.DapDelay
+import com.arm.cmsis.pack.debugseq.debugSeq.DapJtagSequence
+import com.arm.cmsis.pack.debugseq.debugSeq.DapSwjClock
+import com.arm.cmsis.pack.debugseq.debugSeq.DapSwjPins
+import com.arm.cmsis.pack.debugseq.debugSeq.DapSwjSequence
+import com.arm.cmsis.pack.debugseq.debugSeq.DapWriteABORT
+import com.arm.cmsis.pack.debugseq.debugSeq.Div
+import com.arm.cmsis.pack.debugseq.debugSeq.Equality
+import com.arm.cmsis.pack.debugseq.debugSeq.Expression
+import com.arm.cmsis.pack.debugseq.debugSeq.IntConstant
+import com.arm.cmsis.pack.debugseq.debugSeq.LoadDebugInfo
+import com.arm.cmsis.pack.debugseq.debugSeq.Message
+import com.arm.cmsis.pack.debugseq.debugSeq.Minus
+import com.arm.cmsis.pack.debugseq.debugSeq.Mul
+import com.arm.cmsis.pack.debugseq.debugSeq.Not
+import com.arm.cmsis.pack.debugseq.debugSeq.Or
+import com.arm.cmsis.pack.debugseq.debugSeq.Plus
+import com.arm.cmsis.pack.debugseq.debugSeq.Query
+import com.arm.cmsis.pack.debugseq.debugSeq.QueryValue
+import com.arm.cmsis.pack.debugseq.debugSeq.Read16
+import com.arm.cmsis.pack.debugseq.debugSeq.Read32
+import com.arm.cmsis.pack.debugseq.debugSeq.Read64
+import com.arm.cmsis.pack.debugseq.debugSeq.Read8
+import com.arm.cmsis.pack.debugseq.debugSeq.ReadAP
+import com.arm.cmsis.pack.debugseq.debugSeq.ReadDP
+import com.arm.cmsis.pack.debugseq.debugSeq.Rem
+import com.arm.cmsis.pack.debugseq.debugSeq.Sequence
+import com.arm.cmsis.pack.debugseq.debugSeq.SequenceCall
+import com.arm.cmsis.pack.debugseq.debugSeq.Shift
+import com.arm.cmsis.pack.debugseq.debugSeq.Statement
+import com.arm.cmsis.pack.debugseq.debugSeq.StringConstant
+import com.arm.cmsis.pack.debugseq.debugSeq.Ternary
+import com.arm.cmsis.pack.debugseq.debugSeq.VariableDeclaration
+import com.arm.cmsis.pack.debugseq.debugSeq.VariableRef
+import com.arm.cmsis.pack.debugseq.debugSeq.Write16
+import com.arm.cmsis.pack.debugseq.debugSeq.Write32
+import com.arm.cmsis.pack.debugseq.debugSeq.Write64
+import com.arm.cmsis.pack.debugseq.debugSeq.Write8
+import com.arm.cmsis.pack.debugseq.debugSeq.WriteAP
+import com.arm.cmsis.pack.debugseq.debugSeq.WriteDP
+import com.arm.cmsis.pack.dsq.DsqException
+import com.arm.cmsis.pack.dsq.IDsqClient
+import com.arm.cmsis.pack.dsq.IDsqCommand
+import com.arm.cmsis.pack.dsq.IDsqLogger
+import com.arm.cmsis.pack.info.ICpDeviceInfo
+import java.util.HashMap
+import java.util.Map
+
+/**
+ * Compiles sequences of a validated DebugSeqModel to trees of pre-bound closures.
+ * <p>
+ * Operators, variable slots, command names and called sequences are bound once when a sequence is compiled,
+ * the compiled tree does not dispatch on model elements while it runs.
+ * It has the semantics of the DebugSeqEngine interpreter and uses the engine for commands, atomic blocks, logging and scopes.
+ * A sequence is compiled on its first call, compiled sequences are kept for the lifetime of the engine.
+ * </p>
+ */
+class DebugSeqCompiler {
+
+	/**
+	 * Compiled expression, statement or code block
+	 */
+	interface Code {
+		def long run() throws DsqException
+	}
+
+	/**
+	 * Compiled expression that may evaluate to a string
+	 */
+	interface Value {
+		def Object get() throws DsqException
+	}
+
+	val DebugSeqEngine engine
+	val long[][] frames
+	val IDsqClient client
+	val IDsqLogger logger
+	val ICpDeviceInfo deviceInfo
+	val Map<Sequence, Code> sequences = new HashMap
+
+	/**
+	 * Creates compiler for the engine
+	 * @param engine DebugSeqEngine executing the commands
+	 * @param frames symbol frames of the engine indexed by slot depth
+	 * @param client IDsqClient answering queries
+	 * @param logger IDsqLogger, may be null
+	 * @param deviceInfo ICpDeviceInfo to resolve file paths
+	 */
+	new(DebugSeqEngine engine, long[][] frames, IDsqClient client, IDsqLogger logger, ICpDeviceInfo deviceInfo) {
+		this.engine = engine
+		this.frames = frames
+		this.client = client
+		this.logger = logger
+		this.deviceInfo = deviceInfo
+	}
+
+	/**
+	 * Executes the sequence, compiles it on the first call
+	 * @param seq Sequence to execute
+	 * @throws DsqException if execution fails
+	 */
+	def void execute(Sequence seq) throws DsqException {
+		seq.compiled.run
+	}
+
+	def private Code getCompiled(Sequence seq) {
+		var code = sequences.get(seq)
+		if (code === null) {
+			code = compileSequence(seq)
+			sequences.put(seq, code)
+		}
+		code
+	}
+
+	def private Code compileSequence(Sequence seq) {
+		val name = seq.name
+		val Code[] codeblocks = seq.codeblocks.map[compileCodeBlock]
+		[|
+			if (logger !== null)
+				logger.logSeqStart(name)
+			val callerFrame = engine.enterScope(seq)
+			for (codeblock : codeblocks) {
+				codeblock.run
+			}
+			engine.exitScope(callerFrame)
+			if (logger !== null)
+				logger.logSeqEnd(name)
+			0L
+		]
+	}
+
+	def private Code compileCodeBlock(CodeBlock codeblock) {
+		switch (codeblock) {
+			Block: compileBlock(codeblock)
+			Control: compileControl(codeblock)
+			default: [| 0L]
+		}
+	}
+
+	// a block returns the value of the last statement
+	def private Code compileBlock(Block block) {
+		val Code[] statements = block.statements.map[compileStatement]
+		if (block.atomic !== 0) {
+			return [| engine.executeAtomicBlock(block)]
+		}
+		val info = block.info
+		[|
+			if (logger !== null)
+				logger.logBlockStart(false, info)
+			val result = statements.runAll
+			if (logger !== null)
+				logger.logBlockEnd()
+			result
+		]
+	}
+
+	// a control returns the value of the last block
+	def private Code compileControl(Control control) {
+		val ifStatement = control.^if
+		val Code ifCode = if (ifStatement === null) null else compileCondition(ifStatement, false)
+		val whileStatement = control.^while
+		val Code whileCode = if (whileStatement === null) null else compileCondition(whileStatement, true)
+		val Code[] codeblocks = control.codeblocks.map[compileCodeBlock]
+		val timeout = if (control.timeout == 0) Long::MAX_VALUE else control.timeout // 0 never times out
+		val info = control.info
+		[|
+			var result = 0L
+			if (logger !== null)
+				logger.logContorlStart(info)
+			if (ifCode === null || ifCode.run != 0) {
+				if (whileCode === null) {
+					result = codeblocks.runAll
+				} else {
+					var runningTime = 0L
+					val startTime = System.nanoTime
+					while (whileCode.run != 0 && runningTime < timeout) {
+						result = codeblocks.runAll
+						runningTime = (System.nanoTime - startTime) / 1000
+					}
+				}
+			}
+			if (logger !== null)
+				logger.logControlEnd()
+			result
+		]
+	}
+
+	def private Code compileCondition(Expression condition, boolean isWhile) {
+		val code = compile(condition)
+		if (logger === null) {
+			return code
+		}
+		if (isWhile)
+			[| engine.logWhile(logger, condition, code.run)]
+		else
+			[| engine.logIf(logger, condition, code.run)]
+	}
+
+	def private Code compileStatement(Statement stmt) {
+		val Code code = if (stmt instanceof VariableDeclaration) compileDeclaration(stmt) else compile(stmt as Expression)
+		if (logger === null) {
+			return code
+		}
+		[|
+			val result = code.run
+			engine.log(logger, stmt, result)
+			result
+		]
+	}
+
+	def private Code compileDeclaration(VariableDeclaration vardecl) {
+		val value = compile(vardecl.value)
+		val slot = vardecl.slot
+		val depth = slot.depth
+		val index = slot.index
+		[| store(depth, index, value.run)]
+	}
+
+	def private Code compile(Expression e) {
+		switch (e) {
+			IntConstant: {
+				val value = e.value
+				[| value]
+			}
+			StringConstant: {
+				val value = e.value.toLong
+				[| value]
+			}
+			VariableRef: {
+				val slot = e.slot
+				val depth = slot.depth
+				val index = slot.index
+				[| frames.get(depth).get(index)]
+			}
+			Not: {
+				val expression = compile(e.expression)
+				[| if (expression.run == 0) 1L else 0L]
+			}
+			Assignment: compileAssignment(e)
+			Ternary: {
+				val condition = compile(e.left)
+				val exp1 = compile(e.exp1)
+				val exp2 = compile(e.exp2)
+				[| if (condition.run != 0) exp1.run else exp2.run]
+			}
+			Or: {
+				val left = compile(e.left)
+				val right = compile(e.right)
+				[| if (left.run != 0 || right.run != 0) 1L else 0L]
+			}
+			And: {
+				val left = compile(e.left)
+				val right = compile(e.right)
+				[| if (left.run != 0 && right.run != 0) 1L else 0L]
+			}
+			BitOr: {
+				val left = compile(e.left)
+				val right = compile(e.right)
+				[| left.run.bitwiseOr(right.run)]
+			}
+			BitXor: {
+				val left = compile(e.left)
+				val right = compile(e.right)
+				[| left.run.bitwiseXor(right.run)]
+			}
+			BitAnd: {
+				val left = compile(e.left)
+				val right = compile(e.right)
+				[| left.run.bitwiseAnd(right.run)]
+			}
+			BitNot: {
+				val expression = compile(e.expression)
+				[| expression.run.bitwiseNot]
+			}
+			Equality: compileEquality(e)
+			Comparison: compileComparison(e)
+			Shift: compileShift(e)
+			Plus: {
+				val left = compile(e.left)
+				val right = compile(e.right)
+				[| left.run + right.run]
+			}
+			Minus: {
+				val left = compile(e.left)
+				val right = compile(e.right)
+				[| left.run - right.run]
+			}
+			Mul: {
+				val left = compile(e.left)
+				val right = compile(e.right)
+				[| left.run * right.run]
+			}
+			Div: {
+				val left = compile(e.left)
+				val right = compile(e.right)
+				[| Long.divideUnsigned(left.run, right.run)]
+			}
+			Rem: {
+				val left = compile(e.left)
+				val right = compile(e.right)
+				[| Long.remainderUnsigned(left.run, right.run)]
+			}
+			SequenceCall: compileSequenceCall(e)
+			Query: {
+				val type = compile(e.type)
+				val message = e.message
+				val defaultValue = compile(e.^default)
+				[| client.query(type.run, message, defaultValue.run)]
+			}
+			QueryValue: {
+				val message = e.message
+				val defaultValue = compile(e.^default)
+				[| client.query(IDsqClient.QUERY_VALUE_TYPE, message, defaultValue.run)]
+			}
+			LoadDebugInfo: {
+				val path = e.path
+				[| engine.executeCommand(IDsqCommand.DSQ_LOAD_DEBUG_INFO, #[], #[deviceInfo.getAbsolutePath(path)])]
+			}
+			Message: compileMessage(e)
+			Read8: command(IDsqCommand.DSQ_READ_8, e.addr)
+			Read16: command(IDsqCommand.DSQ_READ_16, e.addr)
+			Read32: command(IDsqCommand.DSQ_READ_32, e.addr)
+			Read64: command(IDsqCommand.DSQ_READ_64, e.addr)
+			ReadAP: command(IDsqCommand.DSQ_READ_AP, e.addr)
+			ReadDP: command(IDsqCommand.DSQ_READ_DP, e.addr)
+			Write8: command(IDsqCommand.DSQ_WRITE_8, e.addr, e.^val)
+			Write16: command(IDsqCommand.DSQ_WRITE_16, e.addr, e.^val)
+			Write32: command(IDsqCommand.DSQ_WRITE_32, e.addr, e.^val)
+			Write64: command(IDsqCommand.DSQ_WRITE_64, e.addr, e.^val)
+			WriteAP: command(IDsqCommand.DSQ_WRITE_AP, e.addr, e.^val)
+			WriteDP: command(IDsqCommand.DSQ_WRITE_DP, e.addr, e.^val)
+			DapDelay: command(IDsqCommand.DSQ_DAP_DELAY, e.delay)
+			DapWriteABORT: command(IDsqCommand.DSQ_DAP_WRITE_ABORT, e.value)
+			DapSwjPins: command(IDsqCommand.DSQ_DAP_SWJ_PINS, e.pinout, e.pinselect, e.pinwait)
+			DapSwjClock: command(IDsqCommand.DSQ_DAP_SWJ_CLOCK, e.value)
+			DapSwjSequence: command(IDsqCommand.DSQ_DAP_SWJ_SEQUENCE, e.cnt, e.^val)
+			DapJtagSequence: command(IDsqCommand.DSQ_DAP_JTAG_SEQUENCE, e.cnt, e.tms, e.tdi)
+			default: [| 0L]
+		}
+	}
+
+	/**
+	 * Compiles expression keeping string values, used where strings are compared or formatted
+	 */
+	def private Value compileValue(Expression e) {
+		switch (e) {
+			StringConstant: {
+				val value = e.value
+				[| value]
+			}
+			Ternary: {
+				val condition = compile(e.left)
+				val exp1 = compileValue(e.exp1)
+				val exp2 = compileValue(e.exp2)
+				[| if (condition.run != 0) exp1.get else exp2.get]
+			}
+			SequenceCall: {
+				val code = compileSequenceCall(e)
+				if (e.calledSequence === null) [| code.run; null] else [| code.run]
+			}
+			default: {
+				val code = compile(e)
+				[| code.run]
+			}
+		}
+	}
+
+	/**
+	 * Checks if expression always evaluates to a number
+	 */
+	def private static boolean isNumeric(Expression e) {
+		switch (e) {
+			StringConstant, SequenceCall: false
+			Ternary: e.exp1.numeric && e.exp2.numeric
+			default: true
+		}
+	}
+
+	def private Code compileAssignment(Assignment e) {
+		val slot = (e.left as VariableRef).slot
+		val depth = slot.depth
+		val index = slot.index
+		val right = compile(e.right)
+		switch (e.op) {
+			case '=': [| store(depth, index, right.run)]
+			case '+=': [| val i = load(depth, index); store(depth, index, i + right.run)]
+			case '-=': [| val i = load(depth, index); store(depth, index, i - right.run)]
+			case '*=': [| val i = load(depth, index); store(depth, index, i * right.run)]
+			case '/=': [| val i = load(depth, index); store(depth, index, Long.divideUnsigned(i, right.run))]
+			case '%=': [| val i = load(depth, index); store(depth, index, Long.remainderUnsigned(i, right.run))]
+			case '&lt;&lt;=': [| val i = load(depth, index); store(depth, index, i << right.run.toInteger)]
+			case '&gt;&gt;=': [| val i = load(depth, index); store(depth, index, i >> right.run.toInteger)]
+			case '&amp;=': [| val i = load(depth, index); store(depth, index, i.bitwiseAnd(right.run))]
+			case '^=': [| val i = load(depth, index); store(depth, index, i.bitwiseXor(right.run))]
+			case '|=': [| val i = load(depth, index); store(depth, index, i.bitwiseOr(right.run))]
+			default: [| right.run; 0L]
+		}
+	}
+
+	def private Code compileEquality(Equality e) {
+		val equal = e.op == '=='
+		if (e.left.numeric && e.right.numeric) {
+			val left = compile(e.left)
+			val right = compile(e.right)
+			return [| if ((left.run == right.run) == equal) 1L else 0L]
+		}
+		val left = compileValue(e.left)
+		val right = compileValue(e.right)
+		[| if ((left.get == right.get) == equal) 1L else 0L]
+	}
+
+	def private Code compileComparison(Comparison e) {
+		val left = compile(e.left)
+		val right = compile(e.right)
+		switch (e.op) {
+			case '&lt;': [| if (Long.compareUnsigned(left.run, right.run) < 0) 1L else 0L]
+			case '&gt;': [| if (Long.compareUnsigned(left.run, right.run) > 0) 1L else 0L]
+			case '&lt;=': [| if (Long.compareUnsigned(left.run, right.run) <= 0) 1L else 0L]
+			case '&gt;=': [| if (Long.compareUnsigned(left.run, right.run) >= 0) 1L else 0L]
+			default: [| left.run; right.run; 0L]
+		}
+	}
+
+	def private Code compileShift(Shift e) {
+		val left = compile(e.left)
+		val right = compile(e.right)
+		switch (e.op) {
+			case '&lt;&lt;': [| left.run << right.run.toInteger]
+			case '&gt;&gt;': [| left.run >> right.run.toInteger]
+			default: [| left.run; right.run; 0L]
+		}
+	}
+
+	def private Code compileSequenceCall(SequenceCall e) {
+		val name = e.seqname
+		val seq = e.calledSequence
+		if (seq !== null) {
+			return [| seq.compiled.run] // compiled on the first call to support recursion
+		}
+		if (name.isEmptyDefaultSequence) {
+			return [| 0L]
+		}
+		[| throw new DsqException("Sequence with name '" + name + "' is undefined")]
+	}
+
+	def private static Sequence getCalledSequence(SequenceCall e) {
+		e.containingSequences.sequences.findFirst[it.name == e.seqname]
+	}
+
+	def private Code compileMessage(Message e) {
+		val type = compile(e.type)
+		val format = e.format
+		val Value[] parameters = e.parameters.map[compileValue(it as Expression)]
+		[|
+			val values = <Object>newArrayList
+			for (parameter : parameters) {
+				values += parameter.get
+			}
+			val message = format.formatWithValues(values)
+			engine.executeCommand(IDsqCommand.DSQ_MESSAGE, #[type.run], #[message])
+		]
+	}
+
+	def private Code command(String cmdName, Expression p1) {
+		val c1 = compile(p1)
+		[| engine.executeCommand(cmdName, #[c1.run], null)]
+	}
+
+	def private Code command(String cmdName, Expression p1, Expression p2) {
+		val c1 = compile(p1)
+		val c2 = compile(p2)
+		[| engine.executeCommand(cmdName, #[c1.run, c2.run], null)]
+	}
+
+	def private Code command(String cmdName, Expression p1, Expression p2, Expression p3) {
+		val c1 = compile(p1)
+		val c2 = compile(p2)
+		val c3 = compile(p3)
+		[| engine.executeCommand(cmdName, #[c1.run, c2.run, c3.run], null)]
+	}
+
+	def private long load(int depth, int index) {
+		frames.get(depth).get(index)
+	}
+
+	def private long store(int depth, int index, long value) {
+		frames.get(depth).set(index, value)
+		value
+	}
+
+	def private static long runAll(Code[] codes) {
+		var result = 0L
+		for (code : codes) {
+			result = code.run
+		}
+		result
+	}
+}
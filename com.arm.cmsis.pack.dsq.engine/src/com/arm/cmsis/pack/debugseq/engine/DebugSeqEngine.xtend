@@ -11,12 +11,10 @@
 
 package com.arm.cmsis.pack.debugseq.engine
 
+import static extension com.arm.cmsis.pack.debugseq.engine.DebugSeqSymbolTable.*
 import static extension com.arm.cmsis.pack.debugseq.util.DebugSeqUtil.*
 import static extension org.eclipse.xtext.nodemodel.util.NodeModelUtils.*
 
-import java.util.Stack
-import java.util.Map
-import java.util.HashMap
 import com.arm.cmsis.pack.info.ICpDeviceInfo
 import com.arm.cmsis.pack.debugseq.debugSeq.Expression
 import com.arm.cmsis.pack.debugseq.debugSeq.IntConstant
@@ -69,60 +67,36 @@ import com.arm.cmsis.pack.debugseq.debugSeq.Block
 import com.arm.cmsis.pack.debugseq.debugSeq.Control
 import com.arm.cmsis.pack.debugseq.debugSeq.DebugSeqModel
 import com.google.inject.Inject
-import java.nio.file.Paths
-import com.arm.cmsis.pack.parser.PdscParser
 import java.util.List
 import org.eclipse.emf.ecore.EObject
 import com.arm.cmsis.pack.debugseq.DebugSeqStandaloneSetup
-import org.eclipse.xtext.resource.XtextResourceSet
-import org.eclipse.xtext.resource.XtextResource
-import org.eclipse.emf.common.util.URI
-import org.eclipse.xtext.util.StringInputStream
 import com.arm.cmsis.pack.debugseq.debugSeq.Statement
-import org.eclipse.xtext.validation.CheckMode
-import org.eclipse.xtext.util.CancelIndicator
 import java.util.Collection
 import com.arm.cmsis.pack.dsq.IDsqCommand
 import com.arm.cmsis.pack.dsq.IDsqLogger
 import com.arm.cmsis.pack.dsq.DsqCommand
 import com.arm.cmsis.pack.dsq.IDsqEngine
-import com.arm.cmsis.pack.data.ICpSequence
-import java.net.URL
-import java.io.BufferedReader
-import java.io.InputStreamReader
 import com.arm.cmsis.pack.dsq.DsqException
 import com.arm.cmsis.pack.dsq.IDsqContext
 import com.arm.cmsis.pack.dsq.IDsqSequence
 import com.arm.cmsis.pack.dsq.IDsqClient
-import com.arm.cmsis.pack.utils.Utils
-import org.eclipse.core.runtime.FileLocator
-import java.io.File
-import org.eclipse.emf.ecore.resource.Resource
-import com.google.inject.Provider
-import org.eclipse.xtext.validation.IResourceValidator
 import com.arm.cmsis.pack.debugseq.generator.IDsqScriptGenerator
 import com.arm.cmsis.pack.debugseq.generator.DsqScriptGeneratorFactory
 
 class DebugSeqEngine implements IDsqEngine {
 	
-	@Inject Provider<XtextResourceSet> resourceSetProvider
-	@Inject IResourceValidator validator;
+	@Inject DebugSeqModelBuilder modelBuilder
 
-	Resource resource
 	IDsqScriptGenerator generator
+	DebugSeqCompiler compiler
+	boolean compileSequences = !"false".equalsIgnoreCase(System.getProperty(IDsqEngine.COMPILE_PROPERTY))
 	
-	Stack<Map<String, Long>> contexts = new Stack
+	val long[][] frames = newArrayOfSize(2) // current global and local frames indexed by slot depth
 	ICpDeviceInfo deviceInfo
 	IDsqClient debugSeqClient
 	IDsqLogger logger
 	
 	DebugSeqModel dsqModel
-	String debugVars
-	
-	boolean inAtomic = false
-	boolean collectingCommands = false
-	List<IDsqCommand> commands
-	int commandIndex
 	
 	@Inject
 	protected new(IDsqClient dsqClient) { // constructor for testing
@@ -133,9 +107,24 @@ class DebugSeqEngine implements IDsqEngine {
 		deviceInfo = devInfo
 		debugSeqClient = dsqClient
 		logger = log
-		debugVars = ''
 		
-		new DebugSeqStandaloneSetup().createInjectorAndDoEMFRegistration().injectMembers(this)
+		DebugSeqStandaloneSetup.sharedInjector.injectMembers(this)
+	}
+	
+	/**
+	 * Checks if sequences are compiled to closure trees before execution
+	 * @return true if sequences are compiled, false if they are interpreted
+	 */
+	def boolean isCompileSequences() {
+		compileSequences
+	}
+	
+	/**
+	 * Sets if sequences are compiled to closure trees before execution or interpreted
+	 * @param compile true to compile sequences (default unless IDsqEngine.COMPILE_PROPERTY is "false"), false to interpret them
+	 */
+	def void setCompileSequences(boolean compile) {
+		compileSequences = compile
 	}
 	
 	override Collection<String> getDefaultSequenceNames() {
@@ -164,13 +153,20 @@ class DebugSeqEngine implements IDsqEngine {
 		val seq = seqContext.sequence
 		
 		if (seq !== null) {
-			contexts.clear
-			enterScope(false)
+			frames.set(GLOBAL, newLongArrayOfSize(dsqModel.debugvars.frame.size))
+			frames.set(LOCAL, null)
 			dsqModel.debugvars.interpret
 			// set the value of pre-defined variables
 			setPredefinedVariableValues(seqContext)
-			seq.interpret
-			exitScope
+			if (compileSequences) {
+				if (compiler === null) {
+					compiler = new DebugSeqCompiler(this, frames, debugSeqClient, logger, deviceInfo)
+				}
+				compiler.execute(seq)
+			} else {
+				seq.interpret
+			}
+			frames.set(GLOBAL, null)
 		} else if (!seqContext.sequenceName.isEmptyDefaultSequence) {
 			throw new DsqException("Sequence named '" + seqContext.sequenceName + "' is undefined")
 		}
@@ -210,38 +206,6 @@ class DebugSeqEngine implements IDsqEngine {
 		return seq
 	}
 	
-	def private void initDebugVariables() throws DsqException {
-		val dv = if(deviceInfo.debugConfiguration === null) null else deviceInfo.debugConfiguration.debugVars
-		val initialText = if (dv === null) '' else dv.text
-		val sb = new StringBuilder(initialText + '\n')
-		sb.append('''
-			IF dv === null
-			<debugvars>
-			ENDIF
-			__var IDsqContext::AP = 0;
-			__var IDsqContext::DP = 0;
-			__var IDsqContext::PROTOCOL = 0;
-			__var IDsqContext::CONNECTION = 0;
-			__var IDsqContext::TRACEOUT = 0;
-			__var IDsqContext::ERRORCONTROL = 0;
-			IF dv === null
-			</debugvars>
-			ENDIF
-		''')
-		if (dv !== null) {
-			val text = dv.text
-			if (dv.dgbConfFileName !== null && !dv.dgbConfFileName.empty) {
-				sb.append(readFile(Paths.get(dv.dgbConfFileName).toUri().toURL()))
-			}
-			dv.text = sb.toString
-			val xmlParser = new PdscParser
-			debugVars = xmlParser.writeToXmlString(dv).postProcess
-			dv.text = text
-		} else {
-			debugVars = sb.toString
-		}
-	}
-	
 	def private void checkPredefinedVariables(IDsqContext dsqContext) {
 		val ap = dsqContext.getPredefinedVariableValue(IDsqContext::AP)
 		if (ap === null) // exception 
@@ -276,100 +240,35 @@ class DebugSeqEngine implements IDsqEngine {
 		val tc = dsqContext.getPredefinedVariableValue(IDsqContext::TRACEOUT)
 		val ec = dsqContext.getPredefinedVariableValue(IDsqContext::ERRORCONTROL)
 		if (ap !== null)
-			contexts.peek.put(IDsqContext::AP, ap)
+			IDsqContext::AP.setPredefinedValue(ap)
 		if (dp !== null)
-			contexts.peek.put(IDsqContext::DP, dp)
+			IDsqContext::DP.setPredefinedValue(dp)
 		if (p !== null)
-			contexts.peek.put(IDsqContext::PROTOCOL, p)
+			IDsqContext::PROTOCOL.setPredefinedValue(p)
 		if (c !== null)
-			contexts.peek.put(IDsqContext::CONNECTION, c)
+			IDsqContext::CONNECTION.setPredefinedValue(c)
 		if (tc !== null)
-			contexts.peek.put(IDsqContext::TRACEOUT, tc)
+			IDsqContext::TRACEOUT.setPredefinedValue(tc)
 		if (ec !== null)
-			contexts.peek.put(IDsqContext::ERRORCONTROL, ec)
+			IDsqContext::ERRORCONTROL.setPredefinedValue(ec)
 	}
 	
 	/**
-	 * Parses all sequences provided by device
-	 * @return The root node of the parsed model
+	 * Builds model of all sequences provided by device, reuses the model validated for the same target
+	 * @return The root node of the model
 	 */
 	def private DebugSeqModel parse() throws DsqException {
-		// get the root node
-		return getResource().getContents().get(0) as DebugSeqModel;
-	}
-	
-	def private Resource getResource() {
-		if (resource !== null) {
-			return resource
+		val key = DebugSeqModelCache.getKey(deviceInfo)
+		var model = DebugSeqModelCache.get(key)
+		if (model === null) {
+			model = modelBuilder.build(deviceInfo)
+			DebugSeqModelCache.put(key, model)
 		}
-		
-		initDebugVariables
-		val xmlParser = new PdscParser
-		val sequences = deviceInfo.debugConfiguration.sequences.values.map[xmlParser.writeToXmlString(it)].join('\n').postProcess
-		val modelString = '''
-			debugVars
-			<sequences>
-			sequences
-			addDefaultSeqs(deviceInfo.debugConfiguration.sequences)
-			</sequences>
-		'''
-		
-		val resourceSet = resourceSetProvider.get()
-		resourceSet.addLoadOption(XtextResource.OPTION_RESOLVE_ALL, Boolean.TRUE)
-		
-		// parse the model
-		resource = resourceSet.createResource(URI.createURI("dummy:/dummy.dsq"))
-    	resource.load(new StringInputStream(modelString), resourceSet.getLoadOptions())
-    	
-    	// validate the model
-    	val issues = validator.validate(resource, CheckMode.ALL, CancelIndicator.NullImpl)
-    	if (!issues.empty) {
-    		dsqModel = null
-    		
-    		val errors = issues.map[
-    			message + ":\n" + modelString.substring(it.offset, it.offset + it.length + 1)
-    		].join("\n\n")
-    		
-    		throw new DsqException("Error while validating the debug sequences in pack file:\n"
-    			+ deviceInfo.pack.fileName
-    			+ "\n\nDevice: "
-    			+ deviceInfo.deviceName
-    			+ "\n\n"
-    			+ errors
-    		)
-    	}
-    	
-    	return resource
-	}
-	
-	def private String readFile(URL url) {
-		var result = ""
-		val inputStream = url.openConnection().getInputStream()
-	    val in = new BufferedReader(new InputStreamReader(inputStream))
-	    var inputLine = ""
-	 
-	    while ((inputLine = in.readLine()) !== null) {
-	        result += inputLine + '\n'
-	    }
-
-	    in.close();
-	    result
+		return model
 	}
 	
 	def private Collection<String> getDefaultSqs() {
-		val url = FileLocator.toFileURL(new URL("platform:/plugin/com.arm.cmsis.pack.dsq.engine/default_sequences"))
-		val defaultSeqsFolder = new File(url.file)
-		defaultSeqsFolder.list.map[Utils.extractBaseFileName(it)]
-	}
-	
-	def private addDefaultSeqs(Map<String, ICpSequence> sequences) {
-		var seqs = ""
-		for (defaultSeqName : defaultSqs) {
-			if (!sequences.containsKey(defaultSeqName)) {
-				seqs += readFile(new URL("platform:/plugin/com.arm.cmsis.pack.dsq.engine/default_sequences/" + defaultSeqName + ".dsq"))
-			}
-		}
-		return seqs
+		modelBuilder.defaultSequenceNames
 	}
 	
 	def dispatch Long interpret(Void obj) throws DsqException {
@@ -384,10 +283,10 @@ class DebugSeqEngine implements IDsqEngine {
 	def dispatch Long interpret(Sequence seq) throws DsqException {
 		if (logger !== null) 
 			logger.logSeqStart(seq.name)
-		enterScope(true)
+		val callerFrame = enterScope(seq)
 		if (seq.codeblocks !== null)
 			seq.codeblocks.forEach[interpret]
-		exitScope
+		exitScope(callerFrame)
 		if (logger !== null)
 			logger.logSeqEnd(seq.name)
 		0L
@@ -395,41 +294,30 @@ class DebugSeqEngine implements IDsqEngine {
 	
 	// a block returns the value of the last statement
 	def dispatch Long interpret(Block block) throws DsqException {
-		if (logger !== null)
-			logger.logBlockStart(block.atomic !== 0, block.info)
-		
-		// if the block is atomic, we need to backup the symbol table
-		val tempContexts = new Stack<Map<String, Long>>
 		if (block.atomic !== 0) {
-			inAtomic = true
-			collectingCommands = true
-			commands = newArrayList
-			// backup the symbol table
-			contexts.forEach[tempContexts.push(new HashMap<String, Long>(it))]
-		}
-		
-		block.statements.interpretUntilLast
-		var result = block.statements.last.interpret
-		logger.log(block.statements.last, result.toLong)
-		
-		if (inAtomic) {
-			// Execute the Debug Access Commands
-			debugSeqClient.execute(commands, true)
-			
-			// restore the symbol table
-			contexts = tempContexts
-			
-			// Get all the results
-			collectingCommands = false
-			commandIndex = 0
-			block.statements.interpretUntilLast
-			result = block.statements.last.interpret
-			logger.log(block.statements.last, result.toLong)
-			inAtomic = false
-			commands.clear
+			return executeAtomicBlock(block)
 		}
+		if (logger !== null)
+			logger.logBlockStart(false, block.info)
+		val result = block.statements.interpretStatements
 		if (logger !== null)
 			logger.logBlockEnd()
+		result
+	}
+	
+	/**
+	 * Executes the atomic block in a single pass, all its commands are sent to the client at once
+	 * @param block atomic Block to execute
+	 * @return value of the last statement
+	 */
+	def package long executeAtomicBlock(Block block) throws DsqException {
+		new DebugSeqAtomicBlock(this, frames, debugSeqClient, logger, deviceInfo).execute(block)
+	}
+	
+	def private long interpretStatements(List<Statement> statements) {
+		statements.interpretUntilLast
+		val result = statements.last.interpret
+		logger.log(statements.last, result.toLong)
 		result.toLong
 	}
 	
@@ -438,7 +326,6 @@ class DebugSeqEngine implements IDsqEngine {
 		var result = 0L
 		if (logger !== null)
 			logger.logContorlStart(control.info)
-		enterScope(false)
 		if (control.^if === null || logger.logIf(control.^if, control.^if.interpret.toLong) !== 0) {
 			if (control.^while === null) {
 				control.codeblocks.interpretUntilLast
@@ -457,7 +344,6 @@ class DebugSeqEngine implements IDsqEngine {
 				}
 			}
 		}
-		exitScope
 		if (logger !== null)
 			logger.logControlEnd()
 		result
@@ -467,14 +353,11 @@ class DebugSeqEngine implements IDsqEngine {
 		switch (e) {
 			IntConstant: e.value
 			StringConstant: e.value
-			VariableRef: {
-				val k = e.variable.name
-				k.context.get(k)
-			}
+			VariableRef: e.variableValue
 			Not: (e.expression.interpret.toLong == 0).toLong
 			Assignment: {
-				val k = (e.left as VariableRef).variable.name
-				val i = k.context.get(k)
+				val k = e.left as VariableRef
+				val i = k.variableValue
 				val v = e.right.interpret.toLong
 				switch (e.op) {
 					case '=': { k.updateValue(v)}
@@ -498,7 +381,7 @@ class DebugSeqEngine implements IDsqEngine {
 				}
 			}
 			Ternary: {
-				if (e.left.interpret !== 0)
+				if (e.left.interpret.toLong != 0)
 					e.exp1.interpret
 				else
 					e.exp2.interpret
@@ -583,58 +466,65 @@ class DebugSeqEngine implements IDsqEngine {
 		executeCommand(cmdName, params, null)
 	}
 	
-	def private long executeCommand(String cmdName, List<Long> params, List<String> strings) throws DsqException {
-		if (!inAtomic) {
-			val command = createCommand(cmdName, params, strings)
-			debugSeqClient.execute(#[command], false)
-			command.output
-		} else if (!collectingCommands) { // all the results are returned
-			val command = findCommand(cmdName, params)
-			command.output
-		} else { // collecting commands to be sent
-			addCommand(cmdName, params, strings)
-			0L
-		}
-	}
-	
-	def private void addCommand(String cmdName, List<Long> params, List<String> strings) {
+	def package long executeCommand(String cmdName, List<Long> params, List<String> strings) throws DsqException {
 		val command = createCommand(cmdName, params, strings)
-		commands.add(command)
+		debugSeqClient.execute(#[command], false)
+		command.output
 	}
 	
-	def private IDsqCommand findCommand(String cmdName, List<Long> params) {
-		commands.get(commandIndex++) // all the commands are added in order
-	}
-	
-	def private IDsqCommand createCommand(String cmdName, List<Long> params, List<String> strings) {
+	def package IDsqCommand createCommand(String cmdName, List<Long> params, List<String> strings) {
 		val predefinedVars = newHashMap
-		predefinedVars.put(IDsqContext::AP, IDsqContext::AP.context?.get(IDsqContext::AP))
-		predefinedVars.put(IDsqContext::DP, IDsqContext::DP.context?.get(IDsqContext::DP))
-		predefinedVars.put(IDsqContext::PROTOCOL, IDsqContext::PROTOCOL.context?.get(IDsqContext::PROTOCOL))
-		predefinedVars.put(IDsqContext::CONNECTION, IDsqContext::CONNECTION.context?.get(IDsqContext::CONNECTION))
-		predefinedVars.put(IDsqContext::TRACEOUT, IDsqContext::TRACEOUT.context?.get(IDsqContext::TRACEOUT))
-		predefinedVars.put(IDsqContext::ERRORCONTROL, IDsqContext::ERRORCONTROL.context?.get(IDsqContext::ERRORCONTROL))
+		predefinedVars.put(IDsqContext::AP, IDsqContext::AP.predefinedValue)
+		predefinedVars.put(IDsqContext::DP, IDsqContext::DP.predefinedValue)
+		predefinedVars.put(IDsqContext::PROTOCOL, IDsqContext::PROTOCOL.predefinedValue)
+		predefinedVars.put(IDsqContext::CONNECTION, IDsqContext::CONNECTION.predefinedValue)
+		predefinedVars.put(IDsqContext::TRACEOUT, IDsqContext::TRACEOUT.predefinedValue)
+		predefinedVars.put(IDsqContext::ERRORCONTROL, IDsqContext::ERRORCONTROL.predefinedValue)
 		new DsqCommand(cmdName, params, strings, predefinedVars)
 	}
 	
 	def dispatch Long interpret(VariableDeclaration vardecl) throws DsqException {
-		if (contexts.isEmpty) {
-			enterScope(false)
-		}
 		val value = vardecl.value.interpret.toLong
-		contexts.peek.put(vardecl.name, value)
-		value
+		vardecl.updateValue(value)
 	}
 	
-	def private Map<String, Long> getContext(String k) {
-		contexts.findLast[containsKey(k)]
+	/**
+	 * Returns value of the variable from its slot
+	 */
+	def private long getVariableValue(VariableRef ref) {
+		val slot = ref.slot
+		frames.get(slot.depth).get(slot.index)
 	}
 	
-	def private long updateValue(String variableName, long newValue) {
-		variableName.context.put(variableName, newValue)
+	/**
+	 * Stores value to the slot of a declared or referenced variable
+	 */
+	def private long updateValue(EObject variable, long newValue) {
+		val slot = variable.slot
+		frames.get(slot.depth).set(slot.index, newValue)
 		newValue
 	}
 	
+	/**
+	 * Returns value of a predefined variable visible in the current scope
+	 */
+	def private Long getPredefinedValue(String name) {
+		val local = frames.get(LOCAL)
+		val localIndex = LOCAL_PREDEFINED.indexOf(name)
+		if (local !== null && localIndex >= 0) {
+			return local.get(localIndex)
+		}
+		val index = dsqModel.debugvars.frame.getPredefinedIndex(name)
+		if (index < 0 || frames.get(GLOBAL) === null) null else frames.get(GLOBAL).get(index)
+	}
+	
+	def private void setPredefinedValue(String name, long value) {
+		val index = dsqModel.debugvars.frame.getPredefinedIndex(name)
+		if (index >= 0) {
+			frames.get(GLOBAL).set(index, value)
+		}
+	}
+	
 	def private interpretUntilLast(List<? extends EObject> l) {
 		if (l.size == 0)
 			return 0L
@@ -646,29 +536,29 @@ class DebugSeqEngine implements IDsqEngine {
 		]
 	}
 	
-	def private void enterScope(boolean store) {
-		if (contexts.isEmpty && store) {
+	/**
+	 * Creates local frame of the sequence initialized with the predefined variables of the caller
+	 * @return local frame of the caller
+	 */
+	def package long[] enterScope(Sequence seq) {
+		if (frames.get(GLOBAL) === null) {
 			throw new DsqException("The symbol table is empty")
 		}
-		if (!store) {
-			contexts.push(newHashMap)
-		} else {
-			val dp = IDsqContext::DP.context.get(IDsqContext::DP)
-			val ap = IDsqContext::AP.context.get(IDsqContext::AP)
-			val ec = IDsqContext::ERRORCONTROL.context.get(IDsqContext::ERRORCONTROL)
-			contexts.push(newHashMap)
-			contexts.peek.put(IDsqContext::DP, dp)
-			contexts.peek.put(IDsqContext::AP, ap)
-			contexts.peek.put(IDsqContext::ERRORCONTROL, ec)
+		val localFrame = newLongArrayOfSize(seq.frame.size)
+		for (i : 0 ..< LOCAL_PREDEFINED.size) {
+			localFrame.set(i, LOCAL_PREDEFINED.get(i).predefinedValue.toLong)
 		}
+		val callerFrame = frames.get(LOCAL)
+		frames.set(LOCAL, localFrame)
+		callerFrame
 	}
 	
-	def private void exitScope() {
-		contexts.pop
+	def package void exitScope(long[] callerFrame) {
+		frames.set(LOCAL, callerFrame)
 	}
 	
-	def private Long log(IDsqLogger logger, Statement stmt, Long result) {
-		if (logger === null || collectingCommands) {
+	def package Long log(IDsqLogger logger, Statement stmt, Long result) {
+		if (logger === null) {
 			result
 		} else {
 			logger.logStatement(stmt.node.tokenText, result, 0)
@@ -676,8 +566,8 @@ class DebugSeqEngine implements IDsqEngine {
 		}
 	}
 	
-	def private Long logIf(IDsqLogger logger, Statement stmt, Long result) {
-		if (logger === null || collectingCommands) {
+	def package Long logIf(IDsqLogger logger, Statement stmt, Long result) {
+		if (logger === null) {
 			result
 		} else {
 			logger.logIfStatement(stmt.node.tokenText, result, 0)
@@ -685,20 +575,12 @@ class DebugSeqEngine implements IDsqEngine {
 		}
 	}
 	
-	def private Long logWhile(IDsqLogger logger, Statement stmt, Long result) {
-		if (logger === null || collectingCommands) {
+	def package Long logWhile(IDsqLogger logger, Statement stmt, Long result) {
+		if (logger === null) {
 			result
 		} else {
 			logger.logWhileStatement(stmt.node.tokenText, result, 0)
 			result
 		}
 	}
-	
-	def private postProcess(String str) {
-		var s = str.replace("&#13;", "")
-		s = s.replace("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>", "")
-		s = s.replace("xmlns:xs=\"http://www.w3.org/2001/XMLSchema-instance\"", "")
-		s = s.replace(">", ">\n")
-		s = s.replace("<", "\n<")
-	}
 }
\ No newline at end of file
@@ -0,0 +1,288 @@
+/*******************************************************************************
+* Copyright (c) 2016 ARM Ltd. and others
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* ARM Ltd and ARM Germany GmbH - Initial API and implementation
+*******************************************************************************/
+
+package com.arm.cmsis.pack.debugseq.engine
+
+import static extension org.eclipse.xtext.EcoreUtil2.*
+import static extension org.eclipse.xtext.nodemodel.util.NodeModelUtils.*
+
+import com.arm.cmsis.pack.common.CmsisConstants
+import com.arm.cmsis.pack.data.ICpDebugVars
+import com.arm.cmsis.pack.data.ICpItem
+import com.arm.cmsis.pack.data.ICpSequence
+import com.arm.cmsis.pack.debugseq.debugSeq.Block
+import com.arm.cmsis.pack.debugseq.debugSeq.CodeBlock
+import com.arm.cmsis.pack.debugseq.debugSeq.Control
+import com.arm.cmsis.pack.debugseq.debugSeq.DebugSeqFactory
+import com.arm.cmsis.pack.debugseq.debugSeq.DebugSeqModel
+import com.arm.cmsis.pack.debugseq.debugSeq.DebugSeqPackage
+import com.arm.cmsis.pack.debugseq.debugSeq.DebugVars
+import com.arm.cmsis.pack.debugseq.debugSeq.Expression
+import com.arm.cmsis.pack.debugseq.debugSeq.Sequence
+import com.arm.cmsis.pack.debugseq.debugSeq.Statement
+import com.arm.cmsis.pack.debugseq.debugSeq.VariableDeclaration
+import com.arm.cmsis.pack.debugseq.debugSeq.VariableRef
+import com.arm.cmsis.pack.debugseq.services.DebugSeqGrammarAccess
+import com.arm.cmsis.pack.dsq.DsqException
+import com.arm.cmsis.pack.dsq.IDsqContext
+import com.arm.cmsis.pack.info.ICpDeviceInfo
+import com.arm.cmsis.pack.utils.Utils
+import com.google.inject.Inject
+import java.io.BufferedReader
+import java.io.File
+import java.io.InputStreamReader
+import java.io.StringReader
+import java.net.URL
+import java.nio.file.Paths
+import java.util.Collection
+import java.util.List
+import org.eclipse.core.runtime.FileLocator
+import org.eclipse.emf.common.util.Diagnostic
+import org.eclipse.emf.ecore.EObject
+import org.eclipse.emf.ecore.util.Diagnostician
+import org.eclipse.xtext.ParserRule
+import org.eclipse.xtext.naming.QualifiedName
+import org.eclipse.xtext.parser.IParser
+import org.eclipse.xtext.scoping.IScopeProvider
+import org.eclipse.xtext.validation.AbstractValidationDiagnostic
+import org.eclipse.xtext.validation.CheckMode
+
+/**
+ * Builds DebugSeqModel directly from the debug configuration of a device.
+ * <p>
+ * Sequences, blocks and controls are created from ICpSequence items and their attributes,
+ * only statements and expressions are parsed with the corresponding grammar rules.
+ * Their text is escaped the same way as XML serialization does, because the grammar expects XML-escaped operators.
+ * Variable references are linked with the DebugSeq scope provider, then the model is checked by the DebugSeq validator.
+ * </p>
+ */
+class DebugSeqModelBuilder {
+
+	static val DEFAULT_SEQUENCES = "platform:/plugin/com.arm.cmsis.pack.dsq.engine/default_sequences"
+
+	@Inject IParser parser
+	@Inject DebugSeqGrammarAccess grammarAccess
+	@Inject IScopeProvider scopeProvider
+	@Inject Diagnostician diagnostician
+
+	val factory = DebugSeqFactory.eINSTANCE
+	List<String> errors = newArrayList
+
+	/**
+	 * Builds and validates model of all sequences provided by device and the default sequences it does not override
+	 * @param deviceInfo ICpDeviceInfo with debug configuration
+	 * @return The root node of the model
+	 * @throws DsqException if sequences contain errors
+	 */
+	def DebugSeqModel build(ICpDeviceInfo deviceInfo) throws DsqException {
+		errors = newArrayList
+		val debugConfiguration = deviceInfo.debugConfiguration
+		val model = factory.createDebugSeqModel
+		model.debugvars = createDebugVars(if (debugConfiguration === null) null else debugConfiguration.debugVars)
+
+		val sequenceMap = if (debugConfiguration === null) null else debugConfiguration.sequences
+		model.sequences = factory.createSequences
+		if (sequenceMap !== null) {
+			for (seq : sequenceMap.values) {
+				model.sequences.sequences += createSequence(seq)
+			}
+		}
+		for (defaultSeqName : defaultSequenceNames) {
+			if (sequenceMap === null || !sequenceMap.containsKey(defaultSeqName)) {
+				val text = readFile(new URL(DEFAULT_SEQUENCES + "/" + defaultSeqName + ".dsq"))
+				val seq = parse(grammarAccess.sequenceRule, text) as Sequence
+				if (seq !== null) {
+					model.sequences.sequences += seq
+				}
+			}
+		}
+
+		if (errors.empty) {
+			linkVariables(model)
+		}
+		if (errors.empty) {
+			validate(model)
+		}
+		if (!errors.empty) {
+			throw new DsqException("Error while validating the debug sequences in pack file:\n"
+				+ deviceInfo.pack.fileName
+				+ "\n\nDevice: "
+				+ deviceInfo.deviceName
+				+ "\n\n"
+				+ errors.join("\n\n")
+			)
+		}
+		DebugSeqSymbolTable.resolve(model)
+		model
+	}
+
+	/**
+	 * Returns names of default sequences shipped with the engine
+	 * @return collection of sequence names
+	 */
+	def Collection<String> getDefaultSequenceNames() {
+		val url = FileLocator.toFileURL(new URL(DEFAULT_SEQUENCES))
+		val defaultSeqsFolder = new File(url.file)
+		defaultSeqsFolder.list.map[Utils.extractBaseFileName(it)]
+	}
+
+	def private DebugVars createDebugVars(ICpDebugVars dv) {
+		val sb = new StringBuilder(if (dv === null) '' else dv.text)
+		sb.append('\n')
+		sb.append('''
+			__var IDsqContext::AP = 0;
+			__var IDsqContext::DP = 0;
+			__var IDsqContext::PROTOCOL = 0;
+			__var IDsqContext::CONNECTION = 0;
+			__var IDsqContext::TRACEOUT = 0;
+			__var IDsqContext::ERRORCONTROL = 0;
+		''')
+		if (dv !== null && dv.dgbConfFileName !== null && !dv.dgbConfFileName.empty) {
+			sb.append(readFile(Paths.get(dv.dgbConfFileName).toUri().toURL()))
+		}
+		val debugVars = parse(grammarAccess.debugVarsRule, "<debugvars>" + sb.toString.escapeText + "</debugvars>") as DebugVars
+		if (debugVars === null) {
+			return factory.createDebugVars
+		}
+		if (dv !== null) {
+			debugVars.configfile = dv.attributes.getAttribute(CmsisConstants.CONFIGFILE)
+			debugVars.version = dv.attributes.getAttribute(CmsisConstants.VERSION)
+			debugVars.pname = dv.attributes.getAttribute(CmsisConstants.PNAME)
+		}
+		debugVars
+	}
+
+	def private Sequence createSequence(ICpSequence item) {
+		val seq = factory.createSequence
+		seq.name = item.getAttribute(CmsisConstants.NAME)
+		seq.disable = if (item.isDisabled) 1 else 0
+		seq.pname = item.attributes.getAttribute(CmsisConstants.PNAME)
+		seq.info = item.attributes.getAttribute(CmsisConstants.INFO)
+		seq.codeblocks += createCodeBlocks(item)
+		seq
+	}
+
+	def private List<CodeBlock> createCodeBlocks(ICpItem parent) {
+		val codeblocks = <CodeBlock>newArrayList
+		if (parent.children === null) {
+			return codeblocks
+		}
+		for (child : parent.children) {
+			val codeblock = switch (child.tag) {
+				case CmsisConstants.BLOCK_TAG: createBlock(child)
+				case CmsisConstants.CONTROL_TAG: createControl(child)
+				default: null
+			}
+			if (codeblock !== null) {
+				codeblocks += codeblock
+			}
+		}
+		codeblocks
+	}
+
+	def private Block createBlock(ICpItem item) {
+		val block = parse(grammarAccess.blockRule, "<block>" + item.text.escapeText + "</block>") as Block
+		if (block !== null) {
+			block.atomic = item.attributes.getAttributeAsLong(CmsisConstants.ATOMIC, 0)
+			block.info = item.attributes.getAttribute(CmsisConstants.INFO)
+		}
+		block
+	}
+
+	def private Control createControl(ICpItem item) {
+		val control = factory.createControl
+		if (item.hasAttribute(CmsisConstants.IF)) {
+			control.^if = parse(grammarAccess.expressionRule, item.getAttribute(CmsisConstants.IF).escapeText) as Expression
+		}
+		if (item.hasAttribute(CmsisConstants.WHILE)) {
+			control.^while = parse(grammarAccess.expressionRule, item.getAttribute(CmsisConstants.WHILE).escapeText) as Expression
+		}
+		control.timeout = item.attributes.getAttributeAsLong(CmsisConstants.TIMEOUT, 0)
+		control.info = item.attributes.getAttribute(CmsisConstants.INFO)
+		control.codeblocks += createCodeBlocks(item)
+		control
+	}
+
+	/**
+	 * Parses text with the given grammar rule, collects syntax errors
+	 * @return parsed element or null if the text contains syntax errors
+	 */
+	def private EObject parse(ParserRule rule, String text) {
+		val result = parser.parse(rule, new StringReader(text))
+		if (!result.hasSyntaxErrors) {
+			return result.rootASTElement
+		}
+		for (node : result.syntaxErrors) {
+			errors += node.syntaxErrorMessage.message + ":\n" + text.trim
+		}
+		null
+	}
+
+	/**
+	 * Resolves variable references with the scope provider as the linker does
+	 */
+	def private void linkVariables(DebugSeqModel model) {
+		val reference = DebugSeqPackage$Literals::VARIABLE_REF__VARIABLE
+		for (ref : model.eAllOfType(VariableRef)) {
+			val name = ref.findNodesForFeature(reference).map[tokenText].head
+			val description = if (name === null) null else
+				scopeProvider.getScope(ref, reference).getSingleElement(QualifiedName.create(name))
+			if (description === null) {
+				errors += "Couldn't resolve reference to VariableDeclaration '" + name + "'.:\n" + ref.containingText
+			} else {
+				ref.variable = description.EObjectOrProxy as VariableDeclaration
+			}
+		}
+	}
+
+	def private void validate(DebugSeqModel model) {
+		val context = diagnostician.createDefaultContext
+		context.put(CheckMode.KEY, CheckMode.ALL)
+		val diagnostic = diagnostician.validate(model, context)
+		for (d : diagnostic.children.filter[severity != Diagnostic.OK]) {
+			val source = if (d instanceof AbstractValidationDiagnostic) d.sourceEObject else d.data.filter(EObject).head
+			errors += d.message + ":\n" + source.containingText
+		}
+	}
+
+	/**
+	 * Returns text of the top-level statement containing the element
+	 */
+	def private String containingText(EObject e) {
+		var statement = e
+		while (statement !== null && !(statement instanceof Statement && !(statement.eContainer instanceof Statement))) {
+			statement = statement.eContainer
+		}
+		val node = statement?.node
+		if (node === null) '' else node.tokenText
+	}
+
+	def private String readFile(URL url) {
+		val result = new StringBuilder
+		val in = new BufferedReader(new InputStreamReader(url.openConnection().getInputStream()))
+		try {
+			var String inputLine
+			while ((inputLine = in.readLine()) !== null) {
+				result.append(inputLine).append('\n')
+			}
+		} finally {
+			in.close()
+		}
+		result.toString
+	}
+
+	/**
+	 * Escapes text as XML serialization of the pdsc items does
+	 */
+	def private static String escapeText(String text) {
+		text.replace("\r", "").replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;")
+	}
+}
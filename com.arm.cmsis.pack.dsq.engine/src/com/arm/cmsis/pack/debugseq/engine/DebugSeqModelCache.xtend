@@ -0,0 +1,89 @@
+/*******************************************************************************
+* Copyright (c) 2016 ARM Ltd. and others
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* ARM Ltd and ARM Germany GmbH - Initial API and implementation
+*******************************************************************************/
+
+package com.arm.cmsis.pack.debugseq.engine
+
+import com.arm.cmsis.pack.debugseq.debugSeq.DebugSeqModel
+import com.arm.cmsis.pack.info.ICpDeviceInfo
+import java.io.File
+import java.lang.ref.SoftReference
+import java.util.HashMap
+import java.util.Map
+
+/**
+ * Process-wide cache of parsed and validated debug sequence models.
+ * <p>
+ * A model is identified by pack, device and processor. The pdsc file and the debug configuration file
+ * are part of the key with their time stamps, so that a changed file yields a new model.
+ * Cached models are shared between engines: the engines only read them.
+ * Models are softly referenced and released on memory shortage.
+ * </p>
+ */
+class DebugSeqModelCache {
+
+	static val Map<String, SoftReference<DebugSeqModel>> models = new HashMap
+
+	/**
+	 * Returns cache key for the device
+	 * @param di ICpDeviceInfo of the target
+	 * @return key string
+	 */
+	def static String getKey(ICpDeviceInfo di) {
+		val pack = di.pack
+		val dv = if (di.debugConfiguration === null) null else di.debugConfiguration.debugVars
+		val dbgConfFileName = if (dv === null) null else dv.dgbConfFileName
+		val sb = new StringBuilder
+		sb.append(if (pack === null) null else pack.id).append(':')
+		sb.append(if (pack === null) null else pack.fileName.fileStamp).append(':')
+		sb.append(di.deviceName).append(':')
+		sb.append(di.processorName).append(':')
+		sb.append(dbgConfFileName.fileStamp)
+		sb.toString
+	}
+
+	def private static String getFileStamp(String fileName) {
+		if (fileName === null || fileName.empty) {
+			return ''
+		}
+		val f = new File(fileName)
+		fileName + '@' + f.lastModified + '#' + f.length
+	}
+
+	/**
+	 * Returns cached model
+	 * @param key cache key
+	 * @return DebugSeqModel or null if not cached
+	 */
+	def static synchronized DebugSeqModel get(String key) {
+		val ref = models.get(key)
+		val model = if (ref === null) null else ref.get
+		if (ref !== null && model === null) {
+			models.remove(key)
+		}
+		model
+	}
+
+	/**
+	 * Adds validated model to the cache
+	 * @param key cache key
+	 * @param model DebugSeqModel to add
+	 */
+	def static synchronized void put(String key, DebugSeqModel model) {
+		models.put(key, new SoftReference(model))
+	}
+
+	/**
+	 * Removes all cached models
+	 */
+	def static synchronized void clear() {
+		models.clear
+	}
+}
@@ -0,0 +1,149 @@
+/*******************************************************************************
+* Copyright (c) 2016 ARM Ltd. and others
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* ARM Ltd and ARM Germany GmbH - Initial API and implementation
+*******************************************************************************/
+
+package com.arm.cmsis.pack.debugseq.engine
+
+import static extension com.arm.cmsis.pack.debugseq.util.DebugSeqUtil.*
+import static extension org.eclipse.xtext.EcoreUtil2.*
+
+import com.arm.cmsis.pack.debugseq.debugSeq.DebugSeqModel
+import com.arm.cmsis.pack.debugseq.debugSeq.VariableDeclaration
+import com.arm.cmsis.pack.debugseq.debugSeq.VariableRef
+import com.arm.cmsis.pack.dsq.IDsqContext
+import java.util.List
+import org.eclipse.emf.common.notify.impl.AdapterImpl
+import org.eclipse.emf.ecore.EObject
+import org.eclipse.emf.ecore.util.EcoreUtil
+
+/**
+ * Resolves variables of a validated DebugSeqModel to slots of primitive frames.
+ * <p>
+ * Variables declared in debugvars live in the global frame (depth GLOBAL).
+ * Every sequence call gets its own local frame (depth LOCAL): it starts with copies of the predefined variables
+ * __dp, __ap and __errorcontrol followed by all variables declared in the sequence, including those declared in controls.
+ * A variable name is unique within a sequence, therefore controls do not need frames of their own.
+ * Slots and frame sizes are attached to the model elements as adapters, so the interpreter needs no lookup by name.
+ * </p>
+ */
+class DebugSeqSymbolTable {
+
+	public static val GLOBAL = 0
+	public static val LOCAL = 1
+
+	/** predefined variables in the global frame */
+	public static val List<String> PREDEFINED = #[IDsqContext::AP, IDsqContext::DP, IDsqContext::PROTOCOL,
+		IDsqContext::CONNECTION, IDsqContext::TRACEOUT, IDsqContext::ERRORCONTROL]
+
+	/** predefined variables copied to slots 0..2 of each local frame */
+	public static val List<String> LOCAL_PREDEFINED = #[IDsqContext::DP, IDsqContext::AP, IDsqContext::ERRORCONTROL]
+
+	/**
+	 * Slot of a variable declaration or reference
+	 */
+	static class Slot extends AdapterImpl {
+		public val int depth
+		public val int index
+
+		new(int depth, int index) {
+			this.depth = depth
+			this.index = index
+		}
+
+		override boolean isAdapterForType(Object type) {
+			type === Slot
+		}
+	}
+
+	/**
+	 * Frame layout of debugvars or a sequence
+	 */
+	static class Frame extends AdapterImpl {
+		public val int size
+		val int[] predefined
+
+		new(int size, int[] predefined) {
+			this.size = size
+			this.predefined = predefined
+		}
+
+		/**
+		 * Returns slot index of a predefined variable in the global frame
+		 * @param name predefined variable name
+		 * @return slot index, -1 if the variable is not declared
+		 */
+		def int getPredefinedIndex(String name) {
+			val i = PREDEFINED.indexOf(name)
+			if (i < 0 || predefined === null) -1 else predefined.get(i)
+		}
+
+		override boolean isAdapterForType(Object type) {
+			type === Frame
+		}
+	}
+
+	/**
+	 * Assigns slots to all variable declarations and references of the model
+	 * @param model validated DebugSeqModel with linked variable references
+	 */
+	def static void resolve(DebugSeqModel model) {
+		var index = 0
+		val int[] predefined = newIntArrayOfSize(PREDEFINED.size)
+		for (i : 0 ..< predefined.length) {
+			predefined.set(i, -1)
+		}
+		for (decl : model.debugvars.statements.filter(VariableDeclaration)) {
+			val i = PREDEFINED.indexOf(decl.name)
+			if (i >= 0) {
+				predefined.set(i, index)
+			}
+			decl.eAdapters += new Slot(GLOBAL, index++)
+		}
+		model.debugvars.eAdapters += new Frame(index, predefined)
+
+		if (model.sequences !== null) {
+			for (seq : model.sequences.sequences) {
+				index = LOCAL_PREDEFINED.size
+				for (decl : seq.eAllOfType(VariableDeclaration)) {
+					decl.eAdapters += new Slot(LOCAL, index++)
+				}
+				seq.eAdapters += new Frame(index, null)
+			}
+		}
+
+		for (ref : model.eAllOfType(VariableRef)) {
+			val decl = ref.variable
+			val slot = decl.slot
+			val localIndex = LOCAL_PREDEFINED.indexOf(decl.name)
+			ref.eAdapters += if (slot.depth == GLOBAL && localIndex >= 0 && ref.containingSequence !== null)
+				new Slot(LOCAL, localIndex) // the sequence's copy of the predefined variable
+			else
+				new Slot(slot.depth, slot.index)
+		}
+	}
+
+	/**
+	 * Returns slot of a variable declaration or reference
+	 * @param e VariableDeclaration or VariableRef of a resolved model
+	 * @return Slot, null if not resolved
+	 */
+	def static Slot getSlot(EObject e) {
+		EcoreUtil.getExistingAdapter(e, Slot) as Slot
+	}
+
+	/**
+	 * Returns frame layout of debugvars or a sequence
+	 * @param e DebugVars or Sequence of a resolved model
+	 * @return Frame, null if not resolved
+	 */
+	def static Frame getFrame(EObject e) {
+		EcoreUtil.getExistingAdapter(e, Frame) as Frame
+	}
+}
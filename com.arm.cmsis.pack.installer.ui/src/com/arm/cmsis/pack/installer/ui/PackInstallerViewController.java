@@ -38,6 +38,7 @@ import com.arm.cmsis.pack.events.RteEvent;
 import com.arm.cmsis.pack.events.RteEventProxy;
 import com.arm.cmsis.pack.installer.ui.views.PackInstallerView;
 import com.arm.cmsis.pack.installer.ui.views.PackPropertyView;
+import com.arm.cmsis.pack.repository.RtePacksChange;
 import com.arm.cmsis.pack.rte.boards.IRteBoardItem;
 import com.arm.cmsis.pack.rte.devices.IRteDeviceItem;
 import com.arm.cmsis.pack.rte.examples.IRteExampleItem;
@@ -72,6 +73,11 @@ public class PackInstallerViewController extends RteEventProxy implements ISelec
 			if (fFilter != null) {
 				fFilter.clear();
 			}
+		} else if(event.getTopic().equals(RteEvent.PACKS_UPDATED) && event.getData() instanceof RtePacksChange) {
+			RtePacksChange change = (RtePacksChange) event.getData();
+			if(fSelectedPack != null && change.getRemovedPackIds().contains(fSelectedPack.getId())) {
+				fSelectedPack = null;
+			}
 		}
 		super.handle(event);
 	}
@@ -12,6 +12,7 @@
 package com.arm.cmsis.pack.installer.ui;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -25,10 +26,8 @@ import com.arm.cmsis.pack.ICpPackManager;
 import com.arm.cmsis.pack.common.CmsisConstants;
 import com.arm.cmsis.pack.data.ICpBoard;
 import com.arm.cmsis.pack.data.ICpExample;
-import com.arm.cmsis.pack.data.ICpItem;
 import com.arm.cmsis.pack.data.ICpPack;
 import com.arm.cmsis.pack.data.ICpPack.PackState;
-import com.arm.cmsis.pack.data.ICpPackCollection;
 import com.arm.cmsis.pack.data.ICpPackFamily;
 import com.arm.cmsis.pack.installer.ui.views.BoardsView;
 import com.arm.cmsis.pack.installer.ui.views.DevicesView;
@@ -36,6 +35,7 @@ import com.arm.cmsis.pack.item.ICmsisItem;
 import com.arm.cmsis.pack.rte.boards.IRteBoardItem;
 import com.arm.cmsis.pack.rte.devices.IRteDeviceItem;
 import com.arm.cmsis.pack.rte.examples.IRteExampleItem;
+import com.arm.cmsis.pack.rte.packs.RtePackDeviceIndex;
 import com.arm.cmsis.pack.utils.Utils;
 
 /**
@@ -101,16 +101,34 @@ public class PackInstallerViewFilter extends ViewerFilter {
 	protected void updateFilterdPacks() {
 		fFilteredDevicePackFamilies.clear();
 		ICpPackManager pm = CpPlugIn.getPackManager();
-		ICpPackCollection dfps = pm.getDevicePacks();
-		if(dfps == null || !dfps.hasChildren())
+		RtePackDeviceIndex index = pm.getPackDeviceIndex();
+		if(index == null)
 			return;
-		for(ICpItem item : dfps.getChildren()) {
-			if(item instanceof ICpPackFamily) {
-				ICpPackFamily f = (ICpPackFamily) item;
-				if(isDevicePackFamilyFiltered(f))
-					fFilteredDevicePackFamilies.add(f);
-			}
+		fFilteredDevicePackFamilies.addAll(getDevicePackFamilies(index));
+	}
+
+	/**
+	 * Looks up device pack families for selected device or board in the index
+	 * @param index RtePackDeviceIndex to use
+	 * @return collection of ICpPackFamily to show
+	 */
+	protected Collection<ICpPackFamily> getDevicePackFamilies(RtePackDeviceIndex index) {
+		if(fDeviceItem != null) {
+			if(bAllDevices)
+				return index.getPackFamilies();
+			if(fSelectedDeviceNames == null)
+				return Collections.emptySet();
+			return index.getPackFamiliesForDevices(fSelectedDeviceNames);
+		} else if (fBoardItem != null) {
+			if(bAllBoards)
+				return index.getPackFamilies();
+			if(fSelectedDeviceNames == null)
+				return Collections.emptySet();
+			if(fBoardName == null)
+				return Collections.emptySet();
+			return index.getPackFamiliesForBoard(fBoardName, fSelectedDeviceNames);
 		}
+		return Collections.emptySet();
 	}
 
 
@@ -224,35 +242,6 @@ public class PackInstallerViewFilter extends ViewerFilter {
 		
 	}
 
-	protected boolean isDevicePackFamilyFiltered(ICpPackFamily f) {
-		ICpPack pack = f.getPack();
-		if (pack == null) {
-			return false;
-		} 
-		
-		if(pack.isDevicelessPack()) {
-			return false;
-		}
-		
-		if(fDeviceItem != null) {
-			if(bAllDevices)
-				return true;
-			if(fSelectedDeviceNames == null)
-				return false;
-			return packContainsRteDevice(fDeviceItem, pack);
-		} else if (fBoardItem != null) {
-			if(bAllBoards)
-				return true;
-			if(fSelectedDeviceNames == null)
-				return false;
-			if(fBoardName == null)
-				return false;
-			return packContainsBoard(fBoardItem, pack); 
-		}
-		return false;
-	}
-
-	
 	protected boolean selectPacks(ICpPackFamily f) {
 		ICpPack pack = f.getPack();
 		if (pack == null) {
@@ -267,114 +256,6 @@ public class PackInstallerViewFilter extends ViewerFilter {
 	}
 	
 
-	/**
-	 * @param board The board
-	 * @param pack	The pack
-	 * @return		true if pack contains this board, otherwise false
-	 */
-	private boolean packContainsBoard(IRteBoardItem board, ICpPack pack) {
-
-		// check if the pack contains a board
-		Set<String> boardNames = pack.getBoardNames();
-		if(boardNames != null && boardNames.contains(fBoardName))
-			return true;
-
-		Set<String> devicesContainedInPack = pack.getAllDeviceNames();
-		if (Utils.checkIfIntersect(fSelectedDeviceNames, devicesContainedInPack)) {
-			return true;
-		}
-		
-		IRteDeviceItem mountedDevices = board.getMountedDevices();
-		IRteDeviceItem compatibleDevices = board.getCompatibleDevices();
-
-		return packContainsRteDevice(mountedDevices, pack) ||
-				packContainsRteDevice(compatibleDevices, pack);
-	}
-
-	/**
-	 * Convert the ICpItem to IRteDeviceItem
-	 * @param item
-	 * @return the corresponding IRteDeviceItem, null if no matching IRteDeviceItem is found
-	 */
-	private IRteDeviceItem convertCpItemToRteDeviceItem(ICpItem item) {
-
-		String vendorName = item.getVendor();
-		String deviceName = CmsisConstants.EMPTY_STRING;
-		if (item.hasAttribute(CmsisConstants.DFAMILY)) {
-			deviceName = item.getAttribute(CmsisConstants.DFAMILY);
-		} else if (item.hasAttribute(CmsisConstants.DSUBFAMILY)) {
-			deviceName = item.getAttribute(CmsisConstants.DSUBFAMILY);
-		} else if (item.hasAttribute(CmsisConstants.DNAME)) {
-			deviceName = item.getAttribute(CmsisConstants.DNAME);
-		} else if (item.hasAttribute(CmsisConstants.DVARIANT)) {
-			deviceName = item.getAttribute(CmsisConstants.DVARIANT);
-		}
-
-		if (vendorName.isEmpty()) {
-			return null;
-		}
-
-		IRteDeviceItem allRteDevices = CpPlugIn.getPackManager().getDevices();
-		if (deviceName.isEmpty()) {
-			return allRteDevices.getVendorItem(vendorName);
-		}
-
-		return allRteDevices.findItem(deviceName, vendorName, false);
-	}
-
-	private boolean packContainsRteDevice(IRteDeviceItem deviceItem, ICpPack pack) {
-		if (deviceItem == null) {
-			return false;
-		}
-
-		if(deviceItem == fDeviceItem) {
-			Set<String> devicesContainedInPack = pack.getAllDeviceNames();
-			if (Utils.checkIfIntersect(fSelectedDeviceNames, devicesContainedInPack)) {
-				return true;
-			}
-		}
-
-		
-		// Check if the mounted devices or compatible devices on this pack's board
-		// intersect with deviceItem's devices
-		Collection<? extends ICpItem> boards = pack.getGrandChildren(CmsisConstants.BOARDS_TAG);
-		if (boards == null || boards.isEmpty()) {
-			return false;
-		}
-		for (ICpItem item : boards) {
-			if(!(item instanceof ICpBoard)) {
-				continue;
-			}
-			ICpBoard b = (ICpBoard)item;
-			Collection<ICpItem> mountedDevices = b.getMountedDevices();
-			for (ICpItem mountedDevice : mountedDevices) {
-				IRteDeviceItem mountedDeviceItemInPack = convertCpItemToRteDeviceItem(mountedDevice);
-				if (mountedDeviceItemInPack == null) {
-					continue;
-				}
-				Set<String> temp = mountedDeviceItemInPack.getAllDeviceNames();
-				if (Utils.checkIfIntersect(temp, fSelectedDeviceNames)) {
-					return true;
-				}
-			}
-			Collection<ICpItem> compatibleDevices = b.getCompatibleDevices();
-			for (ICpItem compatibleDevice : compatibleDevices) {
-				// Check intersection
-				IRteDeviceItem compatibleDeviceItemInPack = convertCpItemToRteDeviceItem(compatibleDevice);
-				if (compatibleDeviceItemInPack == null) {
-					continue;
-				}
-				// Check intersection
-				Set<String> temp = compatibleDeviceItemInPack.getAllDeviceNames();
-				if (Utils.checkIfIntersect(temp, fSelectedDeviceNames)) {
-					return true;
-				}
-			}
-		}
-
-		return false;
-	}
-
 	private boolean selectExamples(IRteExampleItem exampleItem ) {
 
 		if (exampleItem == null) {
@@ -537,6 +537,7 @@ public abstract class PackInstallerView extends ViewPart implements IRteEventLis
 		case RteEvent.PACK_INSTALL_JOB_FINISHED:
 		case RteEvent.PACK_REMOVE_JOB_FINISHED:
 		case RteEvent.PACK_DELETE_JOB_FINISHED:
+		case RteEvent.PACKS_UPDATED:
 			fViewer.refresh();
 			break;
 		default:
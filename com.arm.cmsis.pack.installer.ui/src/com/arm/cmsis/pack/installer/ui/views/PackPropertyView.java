@@ -597,6 +597,7 @@ public class PackPropertyView extends PackInstallerView {
 		String topic = event.getTopic();
 		switch(topic) {
 		case RteEvent.PACKS_RELOADED:
+		case RteEvent.PACKS_UPDATED:
 		case PackInstallerViewController.INSTALLER_UI_PACK_CHANGED:
 			refresh();
 		default:
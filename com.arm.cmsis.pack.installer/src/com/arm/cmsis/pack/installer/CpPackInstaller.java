@@ -14,16 +14,16 @@
 package com.arm.cmsis.pack.installer;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InterruptedIOException;
-import java.io.OutputStream;
 import java.lang.reflect.InvocationTargetException;
+import java.net.MalformedURLException;
 import java.net.SocketTimeoutException;
+import java.net.URL;
 import java.net.UnknownHostException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
@@ -35,9 +35,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IProjectDescription;
@@ -86,8 +92,10 @@ import com.arm.cmsis.pack.repository.CpRepositoryList;
 import com.arm.cmsis.pack.repository.ICpRepository;
 import com.arm.cmsis.pack.repository.RtePackJobResult;
 import com.arm.cmsis.pack.rte.RteModelUtils;
+import com.arm.cmsis.pack.utils.DaemonThreadFactory;
 import com.arm.cmsis.pack.utils.Utils;
 import com.arm.cmsis.pack.utils.VersionComparator;
+import com.arm.cmsis.pack.utils.ZipExtractor;
 
 /**
  * Default implementation of {@link ICpPackInstaller}
@@ -106,6 +114,15 @@ public class CpPackInstaller extends PlatformObject implements ICpPackInstaller
 
 	protected ICpRepoServiceProvider fRepoServiceProvider;
 
+	// maximum number of pdsc files downloaded in parallel, 1 means sequential download
+	protected int nDownloadThreads = 8;
+	// maximum number of parallel connections to the same host
+	protected int nDownloadsPerHost = 4;
+	// maximum number of files extracted in parallel from a pack, 1 means sequential extraction
+	protected int nUnzipThreads = DaemonThreadFactory.getDefaultThreadCount();
+	// ensures only one timeout question is shown at a time
+	protected final Object fTimeoutLock = new Object();
+
 	public CpPackInstaller() {
 		fJobQueue = Collections.synchronizedMap(new HashMap<>());
 		fResolvingPacks = Collections.synchronizedMap(new HashMap<>());
@@ -318,48 +335,21 @@ public class CpPackInstaller extends PlatformObject implements ICpPackInstaller
 		job.schedule();
 	}
 
+	/**
+	 * Extracts the archive directly into the destination, existing content is removed.
+	 * The destination is expected to be a staging folder of the caller, see CpPackUnpackJob
+	 */
 	@Override
 	public boolean unzip(File archiveFile, IPath destPath, IProgressMonitor monitor) throws IOException {
-		SubMonitor progress = SubMonitor.convert(monitor, Utils.getFilesCount(archiveFile));
-
-		if (destPath.toFile().exists()) {
-			Utils.deleteFolderRecursive(destPath.toFile());
-		}
-		ZipInputStream zipInput = new ZipInputStream(new FileInputStream(archiveFile));
-		ZipEntry zipEntry = zipInput.getNextEntry();
-
-		int countBytes = 0;
-		boolean result = true;
-		for (; zipEntry != null; zipEntry = zipInput.getNextEntry()) {
-			if (progress.isCanceled()) {
-				result = false;
-				break;
-			}
-			if (zipEntry.isDirectory())
-				continue;
-			String fileName = zipEntry.getName();
-			IPath path = destPath.append(fileName);
-			File outFile = new File(path.toOSString());
-			if (!outFile.getParentFile().exists()) {
-				outFile.getParentFile().mkdirs();
+		try (ZipExtractor extractor = new ZipExtractor(archiveFile)) {
+			SubMonitor progress = SubMonitor.convert(monitor, extractor.getFilesCount());
+			extractor.setThreads(nUnzipThreads);
+			File destDir = destPath.toFile();
+			if (destDir.exists()) {
+				Utils.deleteFolderRecursive(destDir);
 			}
-			OutputStream output = new FileOutputStream(outFile);
-			byte[] buf = new byte[4096]; // 4096 is a common NTFS block size
-			int bytesRead;
-			while ((bytesRead = zipInput.read(buf)) > 0) {
-				output.write(buf, 0, bytesRead);
-				countBytes += bytesRead;
-			}
-			output.close();
-			outFile.setReadOnly();
-			progress.worked(1);
-		}
-		zipInput.closeEntry();
-		zipInput.close();
-		if(countBytes  == 0) { // something went wrong, empty archive? 
-			throw new IOException(); // caller adds message
+			return extractor.extractInto(destDir, progress::isCanceled, progress::worked);
 		}
-		return result;
 	}
 
 	@Override
@@ -492,6 +482,38 @@ public class CpPackInstaller extends PlatformObject implements ICpPackInstaller
 		}
 	}
 
+	/**
+	 * Returns maximum number of pdsc files downloaded in parallel
+	 * @return number of download threads, 1 if pdsc files are downloaded sequentially
+	 */
+	public int getDownloadThreads() {
+		return nDownloadThreads;
+	}
+
+	/**
+	 * Sets maximum number of pdsc files downloaded in parallel
+	 * @param nThreads number of download threads, 1 or less to download sequentially
+	 */
+	public void setDownloadThreads(int nThreads) {
+		nDownloadThreads = nThreads > 1 ? nThreads : 1;
+	}
+
+	/**
+	 * Returns maximum number of parallel connections to the same host
+	 * @return number of connections per host
+	 */
+	public int getDownloadsPerHost() {
+		return nDownloadsPerHost;
+	}
+
+	/**
+	 * Sets maximum number of parallel connections to the same host
+	 * @param nDownloads number of connections per host, at least 1
+	 */
+	public void setDownloadsPerHost(int nDownloads) {
+		nDownloadsPerHost = nDownloads > 1 ? nDownloads : 1;
+	}
+
 	@Override
 	public ICpRepoServiceProvider getRepoServiceProvider() {
 		return fRepoServiceProvider;
@@ -721,6 +743,9 @@ public class CpPackInstaller extends PlatformObject implements ICpPackInstaller
 
 		// repo keys: { "type", "url", "list" }
 
+		// String[] { url, name, destination file }
+		List<String[]> downloads = new ArrayList<String[]>();
+
 		// String[] { url, name, version }
 		for (int i = 0; i < list.size(); i++) {
 			String[] pdsc = list.get(i);
@@ -735,8 +760,6 @@ public class CpPackInstaller extends PlatformObject implements ICpPackInstaller
 			final String pdscVersion = pdsc[2];
 			final String packFamilyId = Utils.extractBaseFileName(pdscName);
 
-			fMonitor.subTask(NLS.bind(Messages.CpPackInstaller_Updating, pdscName, pdscUrl));
-
 			String destFileName = webFolder.append(pdscName).toOSString();
 
 			// if this is not .idx file and we have already higher version, skip
@@ -746,7 +769,99 @@ public class CpPackInstaller extends PlatformObject implements ICpPackInstaller
 				fMonitor.worked(1);
 				continue;
 			}
-			downloadPdscFile(pdscUrl, pdscName, destFileName);
+			downloads.add(new String[]{pdscUrl, pdscName, destFileName});
+		}
+		downloadPdscFiles(downloads);
+	}
+
+	/**
+	 * Returns maximum number of files extracted in parallel from a pack
+	 * @return number of unzip threads, 1 if files are extracted sequentially
+	 */
+	public int getUnzipThreads() {
+		return nUnzipThreads;
+	}
+
+	/**
+	 * Sets maximum number of files extracted in parallel from a pack
+	 * @param nThreads number of unzip threads, 1 or less to extract sequentially
+	 */
+	public void setUnzipThreads(int nThreads) {
+		nUnzipThreads = nThreads > 1 ? nThreads : 1;
+	}
+
+	/**
+	 * Downloads pdsc files using up to getDownloadThreads() threads and up to getDownloadsPerHost() connections per host.
+	 * Progress is reported and cancellation is checked by the calling thread
+	 * @param downloads list of files to download, each entry is { url, name, destination file }
+	 */
+	protected void downloadPdscFiles(List<String[]> downloads) {
+		int nThreads = Math.min(nDownloadThreads, downloads.size());
+		if (nThreads <= 1) {
+			for (String[] d : downloads) {
+				if (fMonitor.isCanceled()) {
+					break;
+				}
+				fMonitor.subTask(NLS.bind(Messages.CpPackInstaller_Updating, d[1], d[0]));
+				downloadPdscFile(d[0], d[1], d[2]);
+			}
+			return;
+		}
+
+		Map<String, Semaphore> hostLimits = new HashMap<String, Semaphore>();
+		ExecutorService executor = Executors.newFixedThreadPool(nThreads, new DaemonThreadFactory("CMSIS Pdsc Download")); //$NON-NLS-1$
+		CompletionService<Boolean> completionService = new ExecutorCompletionService<Boolean>(executor);
+		Map<Future<Boolean>, String[]> submitted = new HashMap<Future<Boolean>, String[]>();
+		try {
+			for (final String[] d : downloads) {
+				final Semaphore hostLimit = hostLimits.computeIfAbsent(getHost(d[0]), h -> new Semaphore(nDownloadsPerHost));
+				Future<Boolean> future = completionService.submit(() -> {
+					hostLimit.acquire();
+					try {
+						return fetchPdscFile(d[0], d[1], d[2]);
+					} finally {
+						hostLimit.release();
+					}
+				});
+				submitted.put(future, d);
+			}
+
+			int remaining = submitted.size();
+			while (remaining > 0 && !fMonitor.isCanceled()) {
+				Future<Boolean> future = completionService.poll(100, TimeUnit.MILLISECONDS);
+				if (future == null) {
+					continue;
+				}
+				remaining--;
+				String[] d = submitted.get(future);
+				fMonitor.subTask(NLS.bind(Messages.CpPackInstaller_Updating, d[1], d[0]));
+				try {
+					if (future.get()) {
+						fMonitor.worked(1);
+					}
+				} catch (ExecutionException e) {
+					printInConsole(e.getCause().toString(), ConsoleType.ERROR);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			executor.shutdownNow();
+			// do not wait for running downloads: blocked connection reads ignore interrupts.
+			// The download threads are daemons, they check the monitor and exit after their current read completes or times out
+		}
+	}
+
+	/**
+	 * Returns host name to limit number of connections for
+	 * @param url URL string
+	 * @return host name or the URL itself if it cannot be parsed
+	 */
+	protected static String getHost(String url) {
+		try {
+			return new URL(url).getHost();
+		} catch (MalformedURLException e) {
+			return url;
 		}
 	}
 	
@@ -760,7 +875,23 @@ public class CpPackInstaller extends PlatformObject implements ICpPackInstaller
 	 *         False if this pdsc file needs to be downloaded again.
 	 */
 	private boolean downloadPdscFile(String pdscUrl, String pdscName, String destFileName) {
-		
+		if (!fetchPdscFile(pdscUrl, pdscName, destFileName)) {
+			return false;
+		}
+		// One more unit completed
+		fMonitor.worked(1);
+		return true;
+	}
+
+	/**
+	 * Downloads the pdsc file without reporting progress, can be called by download threads
+	 *
+	 * @param pdscUrl URL of the pdsc file
+	 * @param pdscName pdsc file name
+	 * @param destFileName destination file name
+	 * @return true if this pdsc file is successfully downloaded, false otherwise
+	 */
+	protected boolean fetchPdscFile(String pdscUrl, String pdscName, String destFileName) {
 		while(true) { // while for timeout
 			if(fMonitor.isCanceled())
 				return false;
@@ -774,7 +905,13 @@ public class CpPackInstaller extends PlatformObject implements ICpPackInstaller
 				printInConsole(NLS.bind(Messages.CpPackInstallJob_UnknownHostException, e.getMessage()), ConsoleType.ERROR);
 				return false;
 			} catch (SocketTimeoutException e) {
-				int wait = timeoutQuestion(pdscUrl);
+				int wait;
+				synchronized (fTimeoutLock) {
+					if (fMonitor.isCanceled()) {
+						return false; // cancelled while waiting for another question
+					}
+					wait = timeoutQuestion(pdscUrl);
+				}
 				if (wait == 0) { // Yes
 					return false;
 				} else if (wait == 1) { // No
@@ -795,8 +932,6 @@ public class CpPackInstaller extends PlatformObject implements ICpPackInstaller
 			}
 			break;
 		}
-		// One more unit completed
-		fMonitor.worked(1);
 		return true;
 	}
 
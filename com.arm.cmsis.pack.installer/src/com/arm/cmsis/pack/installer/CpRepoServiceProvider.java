@@ -99,37 +99,39 @@ public class CpRepoServiceProvider implements ICpRepoServiceProvider {
 		}
 
 		if (connection != null) {
+			boolean finished = false;
 			try{
-				InputStream input = connection.getInputStream();
-				OutputStream output = new FileOutputStream(destFileTmp);
-				boolean finished = true;
-				byte[] buf = new byte[4096]; // 4096 is a common NTFS block size
-				int bytesRead;
-				while ((bytesRead = input.read(buf)) > 0) {
-					output.write(buf, 0, bytesRead);
-					// Check if the cancel button is pressed
-					if (monitor.isCanceled()) {
-						finished = false;
-						break;
+				try (InputStream input = connection.getInputStream();
+						OutputStream output = new FileOutputStream(destFileTmp)) {
+					boolean canceled = false;
+					byte[] buf = new byte[4096]; // 4096 is a common NTFS block size
+					int bytesRead;
+					while ((bytesRead = input.read(buf)) > 0) {
+						output.write(buf, 0, bytesRead);
+						// Check if the cancel button is pressed
+						if (monitor.isCanceled()) {
+							canceled = true;
+							break;
+						}
 					}
-				}
-				output.close();
-				if (input != null) {
-					input.close();
+					finished = !canceled;
 				}
 				if (finished) {
 					destFile = new File(destFileName);
 					Utils.copy(destFileTmp, destFile);
 					destFile.setReadOnly();
 				}
-				if (destFileTmp.exists()) {
-					destFileTmp.delete();
-				} 
 			} finally {
-				if (connection instanceof HttpURLConnection) {
+				// completely read connection is kept alive to be reused for the next pdsc file from the same host
+				if (!finished && connection instanceof HttpURLConnection) {
 					((HttpURLConnection) connection).disconnect();
 				}
+				if (destFileTmp.exists()) {
+					destFileTmp.delete();
+				}
 			}
+		} else if (destFileTmp.exists()) {
+			destFileTmp.delete();
 		}
 		return destFile;
 	}
@@ -143,8 +143,10 @@ public class CpPackUnpackJob extends CpPackJob {
 
 		File tempFolder = null;
 		try {
-			// unzip pack to a temporary folder
-			tempFolder = Files.createTempDirectory(CmsisConstants.CMSIS).toFile();
+			// unzip pack directly to a hidden temporary folder next to the destination: it is the only staging folder, moved by renaming
+			File parentFolder = fDestPath.removeLastSegments(1).toFile();
+			parentFolder.mkdirs();
+			tempFolder = Files.createTempDirectory(parentFolder.toPath(), "." + fDestPath.lastSegment() + ".").toFile(); //$NON-NLS-1$ //$NON-NLS-2$
 			IPath tempDestPath = new Path(tempFolder.getAbsolutePath());
 
 			if (!fPackInstaller.unzip(sourceFile, tempDestPath, progress.newChild(95))) {
@@ -160,12 +162,13 @@ public class CpPackUnpackJob extends CpPackJob {
 			if (!checkLicense(pack, progress)) {
 				return false;
 			}
-			// copy pack from temporary directory to the destination
-			Utils.copyDirectory(tempFolder, fDestPath.toFile());
+			// move pack from temporary directory to the destination
+			Utils.moveDirectory(tempFolder, fDestPath.toFile());
+			String pdscFile = fDestPath.append(Utils.extractBaseFileName(pack.getFileName())).toString();
+			pack.setFileName(pdscFile);
 			
 			// copy pdsc to download directory
 			IPath downloadPath = new Path(CpPlugIn.getPackManager().getCmsisPackDownloadDir());
-			String pdscFile = pack.getFileName();  
 			Utils.copy(new File(pdscFile), downloadPath.append(pack.getId() + CmsisConstants.EXT_PDSC).toFile());
 			if (isLocalPack(pack)) {
 				copyToLocal(pack);
@@ -173,8 +176,6 @@ public class CpPackUnpackJob extends CpPackJob {
 
 			// convert pack to installed
 			pack.setPackState(PackState.INSTALLED);
-			pdscFile = fDestPath.append(Utils.extractBaseFileName(pdscFile)).toString();
-			pack.setFileName(pdscFile);
 			// set successful result 
 			fResult.setPack(pack);
 			fResult.setSuccess(true);
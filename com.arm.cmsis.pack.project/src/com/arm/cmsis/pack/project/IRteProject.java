@@ -161,4 +161,22 @@ public interface IRteProject extends IAdaptable {
 	 */
 	void setUpdateCompleted(boolean completed);
 
+	/**
+	 * Returns state of the project after the last successful update
+	 * @return RteProjectUpdateState or null if the next update must process the whole project, default returns null
+	 */
+	default RteProjectUpdateState getUpdateState() {
+		return null;
+	}
+
+	/**
+	 * Sets state of the project after an update (should be called from an object that updates this project)
+	 * <p/>
+	 * Default implementation does not keep the state: every update processes the whole project
+	 * @param state RteProjectUpdateState or null to force full update next time
+	 */
+	default void setUpdateState(RteProjectUpdateState state) {
+		// does nothing by default
+	}
+
 }
@@ -32,6 +32,7 @@ public class RteProject extends PlatformObject implements IRteProject {
 	protected IRteConfiguration fRteConfiguration = null;
 	protected RteProjectStorage fRteProjectStorage = null;
 	private boolean bUpdateCompleted = false;
+	private RteProjectUpdateState fUpdateState = null;
 
 	/**
 	 * Constructs RteProject for given project
@@ -44,6 +45,7 @@ public class RteProject extends PlatformObject implements IRteProject {
 	@Override
 	public void destroy() {
 		fRteConfiguration = null;
+		setUpdateState(null);
 		fRteProjectStorage = null;
 	}
 
@@ -58,6 +60,16 @@ public class RteProject extends PlatformObject implements IRteProject {
 
 	}
 
+	@Override
+	synchronized public RteProjectUpdateState getUpdateState() {
+		return fUpdateState;
+	}
+
+	@Override
+	synchronized public void setUpdateState(RteProjectUpdateState state) {
+		fUpdateState = state;
+	}
+
 	@Override
 	public String getName() {
 		return fName;
@@ -122,6 +134,7 @@ public class RteProject extends PlatformObject implements IRteProject {
 	@Override
 	public void load() throws CoreException {
 		setUpdateCompleted(false);
+		setUpdateState(null); // project storage is reloaded: update everything
 		processRteStorages(false);
 		update(RteProjectUpdater.LOAD_CONFIGS);
 	}
@@ -113,7 +113,16 @@ public class RteProjectManager extends RteEventProxy implements IResourceChangeL
 	 * @param project IProject associated with an RTE project
 	 */
 	public void updateIndex(IProject project) {
-		if(rteSetupParticipant != null) {
+		updateIndex(project, true);
+	}
+
+	/**
+	 * Notifies listeners that project is updated, optionally triggers index update
+	 * @param project updated IProject
+	 * @param bReindex true if include paths, defines or source files have changed and project must be re-indexed
+	 */
+	public void updateIndex(IProject project, boolean bReindex) {
+		if(bReindex && rteSetupParticipant != null) {
 			rteSetupParticipant.updateIndex(project);
 		}
 		emitRteEvent(RteEvent.PROJECT_UPDATED, getRteProject(project));
@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2015 ARM Ltd. and others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * ARM Ltd and ARM Germany GmbH - Initial API and implementation
+ *******************************************************************************/
+
+package com.arm.cmsis.pack.project;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import com.arm.cmsis.pack.build.IBuildSettings;
+import com.arm.cmsis.pack.configuration.IRteConfiguration;
+import com.arm.cmsis.pack.data.ICpFile;
+import com.arm.cmsis.pack.info.ICpDeviceInfo;
+import com.arm.cmsis.pack.info.ICpFileInfo;
+
+/**
+ * Snapshot of RTE configuration content applied to a project by RteProjectUpdater:
+ * project files with their sources and build settings.
+ * The snapshot of the last successful update is compared with the new one to apply only the differences.
+ */
+public class RteProjectUpdateState {
+
+	protected Map<String, String> fFileKeys = new HashMap<String, String>(); // project-relative path -> file key
+	protected String fBuildKey = null;
+
+	/**
+	 * Creates snapshot of the configuration as it is loaded, before the project update modifies it
+	 * @param rteConf IRteConfiguration to take the snapshot of
+	 */
+	public RteProjectUpdateState(IRteConfiguration rteConf) {
+		if(rteConf == null) {
+			return;
+		}
+		Map<String, ICpFileInfo> fileMap = rteConf.getProjectFiles();
+		if(fileMap != null) {
+			for (Entry<String, ICpFileInfo> e : fileMap.entrySet()) {
+				fFileKeys.put(e.getKey(), getFileKey(e.getValue()));
+			}
+		}
+		fBuildKey = getBuildKey(rteConf);
+	}
+
+	/**
+	 * Returns keys of project files
+	 * @return map of project-relative path to file key
+	 */
+	public Map<String, String> getFileKeys() {
+		return Collections.unmodifiableMap(fFileKeys);
+	}
+
+	/**
+	 * Checks if project file is added or changed its source, role or version since the previous state
+	 * @param previous previous state
+	 * @param projectRelativePath file to check
+	 * @return true if file is new or changed
+	 */
+	public boolean isFileChanged(RteProjectUpdateState previous, String projectRelativePath) {
+		String key = fFileKeys.get(projectRelativePath);
+		return key == null || !key.equals(previous.fFileKeys.get(projectRelativePath));
+	}
+
+	/**
+	 * Checks if device or build settings (defines, include paths, libraries, etc.) have changed since the previous state
+	 * @param previous previous state
+	 * @return true if build settings must be updated
+	 */
+	public boolean isBuildChanged(RteProjectUpdateState previous) {
+		return fBuildKey == null || !fBuildKey.equals(previous.fBuildKey);
+	}
+
+	/**
+	 * Returns string describing file source, role and version
+	 * @param fi ICpFileInfo
+	 * @return file key
+	 */
+	protected static String getFileKey(ICpFileInfo fi) {
+		ICpFile f = fi.getFile();
+		String src = f != null ? f.getAbsolutePath(f.getName()) : null;
+		return fi.getRole() + ":" + fi.getVersion() + ":" + src; //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	/**
+	 * Returns string describing device and build settings
+	 * @param rteConf IRteConfiguration
+	 * @return build key or null if configuration provides no build settings or their values
+	 */
+	protected static String getBuildKey(IRteConfiguration rteConf) {
+		IBuildSettings buildSettings = rteConf.getBuildSettings();
+		if(buildSettings == null) {
+			return null;
+		}
+		StringBuilder sb = new StringBuilder();
+		ICpDeviceInfo deviceInfo = rteConf.getDeviceInfo();
+		if(deviceInfo != null) {
+			Map<String, String> attributes = deviceInfo.attributes().getAttributesAsMap();
+			if(attributes != null) {
+				sb.append(new TreeMap<String, String>(attributes));
+			}
+		}
+		Map<Integer, Collection<String>> values = buildSettings.getStringListValues();
+		if(values == null) {
+			return null; // build settings cannot be compared: always update them
+		}
+		sb.append(new TreeMap<Integer, Collection<String>>(values));
+		return sb.toString();
+	}
+}
@@ -2,7 +2,10 @@ package com.arm.cmsis.pack.project;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.file.Files;
 import java.text.SimpleDateFormat;
 import java.util.Collection;
 import java.util.Date;
@@ -14,6 +17,7 @@ import java.util.stream.Collectors;
 import org.eclipse.cdt.managedbuilder.core.IConfiguration;
 import org.eclipse.cdt.managedbuilder.core.IManagedBuildInfo;
 import org.eclipse.cdt.managedbuilder.core.ManagedBuildManager;
+import org.eclipse.core.resources.IContainer;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IMarker;
@@ -77,6 +81,8 @@ public class RteProjectUpdater extends WorkspaceJob {
 	protected RteProjectStorage projectStorage = null; 
 	protected IRteToolChainAdapter toolChainAdapter = null;
 	protected IAttributes rteOptionsFromToolchain = null;
+	protected ProjectUtils.ResourceBatch resourceBatch = null; // links, copies and exclude changes of this update
+	protected boolean bResourcesChanged = false; // files were added to or removed from project
 	
 
 	public RteProjectUpdater(IRteProject rteProject, int updateFlags) {
@@ -132,20 +138,39 @@ public class RteProjectUpdater extends WorkspaceJob {
 				//	rteConsole.outputInfo(Messages.RteProjectUpdater_LoadingRteConfiguration);
 				res = loadConfigFile();
 			}
-			// rteConsole.outputInfo(Messages.RteProjectUpdater_UpdatingResources);
-			addResources();
-			removeResources();
+			// differences can only be applied if the previous update has succeeded
+			RteProjectUpdateState previousState = rteProject.getUpdateState();
+			rteProject.setUpdateState(null);
+			if (bForceUpdateToolchain || bDeleteConfigFiles) {
+				previousState = null;
+			}
+			RteProjectUpdateState state = new RteProjectUpdateState(rteProject.getRteConfiguration());
+
+			boolean bReindex = true;
+			resourceBatch = new ProjectUtils.ResourceBatch(project);
+			if (previousState == null) {
+				// rteConsole.outputInfo(Messages.RteProjectUpdater_UpdatingResources);
+				resourceBatch.run(m -> {
+					addResources();
+					removeResources();
+				}, monitor);
 
-			updateRteComponentsH();
+				updateRteComponentsH();
 
-			//rteConsole.outputInfo(Messages.RteProjectUpdater_UpdatingBuildSettings);
-			updateBuildSettings(bForceUpdateToolchain);
+				//rteConsole.outputInfo(Messages.RteProjectUpdater_UpdatingBuildSettings);
+				updateBuildSettings(bForceUpdateToolchain);
+			} else {
+				bReindex = updateChanges(previousState, state);
+			}
 
 			if (bSaveProject) {
 				rteProject.save();
 			}
-			project.refreshLocal(IResource.DEPTH_INFINITE, monitor);
-			updateIndex();
+			if (previousState == null) {
+				project.refreshLocal(IResource.DEPTH_INFINITE, monitor);
+			}
+			updateIndex(bReindex);
+			rteProject.setUpdateState(state);
 
 		} catch (CoreException e) {
 			status = new Status(e.getStatus().getSeverity(), CpPlugInUI.PLUGIN_ID,
@@ -216,8 +241,100 @@ public class RteProjectUpdater extends WorkspaceJob {
 	}
 
 	protected void updateIndex() {
+		updateIndex(true);
+	}
+
+	/**
+	 * Completes project update
+	 * @param bReindex true if project index must be updated
+	 */
+	protected void updateIndex(boolean bReindex) {
 		rteProject.setUpdateCompleted(true);
-		CpProjectPlugIn.getRteProjectManager().updateIndex(project);
+		CpProjectPlugIn.getRteProjectManager().updateIndex(project, bReindex);
+	}
+
+	/**
+	 * Applies differences between previous and new RTE configuration: adds new and changed files,
+	 * removes files that are no longer used and updates build settings if they have changed.
+	 * Written files are refreshed individually.
+	 * @param previousState state after the previous successful update
+	 * @param state state of the new configuration
+	 * @return true if project files were added or removed or build settings have changed
+	 * @throws CoreException
+	 */
+	protected boolean updateChanges(RteProjectUpdateState previousState, RteProjectUpdateState state) throws CoreException {
+		bResourcesChanged = false;
+		resourceBatch.run(m -> updateChangedResources(previousState, state), monitor);
+		boolean bChanged = bResourcesChanged;
+
+		updateRteComponentsH();
+
+		if (state.isBuildChanged(previousState)) {
+			updateBuildSettings(false);
+			bChanged = true;
+		}
+		return bChanged;
+	}
+
+	/**
+	 * Adds new and changed files, removes files that are no longer used
+	 * @param previousState state after the previous successful update
+	 * @param state state of the new configuration
+	 * @throws CoreException
+	 */
+	protected void updateChangedResources(RteProjectUpdateState previousState, RteProjectUpdateState state) throws CoreException {
+		IRteConfiguration rteConf = rteProject.getRteConfiguration();
+		if (rteConf != null) {
+			Map<String, ICpFileInfo> fileMap = rteConf.getProjectFiles();
+			for (Entry<String, ICpFileInfo> e : fileMap.entrySet()) {
+				String projectRelativePath = e.getKey();
+				ICpFileInfo fi = e.getValue();
+				if (state.isFileChanged(previousState, projectRelativePath) || !project.getFile(projectRelativePath).exists()) {
+					if (!previousState.getFileKeys().containsKey(projectRelativePath)) {
+						bResourcesChanged = true;
+					}
+					addFile(rteConf, projectRelativePath, fi);
+				} else {
+					// file is already in project, take over its version as addFile() does for existing files
+					String savedVersion = getFileVersion(projectRelativePath);
+					if (savedVersion != null) {
+						fi.setVersion(savedVersion);
+					}
+				}
+			}
+		}
+
+		for (String projectRelativePath : previousState.getFileKeys().keySet()) {
+			if (state.getFileKeys().containsKey(projectRelativePath)) {
+				continue;
+			}
+			IResource res = project.findMember(projectRelativePath);
+			if (res == null) {
+				continue;
+			}
+			bResourcesChanged = true;
+			IContainer parent = res.getParent();
+			removeResources(res);
+			removeEmptyFolders(parent);
+		}
+	}
+
+	/**
+	 * Deletes empty folders inside RTE folder starting from the given one
+	 * @param container IContainer to start with
+	 * @throws CoreException
+	 */
+	protected void removeEmptyFolders(IContainer container) throws CoreException {
+		IContainer c = container;
+		while (c instanceof IFolder && c.exists() && !c.getName().equals(CmsisConstants.RTE)) {
+			IPath path = c.getProjectRelativePath();
+			if (!CmsisConstants.RTE.equals(path.segment(0)) || c.members().length > 0) {
+				return;
+			}
+			IContainer parent = c.getParent();
+			c.delete(true, true, null);
+			c = parent;
+		}
 	}
 
 	protected EEvaluationResult loadConfigFile() throws CoreException {
@@ -325,10 +442,10 @@ public class RteProjectUpdater extends WorkspaceJob {
 				} else if (bDeleteConfigFiles) {
 					res.delete(IResource.FORCE | IResource.KEEP_HISTORY, monitor);
 				} else {
-					ProjectUtils.setExcludeFromBuild(project, dstFile, true);
+					resourceBatch.setExcludeFromBuild(dstFile, true);
 				}
-			} else if (ProjectUtils.isExcludedFromBuild(project, dstFile)) {
-				ProjectUtils.setExcludeFromBuild(project, dstFile, false);
+			} else if (resourceBatch.isExcludedFromBuild(dstFile)) {
+				resourceBatch.setExcludeFromBuild(dstFile, false);
 			}
 		} else if (res.getType() == IResource.FOLDER) {
 			IFolder f = (IFolder) res;
@@ -408,7 +525,7 @@ public class RteProjectUpdater extends WorkspaceJob {
 					}
 				}
 			}
-			int bCopied = ProjectUtils.copyFile(project, srcFile, dstFile, index, monitor, false);
+			int bCopied = resourceBatch.copyFile(srcFile, dstFile, index, monitor, false);
 			if (bCopied == 1) {
 				updateFileVersion(dstFile, fi.getVersion(), true);
 			} else if (bCopied == -1) {
@@ -418,7 +535,7 @@ public class RteProjectUpdater extends WorkspaceJob {
 				}
 			}
 		} else if (role == EFileRole.COPY) {
-			int bCopied = ProjectUtils.copyFile(project, srcFile, dstFile, -1, monitor, false);
+			int bCopied = resourceBatch.copyFile(srcFile, dstFile, -1, monitor, false);
 			if (bCopied == 1) {
 				updateFileVersion(dstFile, fi.getVersion(), true);
 			} else if (bCopied == -1) {
@@ -430,11 +547,11 @@ public class RteProjectUpdater extends WorkspaceJob {
 		} else if(!local) {
 			srcFile = CpVariableResolver.insertCmsisRootVariable(srcFile);
 			if (srcFile != null) {
-				ProjectUtils.createLink(project, srcFile, dstFile, monitor);
+				resourceBatch.createLink(srcFile, dstFile, monitor);
 			}
 		}
-		if (ProjectUtils.isExcludedFromBuild(project, dstFile)) {
-			ProjectUtils.setExcludeFromBuild(project, dstFile, false);
+		if (resourceBatch.isExcludedFromBuild(dstFile)) {
+			resourceBatch.setExcludeFromBuild(dstFile, false);
 		}
 	}
 
@@ -451,20 +568,37 @@ public class RteProjectUpdater extends WorkspaceJob {
 		return projectStorage.getConfigFileVersion(projectRelativePath);
 	}
 
-	public void updateRteComponentsH() throws CoreException {
+	/**
+	 * Writes RTE_Components.h file if its content has changed
+	 * @return true if the file has been written
+	 * @throws CoreException
+	 */
+	public boolean updateRteComponentsH() throws CoreException {
+		StringWriter sw = new StringWriter();
+		PrintWriter content = new PrintWriter(sw);
+		writeRteComponentsHhead(content);
+		writeRteComponentsHbody(content);
+		writeRteComponentsHtail(content);
+		content.close();
+		String text = sw.toString();
 		// ensure resource exists
 		try {
 			IFile f = ProjectUtils.createFile(project, CmsisConstants.RTE_RTE_Components_h, monitor);
 			IPath p = f.getLocation();
-			p.toFile().setWritable(true);
+			File file = p.toFile();
+			if (file.exists() && text.equals(new String(Files.readAllBytes(file.toPath())))) {
+				return false;
+			}
+			file.setWritable(true);
 			PrintWriter pw = new PrintWriter(p.toOSString());
-			writeRteComponentsHhead(pw);
-			writeRteComponentsHbody(pw);
-			writeRteComponentsHtail(pw);
+			pw.print(text);
 			pw.close();
-		} catch (FileNotFoundException e) {
+			f.refreshLocal(IResource.DEPTH_ZERO, monitor);
+			return true;
+		} catch (IOException e) {
 			e.printStackTrace();
 		}
+		return false;
 	}
 
 	protected void writeRteComponentsHbody(PrintWriter pw) {
@@ -589,6 +723,7 @@ public class RteProjectUpdater extends WorkspaceJob {
 			PrintWriter pw = new PrintWriter(osPath);
 			pw.write(script);
 			pw.close();
+			file.refreshLocal(IResource.DEPTH_ZERO, monitor);
 		} catch (CoreException e) {
 			e.printStackTrace();
 		} catch (FileNotFoundException e) {
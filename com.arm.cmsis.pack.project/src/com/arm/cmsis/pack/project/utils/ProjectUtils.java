@@ -32,6 +32,8 @@ import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
 import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IAdaptable;
@@ -556,5 +558,122 @@ public class ProjectUtils {
 		return p.toString();
 	}
 
-	
+	/**
+	 * Batch of resource updates for one project: links, copies and exclude-from-build changes.
+	 * <p>
+	 * Operations are performed inside a single IWorkspaceRunnable with the project as scheduling rule,
+	 * therefore resource change listeners and builders get one delta for the whole batch.
+	 * Exclude-from-build changes are collected and applied to the active configuration once at the end,
+	 * links that already point to the requested location are not re-created.
+	 * </p>
+	 */
+	public static class ResourceBatch {
+		protected IProject fProject;
+		protected IConfiguration fConfig = null;
+		protected ICSourceEntry[] fSourceEntries = null; // working copy of active configuration source entries
+		protected boolean bSourceEntriesChanged = false;
+
+		/**
+		 * Creates resource batch for the project
+		 * @param project IProject to update
+		 */
+		public ResourceBatch(IProject project) {
+			fProject = project;
+		}
+
+		public IProject getProject() {
+			return fProject;
+		}
+
+		/**
+		 * Runs supplied action as single workspace operation, applies collected changes at the end
+		 * @param action IWorkspaceRunnable performing batch operations
+		 * @param monitor IProgressMonitor
+		 * @throws CoreException
+		 */
+		public void run(IWorkspaceRunnable action, IProgressMonitor monitor) throws CoreException {
+			IWorkspace workspace = ResourcesPlugin.getWorkspace();
+			workspace.run(m -> {
+				action.run(m);
+				applySourceEntries();
+			}, fProject, IWorkspace.AVOID_UPDATE, monitor);
+		}
+
+		/**
+		 * Copies a local file to the project, see {@link ProjectUtils#copyFile(IProject, String, String, int, IProgressMonitor, boolean)}
+		 * @return 1 if the file has been copied, -1 if file already exists or 0 if there is an error
+		 * @throws CoreException
+		 */
+		public int copyFile(String srcFile, String dstFile, int index, IProgressMonitor monitor, boolean forceOverwrite) throws CoreException {
+			return ProjectUtils.copyFile(fProject, srcFile, dstFile, index, monitor, forceOverwrite);
+		}
+
+		/**
+		 * Creates a link to srcFile if the project does not contain the same link yet,
+		 * see {@link ProjectUtils#createLink(IProject, String, String, IProgressMonitor)}
+		 * @throws CoreException
+		 */
+		public void createLink(String srcFile, String dstFile, IProgressMonitor monitor) throws CoreException {
+			IFile file = fProject.getFile(dstFile);
+			if (file.exists() && file.isLinked() && new Path(srcFile).equals(file.getRawLocation())) {
+				return; // link is up to date
+			}
+			ProjectUtils.createLink(fProject, srcFile, dstFile, monitor);
+		}
+
+		/**
+		 * Checks if a folder or file is excluded from build taking collected changes into account
+		 * @param path the resource's relative path to the project
+		 * @return true if the folder or file is excluded from build
+		 */
+		public boolean isExcludedFromBuild(String path) {
+			if (!loadSourceEntries()) {
+				return false;
+			}
+			return CDataUtil.isExcluded(new Path(path), fSourceEntries);
+		}
+
+		/**
+		 * Collects exclude-from-build change, it is applied when the batch action completes
+		 * @param path the resource's relative path to the project
+		 * @param bExclude set to true to exclude the resource from build
+		 */
+		public void setExcludeFromBuild(String path, boolean bExclude) {
+			if (!loadSourceEntries()) {
+				return;
+			}
+			fSourceEntries = CDataUtil.setExcluded(new Path(path), false, bExclude, fSourceEntries);
+			bSourceEntriesChanged = true;
+		}
+
+		/**
+		 * Reads source entries of active configuration on first use
+		 * @return true if source entries are available (MBS project)
+		 */
+		protected boolean loadSourceEntries() {
+			if (fSourceEntries != null) {
+				return true;
+			}
+			IManagedBuildInfo buildInfo = ManagedBuildManager.getBuildInfo(fProject);
+			if (buildInfo == null) {
+				// not a MBS project
+				return false;
+			}
+			fConfig = buildInfo.getDefaultConfiguration();
+			fSourceEntries = fConfig.getSourceEntries();
+			return true;
+		}
+
+		/**
+		 * Applies collected exclude-from-build changes to active configuration at once
+		 */
+		protected void applySourceEntries() {
+			if (bSourceEntriesChanged && fConfig != null) {
+				fConfig.setSourceEntries(fSourceEntries);
+			}
+			fConfig = null;
+			fSourceEntries = null;
+			bSourceEntriesChanged = false;
+		}
+	}
 }
@@ -0,0 +1,204 @@
+/*******************************************************************************
+ * Copyright (c) 2016 ARM Ltd. and others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * ARM Ltd and ARM Germany GmbH - Initial API and implementation
+ *******************************************************************************/
+
+package com.arm.cmsis.pack.refclient;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.arm.cmsis.pack.common.CmsisConstants;
+import com.arm.cmsis.pack.data.ICpComponent;
+import com.arm.cmsis.pack.data.ICpItem;
+import com.arm.cmsis.pack.enums.EEvaluationResult;
+import com.arm.cmsis.pack.parser.PdscParser;
+import com.arm.cmsis.pack.rte.RteConstants;
+import com.arm.cmsis.pack.rte.components.RteComponentRoot;
+import com.arm.cmsis.pack.rte.dependencies.IRteDependency;
+import com.arm.cmsis.pack.rte.dependencies.RteDependency;
+
+/**
+ * Measures dependency evaluation time of {@link RteComponentRoot#findComponents(IRteDependency)}
+ * <p>
+ * A synthetic pack with fixed-width Cclass, Cgroup and Csub names is parsed, its components are added to a component tree
+ * and its require expressions are evaluated. Every expression is evaluated twice: as is, using direct child lookup,
+ * and with '*' appended to the key attributes, which scans the children. Fixed-width names ensure both forms match
+ * the same components, so the evaluation results are compared as well.
+ * </p>
+ */
+public class RefComponentBenchmark {
+
+	private final RteComponentRoot fRoot;
+	private final List<ICpItem> fExpressions;
+	private final List<ICpItem> fWildcardExpressions;
+
+	/**
+	 * Result of a benchmark run
+	 */
+	public static class Result {
+		public final long lookups;
+		public final long nanos;
+
+		Result(long lookups, long nanos) {
+			this.lookups = lookups;
+			this.nanos = nanos;
+		}
+
+		/**
+		 * @return average wall time of a dependency evaluation in microseconds
+		 */
+		public double getMicrosPerLookup() {
+			return lookups > 0 ? nanos / 1000.0 / lookups : 0.0;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d lookups in %d ms: %.2f us/lookup", //$NON-NLS-1$
+					lookups, nanos / 1000000, getMicrosPerLookup());
+		}
+	}
+
+	/**
+	 * Constructs benchmark with a synthetic pack
+	 * @param nClasses number of component classes
+	 * @param nGroups number of groups per class
+	 * @param nSubs number of sub-components per group
+	 * @param nExpressions number of require expressions, every tenth one refers to a missing component
+	 */
+	public RefComponentBenchmark(int nClasses, int nGroups, int nSubs, int nExpressions) {
+		ICpItem pack = new PdscParser().parseXmlString(createPdsc(nClasses, nGroups, nSubs, nExpressions));
+		fRoot = new RteComponentRoot();
+		Collection<? extends ICpItem> components = pack.getGrandChildren(CmsisConstants.COMPONENTS_TAG);
+		if (components != null) {
+			for (ICpItem item : components) {
+				if (item instanceof ICpComponent) {
+					fRoot.addComponent((ICpComponent) item, RteConstants.NONE);
+				}
+			}
+		}
+		fExpressions = new ArrayList<ICpItem>();
+		fWildcardExpressions = new ArrayList<ICpItem>();
+		Collection<? extends ICpItem> conditions = pack.getGrandChildren(CmsisConstants.CONDITIONS_TAG);
+		if (conditions != null) {
+			for (ICpItem condition : conditions) {
+				Collection<? extends ICpItem> expressions = condition.getChildren();
+				if (expressions == null) {
+					continue;
+				}
+				for (ICpItem expression : expressions) {
+					if (expression.getAttribute(CmsisConstants.CCLASS).endsWith("*")) { //$NON-NLS-1$
+						fWildcardExpressions.add(expression);
+					} else {
+						fExpressions.add(expression);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates pdsc string with components "ClassNN:GroupNNN:SubN" and require expressions referring to them.
+	 * Every expression is written twice: the second one has '*' appended to its key attributes.
+	 */
+	private static String createPdsc(int nClasses, int nGroups, int nSubs, int nExpressions) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"); //$NON-NLS-1$
+		sb.append("<package schemaVersion=\"1.4\">\n"); //$NON-NLS-1$
+		sb.append("<vendor>ARM</vendor>\n<name>Benchmark</name>\n"); //$NON-NLS-1$
+		sb.append("<releases><release version=\"1.0.0\">Benchmark</release></releases>\n"); //$NON-NLS-1$
+		sb.append("<conditions>\n<condition id=\"Benchmark\">\n"); //$NON-NLS-1$
+		for (int i = 0; i < nExpressions; i++) {
+			int c = (i * 7) % nClasses;
+			int g = (i * 13) % nGroups;
+			int s = (i * 3) % nSubs;
+			String sub = i % 10 == 9 ? "Missing" : String.format("Sub%d", s); //$NON-NLS-1$ //$NON-NLS-2$
+			sb.append(String.format("<require Cclass=\"Class%02d\" Cgroup=\"Group%03d\" Csub=\"%s\"/>\n", c, g, sub)); //$NON-NLS-1$
+			sb.append(String.format("<require Cclass=\"Class%02d*\" Cgroup=\"Group%03d*\" Csub=\"%s*\"/>\n", c, g, sub)); //$NON-NLS-1$
+		}
+		sb.append("</condition>\n</conditions>\n"); //$NON-NLS-1$
+		sb.append("<components>\n"); //$NON-NLS-1$
+		for (int c = 0; c < nClasses; c++) {
+			for (int g = 0; g < nGroups; g++) {
+				for (int s = 0; s < nSubs; s++) {
+					sb.append(String.format("<component Cclass=\"Class%02d\" Cgroup=\"Group%03d\" Csub=\"Sub%d\" Cversion=\"1.0.0\">" //$NON-NLS-1$
+							+ "<description>Benchmark component</description></component>\n", c, g, s)); //$NON-NLS-1$
+				}
+			}
+		}
+		sb.append("</components>\n</package>\n"); //$NON-NLS-1$
+		return sb.toString();
+	}
+
+	/**
+	 * Evaluates all expressions repeatedly after one warm-up pass
+	 * @param nRuns number of measured passes
+	 * @param wildcards true to evaluate expressions with wild cards, false to evaluate exact ones
+	 * @return benchmark Result
+	 */
+	public Result run(int nRuns, boolean wildcards) {
+		List<ICpItem> expressions = wildcards ? fWildcardExpressions : fExpressions;
+		evaluate(expressions); // warm up
+		long start = System.nanoTime();
+		for (int i = 0; i < nRuns; i++) {
+			evaluate(expressions);
+		}
+		long nanos = System.nanoTime() - start;
+		return new Result((long) nRuns * expressions.size(), nanos);
+	}
+
+	private List<EEvaluationResult> evaluate(List<ICpItem> expressions) {
+		List<EEvaluationResult> results = new ArrayList<EEvaluationResult>(expressions.size());
+		for (ICpItem expression : expressions) {
+			IRteDependency dependency = new RteDependency(expression, false);
+			results.add(fRoot.findComponents(dependency));
+		}
+		return results;
+	}
+
+	/**
+	 * Checks that exact expressions and expressions with wild cards give the same results
+	 * @return number of expressions with different results
+	 */
+	public int check() {
+		List<EEvaluationResult> exact = evaluate(fExpressions);
+		List<EEvaluationResult> wildcards = evaluate(fWildcardExpressions);
+		int differences = Math.abs(exact.size() - wildcards.size());
+		for (int i = 0; i < exact.size() && i < wildcards.size(); i++) {
+			if (exact.get(i) != wildcards.get(i)) {
+				differences++;
+			}
+		}
+		return differences;
+	}
+
+	/**
+	 * Evaluates exact expressions and expressions with wild cards and returns a report
+	 * @param nRuns number of measured passes per expression form
+	 * @return report string
+	 */
+	public String compare(int nRuns) {
+		Result lookup = run(nRuns, false);
+		Result scan = run(nRuns, true);
+		double ratio = lookup.getMicrosPerLookup() > 0 ? scan.getMicrosPerLookup() / lookup.getMicrosPerLookup() : 0.0;
+		StringBuilder sb = new StringBuilder();
+		sb.append(fExpressions.size()).append(" expressions: ").append(nRuns).append(" runs").append(System.lineSeparator()); //$NON-NLS-1$ //$NON-NLS-2$
+		sb.append("Exact keys (lookup): ").append(lookup).append(System.lineSeparator()); //$NON-NLS-1$
+		sb.append("Keys with wild cards (scan): ").append(scan).append(System.lineSeparator()); //$NON-NLS-1$
+		sb.append(String.format("Speed-up: %.2fx", ratio)).append(System.lineSeparator()); //$NON-NLS-1$
+		sb.append("Differences: ").append(check()); //$NON-NLS-1$
+		return sb.toString();
+	}
+
+	public static void main(String[] args) {
+		int nRuns = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+		System.out.println(new RefComponentBenchmark(20, 60, 4, 2000).compare(nRuns));
+	}
+}
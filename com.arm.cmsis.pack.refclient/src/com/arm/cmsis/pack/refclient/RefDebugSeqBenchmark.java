@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (c) 2016 ARM Ltd. and others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * ARM Ltd and ARM Germany GmbH - Initial API and implementation
+ *******************************************************************************/
+
+package com.arm.cmsis.pack.refclient;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.arm.cmsis.pack.CpDsqEngineFactory;
+import com.arm.cmsis.pack.dsq.DsqException;
+import com.arm.cmsis.pack.dsq.IDsqEngine;
+import com.arm.cmsis.pack.info.ICpDeviceInfo;
+
+/**
+ * Compares execution speed of compiled and interpreted debug sequences using {@link RefDebugSeqClient}
+ * <p>
+ * The benchmark executes the default sequences without loops, so every execution does the same work
+ * regardless of the values returned by the client, and measures wall time per execution.
+ * Sequences the device redefines are executed in their device-specific form, disabled ones are skipped.
+ * Engines are created through {@link CpDsqEngineFactory}, the execution mode is selected with {@link IDsqEngine#COMPILE_PROPERTY}.
+ * Sequences are executed without logger to measure the engine only.
+ * </p>
+ */
+public class RefDebugSeqBenchmark {
+
+	/**
+	 * Default sequences executed by the benchmark: they contain no while loops
+	 */
+	public static final String[] SEQUENCES = {
+			"DebugPortSetup", //$NON-NLS-1$
+			"DebugCoreStart", //$NON-NLS-1$
+			"ResetCatchSet", //$NON-NLS-1$
+			"ResetCatchClear", //$NON-NLS-1$
+			"DebugCoreStop" }; //$NON-NLS-1$
+
+	private final ICpDeviceInfo fDeviceInfo;
+
+	/**
+	 * Result of a benchmark run
+	 */
+	public static class Result {
+		public final long executions;
+		public final long nanos;
+
+		Result(long executions, long nanos) {
+			this.executions = executions;
+			this.nanos = nanos;
+		}
+
+		/**
+		 * @return average wall time of a sequence execution in microseconds
+		 */
+		public double getMicrosPerExecution() {
+			return executions > 0 ? nanos / 1000.0 / executions : 0.0;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d executions in %d ms: %.2f us/execution", //$NON-NLS-1$
+					executions, nanos / 1000000, getMicrosPerExecution());
+		}
+	}
+
+	/**
+	 * Constructs benchmark for sequences of the given device
+	 * @param deviceInfo ICpDeviceInfo providing sequences, the default sequences are used for the ones it does not define
+	 */
+	public RefDebugSeqBenchmark(ICpDeviceInfo deviceInfo) {
+		fDeviceInfo = deviceInfo;
+	}
+
+	/**
+	 * Creates engine in the requested execution mode
+	 * @param compile true to compile sequences, false to interpret them
+	 * @return IDsqEngine or null if no engine is available
+	 */
+	protected IDsqEngine createEngine(boolean compile) {
+		synchronized (RefDebugSeqBenchmark.class) {
+			String previous = System.getProperty(IDsqEngine.COMPILE_PROPERTY);
+			System.setProperty(IDsqEngine.COMPILE_PROPERTY, Boolean.toString(compile));
+			try {
+				return CpDsqEngineFactory.create(fDeviceInfo, new RefDebugSeqClient(), null);
+			} finally {
+				if (previous == null) {
+					System.clearProperty(IDsqEngine.COMPILE_PROPERTY);
+				} else {
+					System.setProperty(IDsqEngine.COMPILE_PROPERTY, previous);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Executes the benchmark sequences repeatedly after one warm-up pass
+	 * @param nRuns number of measured passes over all sequences
+	 * @param compile true to execute compiled sequences, false to interpret them
+	 * @return benchmark Result
+	 * @throws DsqException if no engine is available or sequences cannot be parsed or executed
+	 */
+	public Result run(int nRuns, boolean compile) throws DsqException {
+		IDsqEngine engine = createEngine(compile);
+		if (engine == null) {
+			throw new DsqException("There is no Debug Sequence Engine defined in the application"); //$NON-NLS-1$
+		}
+		List<RefDsqSequenceContext> contexts = new ArrayList<RefDsqSequenceContext>();
+		for (String name : SEQUENCES) {
+			if (!engine.isSequenceDisabled(name)) {
+				contexts.add(new RefDsqSequenceContext(name));
+			}
+		}
+		for (RefDsqSequenceContext context : contexts) {
+			engine.execute(context); // warm up: parses and compiles the sequences
+		}
+
+		long start = System.nanoTime();
+		for (int i = 0; i < nRuns; i++) {
+			for (RefDsqSequenceContext context : contexts) {
+				engine.execute(context);
+			}
+		}
+		long nanos = System.nanoTime() - start;
+		return new Result((long) nRuns * contexts.size(), nanos);
+	}
+
+	/**
+	 * Runs the sequences interpreted and compiled and returns a report
+	 * @param nRuns number of measured passes per mode
+	 * @return report string
+	 * @throws DsqException if no engine is available or sequences cannot be parsed or executed
+	 */
+	public String compare(int nRuns) throws DsqException {
+		Result interpreted = run(nRuns, false);
+		Result compiled = run(nRuns, true);
+		double ratio = compiled.getMicrosPerExecution() > 0 ? interpreted.getMicrosPerExecution() / compiled.getMicrosPerExecution() : 0.0;
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.join(", ", SEQUENCES)).append(": ").append(nRuns).append(" runs").append(System.lineSeparator()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		sb.append("Interpreted: ").append(interpreted).append(System.lineSeparator()); //$NON-NLS-1$
+		sb.append("Compiled: ").append(compiled).append(System.lineSeparator()); //$NON-NLS-1$
+		sb.append(String.format("Speed-up: %.2fx", ratio)); //$NON-NLS-1$
+		return sb.toString();
+	}
+}
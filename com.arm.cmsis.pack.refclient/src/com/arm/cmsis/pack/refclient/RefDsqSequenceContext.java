@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * Copyright (c) 2016 ARM Ltd. and others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * ARM Ltd and ARM Germany GmbH - Initial API and implementation
+ *******************************************************************************/
+
+package com.arm.cmsis.pack.refclient;
+
+import com.arm.cmsis.pack.dsq.DsqSequence;
+import com.arm.cmsis.pack.dsq.IDsqContext;
+
+/**
+ * Reference sequence context with fixed values of predefined variables: SWD protocol, AP 2, DP 0
+ */
+public class RefDsqSequenceContext extends DsqSequence {
+
+	public RefDsqSequenceContext(String name) {
+		super(name);
+	}
+
+	@Override
+	public Long getPredefinedVariableValue(String name) {
+		switch (name) {
+		case IDsqContext.AP:
+			return 2L;
+		case IDsqContext.DP:
+			return 0L;
+		case IDsqContext.PROTOCOL:
+			return 0x00010002L;
+		case IDsqContext.CONNECTION:
+			return 0L;
+		case IDsqContext.TRACEOUT:
+			return 0L;
+		case IDsqContext.ERRORCONTROL:
+			return 0L;
+		default:
+			return null;
+		}
+	}
+}
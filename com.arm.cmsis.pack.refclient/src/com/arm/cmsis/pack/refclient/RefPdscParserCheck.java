@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2016 ARM Ltd. and others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * ARM Ltd and ARM Germany GmbH - Initial API and implementation
+ *******************************************************************************/
+
+package com.arm.cmsis.pack.refclient;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import com.arm.cmsis.pack.data.ICpItem;
+import com.arm.cmsis.pack.parser.PdscParser;
+import com.arm.cmsis.pack.parser.PdscStreamParser;
+
+/**
+ * Checks that {@link PdscStreamParser} creates the same items as DOM-based {@link PdscParser}
+ * <p>
+ * The built-in sample covers entities, CDATA sections, comments and text mixed with child elements:
+ * DOM keeps the text of the last text node, CDATA sections are not text nodes.
+ * </p>
+ */
+public class RefPdscParserCheck {
+
+	public static final String SAMPLE_PDSC =
+			"<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" + //$NON-NLS-1$
+			"<package schemaVersion=\"1.4\" xmlns:xs=\"http://www.w3.org/2001/XMLSchema-instance\">\n" + //$NON-NLS-1$
+			"  <vendor>ARM</vendor>\n" + //$NON-NLS-1$
+			"  <name>Sample</name>\n" + //$NON-NLS-1$
+			"  <description>A &amp; B<![CDATA[cdata part]]>tail</description>\n" + //$NON-NLS-1$
+			"  <url><![CDATA[http://www.keil.com/pack/]]></url>\n" + //$NON-NLS-1$
+			"  <releases>\n" + //$NON-NLS-1$
+			"    <release version=\"1.0.0\">first <!-- comment --> second</release>\n" + //$NON-NLS-1$
+			"    <release version=\"0.9.0\">Initial &lt;release&gt;<![CDATA[]]></release>\n" + //$NON-NLS-1$
+			"  </releases>\n" + //$NON-NLS-1$
+			"  <keywords>head<keyword>ARM</keyword>middle<keyword>Cortex-M</keyword>end</keywords>\n" + //$NON-NLS-1$
+			"</package>\n"; //$NON-NLS-1$
+
+	/**
+	 * Parses the XML string with both parsers and compares the created items
+	 * @param xml XML string to parse
+	 * @return list of differences, empty if the parsers agree
+	 */
+	public static List<String> compare(String xml) {
+		List<String> differences = new ArrayList<String>();
+		ICpItem domRoot = new PdscParser().parseXmlString(xml);
+		ICpItem streamRoot = new PdscStreamParser().parseXmlString(xml);
+		compareItems(domRoot, streamRoot, "", differences); //$NON-NLS-1$
+		return differences;
+	}
+
+	/**
+	 * Compares the built-in sample
+	 * @return list of differences, empty if the parsers agree
+	 */
+	public static List<String> compareSample() {
+		return compare(SAMPLE_PDSC);
+	}
+
+	private static void compareItems(ICpItem dom, ICpItem stream, String path, List<String> differences) {
+		if(dom == null || stream == null) {
+			if(dom != stream) {
+				differences.add(path + ": item " + (dom == null ? "only created by stream parser" : "not created by stream parser")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			}
+			return;
+		}
+		path = path + '/' + dom.getTag();
+		if(!dom.getTag().equals(stream.getTag())) {
+			differences.add(path + ": tag '" + stream.getTag() + "'"); //$NON-NLS-1$ //$NON-NLS-2$
+			return;
+		}
+		if(!equal(dom.getText(), stream.getText())) {
+			differences.add(path + ": text '" + dom.getText() + "' != '" + stream.getText() + "'"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		Map<String, String> domAttributes = dom.attributes().getAttributesAsMap();
+		Map<String, String> streamAttributes = stream.attributes().getAttributesAsMap();
+		if(!equal(domAttributes, streamAttributes)) {
+			differences.add(path + ": attributes " + domAttributes + " != " + streamAttributes); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		List<ICpItem> domChildren = toList(dom.getChildren());
+		List<ICpItem> streamChildren = toList(stream.getChildren());
+		if(domChildren.size() != streamChildren.size()) {
+			differences.add(path + ": " + domChildren.size() + " != " + streamChildren.size() + " children"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			return;
+		}
+		for(int i = 0; i < domChildren.size(); i++) {
+			compareItems(domChildren.get(i), streamChildren.get(i), path, differences);
+		}
+	}
+
+	private static List<ICpItem> toList(Collection<? extends ICpItem> children) {
+		List<ICpItem> list = new ArrayList<ICpItem>();
+		if(children != null) {
+			list.addAll(children);
+		}
+		return list;
+	}
+
+	private static boolean equal(Object o1, Object o2) {
+		if(o1 == null) {
+			return o2 == null;
+		}
+		return o1.equals(o2);
+	}
+
+	public static void main(String[] args) {
+		List<String> differences = compareSample();
+		if(differences.isEmpty()) {
+			System.out.println("Stream and DOM parsers create identical items"); //$NON-NLS-1$
+			return;
+		}
+		for(String d : differences) {
+			System.out.println(d);
+		}
+		System.exit(1);
+	}
+}
@@ -0,0 +1,359 @@
+/*******************************************************************************
+ * Copyright (c) 2016 ARM Ltd. and others
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * ARM Ltd and ARM Germany GmbH - Initial API and implementation
+ *******************************************************************************/
+
+package com.arm.cmsis.pack.refclient;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.arm.cmsis.pack.utils.WildCards;
+import com.arm.cmsis.pack.utils.WildcardPattern;
+
+/**
+ * Compares wild card matching speed of {@link WildcardPattern} with the former state-object implementation
+ * <p>
+ * Device name patterns typical for pdsc conditions are matched against a synthetic list of device names:
+ * with the former implementation, with {@link WildCards#match(String, String)} using the pattern cache
+ * and with precompiled patterns. The results of all variants are compared as well.
+ * </p>
+ */
+public class RefWildcardBenchmark {
+
+	/**
+	 * Patterns matched against the device names
+	 */
+	public static final String[] PATTERNS = {
+			"STM32F4*", //$NON-NLS-1$
+			"STM32F4[23]9??", //$NON-NLS-1$
+			"STM32F407VG*", //$NON-NLS-1$
+			"*ZI*", //$NON-NLS-1$
+			"STM32F4?9ZIT6", //$NON-NLS-1$
+			"STM32F429ZIT6" }; //$NON-NLS-1$
+
+	private final List<String> fNames;
+
+	/**
+	 * Result of a benchmark run
+	 */
+	public static class Result {
+		public final long matches;
+		public final long hits;
+		public final long nanos;
+
+		Result(long matches, long hits, long nanos) {
+			this.matches = matches;
+			this.hits = hits;
+			this.nanos = nanos;
+		}
+
+		/**
+		 * @return average wall time of a match in nanoseconds
+		 */
+		public double getNanosPerMatch() {
+			return matches > 0 ? (double) nanos / matches : 0.0;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d matches (%d hits) in %d ms: %.1f ns/match", //$NON-NLS-1$
+					matches, hits, nanos / 1000000, getNanosPerMatch());
+		}
+	}
+
+	/**
+	 * Constructs benchmark with synthetic device names
+	 */
+	public RefWildcardBenchmark() {
+		fNames = createDeviceNames();
+	}
+
+	/**
+	 * Creates device names like "STM32F429ZIT6"
+	 * @return list of device names
+	 */
+	public static List<String> createDeviceNames() {
+		List<String> names = new ArrayList<String>();
+		String pins = "CRVZAI"; //$NON-NLS-1$
+		String sizes = "BCEGI"; //$NON-NLS-1$
+		for (int family = 0; family < 8; family++) {
+			for (int line = 0; line < 10; line++) {
+				for (int p = 0; p < pins.length(); p++) {
+					for (int s = 0; s < sizes.length(); s++) {
+						names.add("STM32F" + family + line + family % 3 + pins.charAt(p) + sizes.charAt(s) + "T6"); //$NON-NLS-1$ //$NON-NLS-2$
+					}
+				}
+			}
+		}
+		return names;
+	}
+
+	/**
+	 * Matches all patterns against all names with the selected implementation
+	 * @param nRuns number of measured passes
+	 * @param mode 0: former implementation, 1: WildCards.match() with pattern cache, 2: precompiled patterns
+	 * @return benchmark Result
+	 */
+	public Result run(int nRuns, int mode) {
+		runPass(mode); // warm up
+		long hits = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < nRuns; i++) {
+			hits += runPass(mode);
+		}
+		long nanos = System.nanoTime() - start;
+		return new Result((long) nRuns * PATTERNS.length * fNames.size(), hits, nanos);
+	}
+
+	private long runPass(int mode) {
+		long hits = 0;
+		for (String pattern : PATTERNS) {
+			WildcardPattern compiled = WildcardPattern.compile(pattern);
+			for (String name : fNames) {
+				boolean match;
+				switch (mode) {
+				case 0:
+					match = FormerWildCards.match(pattern, name, true);
+					break;
+				case 1:
+					match = WildCards.match(pattern, name);
+					break;
+				default:
+					match = compiled.matches(name);
+					break;
+				}
+				if (match) {
+					hits++;
+				}
+			}
+		}
+		return hits;
+	}
+
+	/**
+	 * Checks that all implementations return the same results, case sensitive and case insensitive
+	 * @return list of differences, empty if all implementations agree
+	 */
+	public List<String> check() {
+		List<String> differences = new ArrayList<String>();
+		for (String pattern : PATTERNS) {
+			WildcardPattern compiled = WildcardPattern.compile(pattern);
+			String lower = pattern.toLowerCase();
+			for (String name : fNames) {
+				boolean expected = FormerWildCards.match(pattern, name, true);
+				if (WildCards.match(pattern, name) != expected || compiled.matches(name) != expected) {
+					differences.add(pattern + " : " + name); //$NON-NLS-1$
+				}
+				if (WildCards.matchNoCase(lower, name) != FormerWildCards.match(lower, name, false)) {
+					differences.add(lower + " : " + name + " (no case)"); //$NON-NLS-1$ //$NON-NLS-2$
+				}
+			}
+		}
+		return differences;
+	}
+
+	/**
+	 * Runs all implementations and returns a report
+	 * @param nRuns number of measured passes per implementation
+	 * @return report string
+	 */
+	public String compare(int nRuns) {
+		Result former = run(nRuns, 0);
+		Result cached = run(nRuns, 1);
+		Result compiled = run(nRuns, 2);
+		List<String> differences = check();
+		StringBuilder sb = new StringBuilder();
+		sb.append(fNames.size()).append(" names, ").append(PATTERNS.length).append(" patterns: ").append(nRuns).append(" runs").append(System.lineSeparator()); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		sb.append("Former implementation: ").append(former).append(System.lineSeparator()); //$NON-NLS-1$
+		sb.append("WildCards.match(): ").append(cached).append(System.lineSeparator()); //$NON-NLS-1$
+		sb.append("Precompiled pattern: ").append(compiled).append(System.lineSeparator()); //$NON-NLS-1$
+		sb.append("Differences: ").append(differences.size()); //$NON-NLS-1$
+		return sb.toString();
+	}
+
+	public static void main(String[] args) {
+		int nRuns = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		System.out.println(new RefWildcardBenchmark().compare(nRuns));
+	}
+
+	/**
+	 * Former wild card matching implementation creating state objects for every match, kept as benchmark reference.
+	 * The only change: consecutive '*' and '?' after '*' are skipped, the original looped endlessly on them.
+	 */
+	static class FormerWildCards {
+
+		static boolean match(final String str1, final String str2, boolean cs) {
+			if (str1 == null || str1.isEmpty()) {
+				return str2 == null || str2.isEmpty();
+			} else if (str2 == null || str2.isEmpty()) {
+				return false;
+			}
+
+			WildcardState ws1 = new WildcardState(str1, cs);
+			if (ws1.isAsterisk() && ws1.isEnd())
+				return true;
+
+			WildcardState ws2 = new WildcardState(str2, cs);
+			if (ws2.isAsterisk() && ws2.isEnd())
+				return true;
+
+			boolean result = wildCardMatch(ws1, ws2);
+
+			if (!result & ws1.containsAsterisk() && ws2.containsAsterisk()) {
+				ws1.init();
+				ws2.init();
+				if (wildCardMatch(ws2, ws1))
+					return true;
+			}
+			return result;
+		}
+
+		private static boolean wildCardMatch(WildcardState ws1, WildcardState ws2) {
+			while (true) {
+				if (ws1.isAsterisk()) {
+					if (ws1.isEnd())
+						return true;
+					ws2.skip(ws1);
+					if (ws2.isEnd()) {
+						return ws2.isAsterisk() || ws2.isQuestion();
+					}
+				}
+
+				if (ws2.isAsterisk()) {
+					if (ws2.isEnd())
+						return true;
+					ws1.skip(ws2);
+					if (ws1.isEnd()) {
+						return ws1.isAsterisk() || ws1.isQuestion();
+					}
+				}
+
+				if (ws1.isEnd() || ws2.isEnd())
+					break;
+
+				if (!ws1.compare(ws2)) {
+					return false;
+				}
+				ws1.next();
+				ws2.next();
+			}
+			return ws1.isEnd() && ws2.isEnd();
+		}
+
+		private static class WildcardState {
+			private String s;
+			private boolean cs = true;
+			private int index = 0;
+			private int rangeFrom = -1;
+			private int rangeTo = -1;
+			private boolean asterisk = false;
+			private boolean containsAsterisk = false;
+
+			WildcardState(String s, boolean cs) {
+				this.s = s;
+				this.cs = cs;
+				init();
+			}
+
+			void init() {
+				asterisk = false;
+				containsAsterisk = false;
+				index = 0;
+				createRange();
+			}
+
+			boolean containsAsterisk() {
+				return containsAsterisk;
+			}
+
+			boolean isEnd() {
+				return index >= s.length();
+			}
+
+			boolean isAsterisk() {
+				return asterisk;
+			}
+
+			boolean isQuestion() {
+				return rangeFrom >= 0 && s.charAt(rangeFrom) == '?';
+			}
+
+			void next() {
+				if (isEnd())
+					return;
+				index++;
+				createRange();
+			}
+
+			void skip(WildcardState ws) {
+				while (!isEnd() && !compare(ws)) {
+					next();
+				}
+			}
+
+			boolean compare(WildcardState ws) {
+				if (isQuestion() || ws.isQuestion())
+					return true;
+				if (rangeFrom < 0 && ws.rangeFrom < 0)
+					return true;
+
+				for (int i = rangeFrom; i < rangeTo; i++) {
+					char ch = s.charAt(i);
+					if (!cs)
+						ch = Character.toUpperCase(ch);
+					for (int j = ws.rangeFrom; j < ws.rangeTo; j++) {
+						char otherCh = ws.s.charAt(j);
+						if (!cs)
+							otherCh = Character.toUpperCase(otherCh);
+						if (ch == otherCh)
+							return true;
+					}
+				}
+				return false;
+			}
+
+			void createRange() {
+				rangeFrom = rangeTo = -1;
+				asterisk = false;
+				if (isEnd())
+					return;
+				char ch = s.charAt(index);
+				if (ch == '*') {
+					containsAsterisk = asterisk = true;
+					index++;
+					while (!isEnd()) {
+						ch = s.charAt(index);
+						if (ch != '*' && ch != '?')
+							break;
+						index++;
+					}
+				}
+				if (isEnd())
+					return;
+				if (ch == '[') {
+					index++;
+					if (isEnd())
+						return;
+					rangeTo = rangeFrom = index;
+					while (!isEnd()) {
+						ch = s.charAt(index);
+						if (ch == ']')
+							break;
+						index++;
+						rangeTo = index;
+					}
+				} else {
+					rangeTo = rangeFrom = index;
+					rangeTo++;
+				}
+			}
+		}
+	}
+}
@@ -5,6 +5,7 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.action.Action;
 import org.eclipse.jface.dialogs.MessageDialog;
 import org.eclipse.jface.viewers.ArrayContentProvider;
 import org.eclipse.jface.viewers.ColumnLabelProvider;
@@ -29,14 +30,15 @@ import com.arm.cmsis.pack.CpDsqEngineFactory;
 import com.arm.cmsis.pack.common.CmsisConstants;
 import com.arm.cmsis.pack.configuration.IRteConfiguration;
 import com.arm.cmsis.pack.dsq.DsqException;
-import com.arm.cmsis.pack.dsq.DsqSequence;
-import com.arm.cmsis.pack.dsq.IDsqContext;
 import com.arm.cmsis.pack.dsq.IDsqEngine;
 import com.arm.cmsis.pack.events.IRteEventListener;
 import com.arm.cmsis.pack.events.RteEvent;
+import com.arm.cmsis.pack.info.ICpDeviceInfo;
 import com.arm.cmsis.pack.project.CpProjectPlugIn;
 import com.arm.cmsis.pack.project.IRteProject;
+import com.arm.cmsis.pack.refclient.RefDebugSeqBenchmark;
 import com.arm.cmsis.pack.refclient.RefDebugSeqClient;
+import com.arm.cmsis.pack.refclient.RefDsqSequenceContext;
 import com.arm.cmsis.pack.refclient.ui.console.SequenceLogger;
 import com.arm.cmsis.pack.ui.CpPlugInUI;
 import com.arm.cmsis.pack.ui.tree.AdvisedCellLabelProvider;
@@ -46,6 +48,7 @@ public class SequenceView extends ViewPart implements ISelectionListener, IRteEv
 
 	public static final String ID = "com.arm.cmsis.pack.refclient.ui.SequenceView"; //$NON-NLS-1$
 	private static final int COLBUTTON = 1;
+	private static final int BENCHMARK_RUNS = 10000;
 
 	IRteProject selectedProject = null;
 	IDsqEngine engine = null;
@@ -53,33 +56,6 @@ public class SequenceView extends ViewPart implements ISelectionListener, IRteEv
 	private TableViewer viewer;
 	SequenceLogger logger;
 
-	class RefDsqSequenceContext extends DsqSequence {
-
-		public RefDsqSequenceContext(String name) {
-			super(name);
-		}
-
-		@Override
-		public Long getPredefinedVariableValue(String name) {
-			switch (name) {
-			case IDsqContext.AP:
-				return 2L;
-			case IDsqContext.DP:
-				return 0L;
-			case IDsqContext.PROTOCOL:
-				return 0x00010002L;
-			case IDsqContext.CONNECTION:
-				return 0L;
-			case IDsqContext.TRACEOUT:
-				return 0L;
-			case IDsqContext.ERRORCONTROL:
-				return 0L;
-			default:
-				return null;
-			}
-		}
-	}
-
 	class SequenceViewLabelProvider extends ColumnLabelProvider {
 		@Override
 		public Image getImage(Object element) {
@@ -189,6 +165,15 @@ public class SequenceView extends ViewPart implements ISelectionListener, IRteEv
 
 		viewer.setContentProvider(ArrayContentProvider.getInstance());
 
+		Action benchmarkAction = new Action("Benchmark") { //$NON-NLS-1$
+			@Override
+			public void run() {
+				runBenchmark();
+			}
+		};
+		benchmarkAction.setToolTipText("Compare compiled and interpreted execution of the default sequences without loops"); //$NON-NLS-1$
+		getViewSite().getActionBars().getToolBarManager().add(benchmarkAction);
+
 		PlatformUI.getWorkbench().getHelpSystem().setHelp(viewer.getControl(), ID);
 
 		CpProjectPlugIn.getRteProjectManager().addListener(this);
@@ -249,6 +234,28 @@ public class SequenceView extends ViewPart implements ISelectionListener, IRteEv
 		}
 	}
 
+	void runBenchmark() {
+		IRteConfiguration rteConf = getRteConfiguration();
+		if (rteConf == null) {
+			return;
+		}
+		final ICpDeviceInfo deviceInfo = rteConf.getDeviceInfo();
+		Job job = new Job("Debug Sequence Benchmark") { //$NON-NLS-1$
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				try {
+					final String report = new RefDebugSeqBenchmark(deviceInfo).compare(BENCHMARK_RUNS);
+					Display.getDefault().asyncExec(() -> MessageDialog.openInformation(null, "Debug Sequence Benchmark", report)); //$NON-NLS-1$
+					return Status.OK_STATUS;
+				} catch (DsqException e) {
+					Display.getDefault().asyncExec(() -> throwException("Error while executing the debug sequences", e)); //$NON-NLS-1$
+					return Status.CANCEL_STATUS;
+				}
+			}
+		};
+		job.schedule();
+	}
+
 	@Override
 	public void handle(RteEvent event) {
 		IRteProject rteProject = null;
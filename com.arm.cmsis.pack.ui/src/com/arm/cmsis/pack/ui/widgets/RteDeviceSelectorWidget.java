@@ -12,6 +12,12 @@
 package com.arm.cmsis.pack.ui.widgets;
 
 
+import java.util.Set;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.viewers.ISelectionChangedListener;
 import org.eclipse.jface.viewers.IStructuredSelection;
 import org.eclipse.jface.viewers.LabelProvider;
@@ -37,6 +43,7 @@ import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Combo;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.Link;
 import org.eclipse.swt.widgets.Text;
@@ -51,6 +58,8 @@ import com.arm.cmsis.pack.generic.ITreeObject;
 import com.arm.cmsis.pack.info.CpDeviceInfo;
 import com.arm.cmsis.pack.info.ICpDeviceInfo;
 import com.arm.cmsis.pack.rte.devices.IRteDeviceItem;
+import com.arm.cmsis.pack.rte.devices.IRteDeviceRoot;
+import com.arm.cmsis.pack.rte.devices.RteDeviceSearchIndex;
 import com.arm.cmsis.pack.ui.CpPlugInUI;
 import com.arm.cmsis.pack.ui.CpStringsUI;
 import com.arm.cmsis.pack.ui.IStatusMessageListener;
@@ -83,6 +92,10 @@ public class RteDeviceSelectorWidget extends Composite {
 	// list of listeners (e.g parent widgets to monitor events)
 	StatusMessageListerenList listeners = new StatusMessageListerenList();
 	String fSearchString = CmsisConstants.EMPTY_STRING;
+	static final long SEARCH_DELAY = 200; // delay in ms to wait for the next key stroke before searching
+	Set<IRteDeviceItem> fVisibleItems = null; // items matching search string with ancestors and descendants, null: show all
+	volatile RteDeviceSearchIndex fSearchIndex = null; // index for device trees that are not IRteDeviceRoot
+	Job fSearchJob = null;
 	String selectedFpu;
 	String selectedEndian;
 	boolean fbShowProcessors = true;
@@ -290,28 +303,11 @@ public class RteDeviceSelectorWidget extends Composite {
 
 			@Override
 			public boolean select(Viewer viewer, Object parentElement, 	Object element) {
-				if(fSearchString.isEmpty() || fSearchString.equals("*")) { //$NON-NLS-1$
+				if(fVisibleItems == null) {
 					return true;
 				}
-				if(element instanceof IRteDeviceItem) {
-					String s = CmsisConstants.EMPTY_STRING;
-					if(!fSearchString.startsWith("*")) { //$NON-NLS-1$ 
-						s = "*"; //$NON-NLS-1$
-					}
-					s += fSearchString;
-					if(!s.endsWith("*")) { //$NON-NLS-1$
-						s += "*"; //$NON-NLS-1$
-					}
-					// first check if parent elements (vendor, family, etc. match the pattern)
-					IRteDeviceItem deviceItem = (IRteDeviceItem)element;
-					for(IRteDeviceItem parent = deviceItem.getParent(); parent != null; parent = parent.getParent()) {
-						if(WildCards.matchNoCase(s, parent.getName())) {
-							return true;
-						}
-					}
-					return deviceItem.getFirstItem(s) != null;
-				}
-				return false;
+				// the set is calculated by the search job: matching items, their ancestors and descendants
+				return fVisibleItems.contains(element);
 			}
 
 		});
@@ -328,6 +324,10 @@ public class RteDeviceSelectorWidget extends Composite {
 		addDisposeListener(new DisposeListener() {
 			@Override
 			public void widgetDisposed(DisposeEvent e) {
+				if(fSearchJob != null) {
+					fSearchJob.cancel();
+					fSearchJob = null;
+				}
 				fSelectedItem = null;
 				fDevices = null;
 				listeners.removeAllListeners();
@@ -352,29 +352,101 @@ public class RteDeviceSelectorWidget extends Composite {
 		if(fDevices == null || !fDevices.hasChildren()) {
 			return false;
 		}
-			
-		if(fSearchString  !=  s){
+
+		if(!fSearchString.equals(s)){
 			fSearchString = s;
-			IRteDeviceItem deviceItem = null;
-			if(!fSearchString.isEmpty() && !fSearchString.equals("*")) { //$NON-NLS-1$
-				String pattern = fSearchString;
+			startSearch(SEARCH_DELAY);
+		}
+		return false;
+	}
+
+	/**
+	 * Cancels running search and schedules a new one for the current search string.
+	 * The search runs in a background job, the result is applied in the UI thread
+	 * if search string and device tree are still the same.
+	 * @param delay delay in ms before the search starts, gives time for the next key stroke
+	 */
+	void startSearch(long delay) {
+		if(fSearchJob != null) {
+			fSearchJob.cancel();
+			fSearchJob = null;
+		}
+		final String searchString = fSearchString;
+		final IRteDeviceItem devices = fDevices;
+		if(devices == null || searchString.isEmpty() || searchString.equals("*")) { //$NON-NLS-1$
+			if(fVisibleItems != null) {
+				fVisibleItems = null;
+				refreshTree();
+			}
+			return;
+		}
+		final IRteDeviceItem selectedItem = fSelectedItem;
+		final Display display = getDisplay();
+		fSearchJob = new Job(CpStringsUI.RteDeviceSelectorWidget_SearchLabel) {
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				RteDeviceSearchIndex index = getSearchIndex(devices);
+				if(monitor.isCanceled()) {
+					return Status.CANCEL_STATUS;
+				}
+				// tree shows items containing the search string
+				String s = CmsisConstants.EMPTY_STRING;
+				if(!searchString.startsWith("*")) { //$NON-NLS-1$
+					s = "*"; //$NON-NLS-1$
+				}
+				s += searchString;
+				if(!s.endsWith("*")) { //$NON-NLS-1$
+					s += "*"; //$NON-NLS-1$
+				}
+				final Set<IRteDeviceItem> visibleItems = index.findVisibleItems(s);
+				if(monitor.isCanceled()) {
+					return Status.CANCEL_STATUS;
+				}
+				// the first item starting with the search string gets selected
+				String pattern = searchString;
 				if(!pattern.endsWith("*")) //$NON-NLS-1$
 				{
 					pattern += "*"; //$NON-NLS-1$
 				}
-				if(fSelectedItem != null && fSelectedItem.getFirstItem(pattern) == fSelectedItem){
-					deviceItem = fSelectedItem;
+				final IRteDeviceItem deviceItem;
+				if(selectedItem != null && WildCards.matchNoCase(pattern, selectedItem.getName())){
+					deviceItem = selectedItem;
 				} else {
-					deviceItem = fDevices.getFirstItem(pattern);
+					deviceItem = index.findFirstItem(pattern);
 				}
+				display.asyncExec(() -> {
+					if(isDisposed() || fDevices != devices || !searchString.equals(fSearchString)) {
+						return; // outdated result
+					}
+					fVisibleItems = visibleItems;
+					refreshTree();
+					if(deviceItem != null) {
+						selectItem(deviceItem);
+						treeViewer.setExpandedState(deviceItem, true);
+					}
+				});
+				return Status.OK_STATUS;
 			}
-			refreshTree();
-			if(deviceItem != null) {
-				selectItem(deviceItem);
-				treeViewer.setExpandedState(deviceItem, true);
-			}
+		};
+		fSearchJob.setSystem(true);
+		fSearchJob.schedule(delay);
+	}
+
+	/**
+	 * Returns search index for the device tree, IRteDeviceRoot maintains its own index
+	 * @param devices root of device tree
+	 * @return RteDeviceSearchIndex
+	 */
+	RteDeviceSearchIndex getSearchIndex(IRteDeviceItem devices) {
+		if(devices instanceof IRteDeviceRoot) {
+			return ((IRteDeviceRoot)devices).getSearchIndex();
 		}
-		return false;
+		RteDeviceSearchIndex index = fSearchIndex;
+		if(index == null || index.getRoot() != devices) {
+			index = new RteDeviceSearchIndex(devices);
+			fSearchIndex = index;
+		}
+		return index;
 	}
 
 	private void refreshTree(){
@@ -387,7 +459,10 @@ public class RteDeviceSelectorWidget extends Composite {
 	 */
 	public void setDevices(IRteDeviceItem devices) {
 		this.fDevices = devices;
+		fSearchIndex = null;
+		fVisibleItems = null;
 		treeViewer.setInput(devices);
+		startSearch(0); // apply current search string to the new tree
 	}
 
 	/**
@@ -17,17 +17,29 @@ package com.arm.cmsis.pack;
 import java.io.File;
 import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.eclipse.core.runtime.IPath;
 import org.eclipse.core.runtime.Path;
 
 import com.arm.cmsis.pack.ICpPackInstaller.ConsoleType;
 import com.arm.cmsis.pack.common.CmsisConstants;
+import com.arm.cmsis.pack.data.CpConditionCache;
+import com.arm.cmsis.pack.data.CpItem;
 import com.arm.cmsis.pack.data.CpPack;
 import com.arm.cmsis.pack.data.CpPackCollection;
 import com.arm.cmsis.pack.data.CpPackFamily;
@@ -41,11 +53,15 @@ import com.arm.cmsis.pack.events.IRteEventListener;
 import com.arm.cmsis.pack.events.IRteEventProxy;
 import com.arm.cmsis.pack.events.RteEvent;
 import com.arm.cmsis.pack.generic.IAttributes;
+import com.arm.cmsis.pack.parser.CpPackCache;
 import com.arm.cmsis.pack.parser.ICpXmlParser;
+import com.arm.cmsis.pack.parser.PdscHeaderParser;
 import com.arm.cmsis.pack.parser.PdscParser;
+import com.arm.cmsis.pack.parser.PdscStreamParser;
 import com.arm.cmsis.pack.preferences.CpPreferenceInitializer;
 import com.arm.cmsis.pack.repository.CpRepositoryList;
 import com.arm.cmsis.pack.repository.RtePackJobResult;
+import com.arm.cmsis.pack.repository.RtePacksChange;
 import com.arm.cmsis.pack.rte.boards.IRteBoardItem;
 import com.arm.cmsis.pack.rte.boards.RteBoardItem;
 import com.arm.cmsis.pack.rte.devices.IRteDeviceItem;
@@ -53,6 +69,8 @@ import com.arm.cmsis.pack.rte.devices.IRteDeviceRoot;
 import com.arm.cmsis.pack.rte.devices.RteDeviceRoot;
 import com.arm.cmsis.pack.rte.examples.IRteExampleItem;
 import com.arm.cmsis.pack.rte.examples.RteExampleItem;
+import com.arm.cmsis.pack.rte.packs.RtePackDeviceIndex;
+import com.arm.cmsis.pack.utils.DaemonThreadFactory;
 import com.arm.cmsis.pack.utils.FileChangeWatcher;
 import com.arm.cmsis.pack.utils.Utils;
 import com.arm.cmsis.pack.utils.VersionComparator;
@@ -69,11 +87,13 @@ public class CpPackManager implements ICpPackManager, IRteEventListener {
 	protected ICpPackFamily allErrorPacks = null; // error pack collection
 
 	protected ICpXmlParser pdscParser = null;
+	protected CpPackCache packCache = null; // persistent cache of parsed pdsc files
 	protected IRteDeviceRoot allDevices = null;
 	protected IRteDeviceRoot allInstalledDevices = null;
 	protected Map<String, ICpBoard> allBoards = null;
 	protected IRteBoardItem allRteBoards = null;
 	protected IRteExampleItem allExamples = null;
+	protected RtePackDeviceIndex packDeviceIndex = null; // built on demand, discarded when packs change
 	protected String cmsisPackRootDirectory = null;
 	protected URI cmsisPackRootURI = null;
 
@@ -92,6 +112,67 @@ public class CpPackManager implements ICpPackManager, IRteEventListener {
 	protected PackIdxWatcher packIdxWatcher = null;
 	protected GpdscWatcher gpdscWatcher = new GpdscWatcher();
 
+	// maximum number of threads to parse pdsc files in parallel, 1 means sequential loading
+	protected int nLoadThreads = DaemonThreadFactory.getDefaultThreadCount();
+
+	// read only pdsc header of available and downloaded packs, full content is loaded on demand
+	protected boolean bLazyLoading = true;
+	protected ICpXmlParser headerParser = null;
+
+	// pdsc files the pack collections are built from, used to detect changes when pack.idx is touched
+	protected Map<String, LoadedPdsc> fLoadedFiles = null;
+
+	// pack states in the order pack directories are loaded
+	protected static final PackState[] LOAD_ORDER = { PackState.AVAILABLE, PackState.DOWNLOADED, PackState.INSTALLED };
+
+	/**
+	 * Result of parsing a single pdsc file by a worker thread
+	 */
+	protected static class PackLoadResult {
+		public final String file;
+		public final ICpPack pack;
+		public final List<String> errors;
+
+		public PackLoadResult(String file, ICpPack pack, List<String> errors) {
+			this.file = file;
+			this.pack = pack;
+			this.errors = errors;
+		}
+	}
+
+	/**
+	 * Pdsc file loaded into pack collections with its time stamp
+	 */
+	protected static class LoadedPdsc {
+		public final String file;
+		public final ICpPack pack;
+		public final PackState state; // state of the directory the file is loaded from
+		public final long modified;
+		public final long length;
+
+		public LoadedPdsc(String file, ICpPack pack, PackState state) {
+			this.file = file;
+			this.pack = pack;
+			this.state = state;
+			File f = new File(file);
+			this.modified = f.lastModified();
+			this.length = f.length();
+		}
+
+		/**
+		 * Checks if the file is modified or moved to another pack directory since loaded
+		 * @param currentState state of the directory the file is found in now
+		 * @return true if the file must be reloaded
+		 */
+		public boolean isModified(PackState currentState) {
+			if(state != currentState) {
+				return true;
+			}
+			File f = new File(file);
+			return f.lastModified() != modified || f.length() != length;
+		}
+	}
+
 	class PackIdxWatcher extends FileChangeWatcher {
 
 		public PackIdxWatcher(){
@@ -124,7 +205,7 @@ public class CpPackManager implements ICpPackManager, IRteEventListener {
 		protected void action(String file, int kind) {
 			if (fPackInstaller == null || !fPackInstaller.isBusy()) {
 				if(!isReloadPending()) {
-					reload();
+					reloadChanged();
 				}
 			}
 		}
@@ -185,6 +266,54 @@ public class CpPackManager implements ICpPackManager, IRteEventListener {
 	public CpPackManager() {
 	}
 
+	/**
+	 * Returns maximum number of threads used to parse pdsc files
+	 * @return number of threads, 1 if packs are loaded sequentially
+	 */
+	public int getLoadThreads() {
+		return nLoadThreads;
+	}
+
+	/**
+	 * Sets maximum number of threads used to parse pdsc files
+	 * @param nThreads number of threads, 1 or less to load packs sequentially
+	 */
+	public void setLoadThreads(int nThreads) {
+		nLoadThreads = nThreads > 1 ? nThreads : 1;
+	}
+
+	/**
+	 * Checks if lazy loading is enabled for available and downloaded packs
+	 * @return true if only pdsc header is read initially
+	 */
+	public boolean isLazyLoading() {
+		return bLazyLoading;
+	}
+
+	/**
+	 * Enables or disables lazy loading of available and downloaded packs
+	 * @param bLazy true to read only pdsc header initially and load full content on demand
+	 */
+	public void setLazyLoading(boolean bLazy) {
+		bLazyLoading = bLazy;
+	}
+
+	/**
+	 * Checks if packs in current state should be loaded lazily:
+	 * installed packs are always fully loaded, schema validation requires full parsing
+	 * @return true if pdsc header parser should be used
+	 */
+	protected boolean isLazyLoad() {
+		if(!bLazyLoading || !isParallelLoadSupported()) {
+			return false; // custom parsers are used as is
+		}
+		if(packState != PackState.AVAILABLE && packState != PackState.DOWNLOADED) {
+			return false;
+		}
+		String xsdFile = pdscParser != null ? pdscParser.getXsdFile() : null;
+		return xsdFile == null || xsdFile.isEmpty();
+	}
+
 	public String getPackIdxFile() {
 		String idxFile = getCmsisPackRootDirectory();
 		if(idxFile != null && !idxFile.isEmpty()) {
@@ -211,6 +340,12 @@ public class CpPackManager implements ICpPackManager, IRteEventListener {
 		}
 	}
 
+	protected void emitRteEvent(String topic, Object data) {
+		if(fRteEventProxy != null) {
+			fRteEventProxy.notifyListeners(new RteEvent(topic, data));
+		}
+	}
+
 	@Override
 	public void setPackInstaller(ICpPackInstaller packInstaller) {
 		fPackInstaller = packInstaller;
@@ -226,7 +361,7 @@ public class CpPackManager implements ICpPackManager, IRteEventListener {
 	@Override
 	public boolean initParser(String xsdFile){
 		if(pdscParser == null) {
-			pdscParser = new PdscParser(xsdFile);
+			pdscParser = new PdscStreamParser(xsdFile); // falls back to DOM if schema validation is requested
 		} else {
 			pdscParser.setXsdFile(xsdFile);
 		}
@@ -245,8 +380,11 @@ public class CpPackManager implements ICpPackManager, IRteEventListener {
 		allBoards = null;
 		allRteBoards = null;
 		allExamples = null;
+		packDeviceIndex = null;
 		fGeneratedPacks = null;
+		fLoadedFiles = null;
 		bPacksLoaded = false;
+		CpConditionCache.getDefault().clear();
 		if(pdscParser != null) {
 			pdscParser.clear();
 		}
@@ -270,6 +408,31 @@ public class CpPackManager implements ICpPackManager, IRteEventListener {
 		setReloading(false);
 	}
 
+	/**
+	 * Updates packs for added, removed and modified pdsc files only, performs full reload if packs are not loaded yet.
+	 * Emits RteEvent.PACKS_UPDATED event with RtePacksChange data if anything has changed
+	 */
+	public void reloadChanged() {
+		if(isReloading()) {
+			return;
+		}
+		setReloading(true);
+		RtePacksChange change = null;
+		try {
+			change = updateChangedPacks();
+		} finally {
+			setReloading(false);
+		}
+		if(change == null) {
+			reload();
+			return;
+		}
+		setReloadPending(false);
+		if(!change.isEmpty()) {
+			emitRteEvent(RteEvent.PACKS_UPDATED, change);
+		}
+	}
+
 	protected synchronized boolean isReloading() {
 		return bReloading;
 	}
@@ -293,6 +456,8 @@ public class CpPackManager implements ICpPackManager, IRteEventListener {
 
 		clear();
 		pdscParser = null;
+		headerParser = null;
+		packCache = null;
 		bReloading = false;
 		bReloadPending = false;
 		clearPackIdxWatcher();
@@ -396,6 +561,15 @@ public class CpPackManager implements ICpPackManager, IRteEventListener {
 		return allRteBoards;
 	}
 
+	@Override
+	synchronized public RtePackDeviceIndex getPackDeviceIndex() {
+		getPacks(); // ensure allPacks are loaded
+		if(packDeviceIndex == null && bPacksLoaded && allDevicePacks != null)  {
+			packDeviceIndex = new RtePackDeviceIndex(allDevicePacks, getDevices());
+		}
+		return packDeviceIndex;
+	}
+
 	@Override
 	public Collection<ICpBoard> getCompatibleBoards(IAttributes deviceAttributes) {
 		List<ICpBoard> boards =  new LinkedList<ICpBoard>();
@@ -431,27 +605,96 @@ public class CpPackManager implements ICpPackManager, IRteEventListener {
 			return false;
 		}
 
-		packState = PackState.AVAILABLE;
-		File webFile = new File(getCmsisPackWebDir());
-		Collection<String> availableFileNames = Utils.findPdscFiles(webFile, null, 0);
-		loadPacks(availableFileNames);
-		
-		File localFile = new File(getCmsisPackLocalDir());
-		Collection<String> localFileNames = Utils.findPdscFiles(localFile, null, 0);
-		loadPacks(localFileNames);
+		initPackCache(rootDirectory);
+		Map<String, PackState> allFiles = findPdscFiles(root);
+		loadPacks(allFiles);
 
-		packState = PackState.DOWNLOADED;
-		File downloadFile = new File(getCmsisPackDownloadDir());
-		Collection<String> downloadedFileNames = Utils.findPdscFiles(downloadFile, null, 0);
-		loadPacks(downloadedFileNames);
+		if(packCache != null) {
+			packCache.retainAll(allFiles.keySet()); // remove deleted files from the cache
+			packCache.save();
+		}
+		return true;
+	}
 
-		packState = PackState.INSTALLED;
-		Collection<String> installedFileNames = Utils.findPdscFiles(root, null, 3);
-		loadPacks(installedFileNames);
+	/**
+	 * Collects pdsc files from pack directories: .Web and .Local contain available packs,
+	 * .Download downloaded ones, installed packs are located in vendor/name/version sub-directories
+	 * @param root pack root directory
+	 * @return map of pdsc file names to pack states in loading order
+	 */
+	protected Map<String, PackState> findPdscFiles(File root) {
+		Map<String, PackState> files = new LinkedHashMap<String, PackState>();
+		addPdscFiles(files, Utils.findPdscFiles(new File(getCmsisPackWebDir()), null, 0), PackState.AVAILABLE);
+		addPdscFiles(files, Utils.findPdscFiles(new File(getCmsisPackLocalDir()), null, 0), PackState.AVAILABLE);
+		addPdscFiles(files, Utils.findPdscFiles(new File(getCmsisPackDownloadDir()), null, 0), PackState.DOWNLOADED);
+		addPdscFiles(files, Utils.findPdscFiles(root, null, 3), PackState.INSTALLED);
+		return files;
+	}
 
+	protected static void addPdscFiles(Map<String, PackState> files, Collection<String> fileNames, PackState state) {
+		for(String f : fileNames) {
+			if(!files.containsKey(f)) {
+				files.put(f, state);
+			}
+		}
+	}
+
+	/**
+	 * Loads supplied pdsc files setting pack state according to their directories
+	 * @param files map of pdsc file names to pack states
+	 * @return true if all packs loaded successfully
+	 */
+	protected boolean loadPacks(Map<String, PackState> files) {
+		boolean success = true;
+		for(PackState state : LOAD_ORDER) {
+			List<String> fileNames = new ArrayList<String>();
+			for(Entry<String, PackState> e : files.entrySet()) {
+				if(e.getValue() == state) {
+					fileNames.add(e.getKey());
+				}
+			}
+			packState = state;
+			if(!loadPacks(fileNames)) {
+				success = false;
+			}
+		}
 		packState = PackState.UNKNOWN;
+		return success;
+	}
 
-		return true;
+	/**
+	 * Creates and loads pack cache for the supplied pack root directory if not yet done and sets it to the parser
+	 * @param rootDirectory CMSIS pack root directory
+	 */
+	protected void initPackCache(String rootDirectory) {
+		if (pdscParser == null) {
+			initParser(null);
+		}
+		String cacheFile = Utils.addTrailingSlash(rootDirectory) + CmsisConstants.PACK_CACHE;
+		String version = getPackCacheVersion();
+		if(packCache == null || !packCache.getCacheFile().equals(cacheFile) || !packCache.getVersion().equals(version)) {
+			packCache = new CpPackCache(cacheFile, version);
+			packCache.load();
+		}
+		pdscParser.setCache(packCache);
+	}
+
+	/**
+	 * Returns version string the pack cache is valid for: consists of plug-in version and schema file
+	 * @return pack cache version string
+	 */
+	protected String getPackCacheVersion() {
+		String version = CmsisConstants.EMPTY_STRING;
+		CpPlugIn plugin = CpPlugIn.getDefault();
+		if(plugin != null && plugin.getBundle() != null) {
+			version = plugin.getBundle().getVersion().toString();
+		}
+		String xsdFile = pdscParser != null ? pdscParser.getXsdFile() : null;
+		if(xsdFile != null && !xsdFile.isEmpty()) {
+			File f = new File(xsdFile);
+			version += ';' + xsdFile + ';' + f.length() + ';' + f.lastModified();
+		}
+		return version;
 	}
 
 
@@ -460,6 +703,9 @@ public class CpPackManager implements ICpPackManager, IRteEventListener {
 		if(fileNames == null || fileNames.isEmpty()) {
 			return true; // nothing to load => success
 		}
+		if(nLoadThreads > 1 && fileNames.size() > 1 && isParallelLoadSupported()) {
+			return loadPacksParallel(fileNames);
+		}
 
 		boolean success = true;
 		for(String f : fileNames) {
@@ -470,6 +716,118 @@ public class CpPackManager implements ICpPackManager, IRteEventListener {
 		return success;
 	}
 
+	/**
+	 * Parses supplied pdsc files in parallel using a parser per worker thread,
+	 * adds the results to the pack collections in the order of supplied file names
+	 * @param fileNames collection of pdsc files to load
+	 * @return true if all packs loaded successfully
+	 */
+	protected boolean loadPacksParallel(final Collection<String> fileNames) {
+		int nThreads = Math.min(nLoadThreads, fileNames.size());
+		final ThreadLocal<ICpXmlParser> parsers = isLazyLoad() ?
+				ThreadLocal.withInitial(this::createHeaderParser) :
+				ThreadLocal.withInitial(this::createParser);
+		List<Callable<PackLoadResult>> tasks = new ArrayList<Callable<PackLoadResult>>(fileNames.size());
+		for(final String f : fileNames) {
+			tasks.add(() -> parsePack(parsers.get(), f));
+		}
+
+		List<Future<PackLoadResult>> futures = null;
+		ExecutorService executor = Executors.newFixedThreadPool(nThreads, new DaemonThreadFactory("CMSIS Pack Loader")); //$NON-NLS-1$
+		try {
+			futures = executor.invokeAll(tasks);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			executor.shutdownNow();
+		}
+
+		// merge results in deterministic order, same as sequential loading
+		boolean success = true;
+		int i = 0;
+		for(String f : fileNames) {
+			PackLoadResult result = null;
+			if(futures != null) {
+				try {
+					result = futures.get(i).get();
+				} catch (InterruptedException | ExecutionException e) {
+					result = null;
+				}
+			}
+			i++;
+			ICpPack pack;
+			if(result != null) {
+				if(result.pack == null) {
+					emitParserErrors(result.errors);
+				}
+				pack = addPack(result.file, result.pack, result.errors);
+			} else {
+				pack = loadPack(f); // fall back to sequential parsing
+			}
+			if(pack == null) {
+				success = false;
+			}
+		}
+		return success;
+	}
+
+	/**
+	 * Checks if pdsc files can be parsed in parallel: the current parser must be replicable by createParser()
+	 * @return true if parallel loading is supported
+	 */
+	protected boolean isParallelLoadSupported() {
+		if(pdscParser == null) {
+			return true;
+		}
+		// custom parsers set via setParser() are used sequentially
+		Class<?> parserClass = pdscParser.getClass();
+		return parserClass == PdscStreamParser.class || parserClass == PdscParser.class;
+	}
+
+	/**
+	 * Creates a new pdsc parser of the same type as the current one to be used by a worker thread
+	 * @return new initialized ICpXmlParser
+	 */
+	protected ICpXmlParser createParser() {
+		String xsdFile = pdscParser != null ? pdscParser.getXsdFile() : null;
+		ICpXmlParser parser;
+		if(pdscParser != null && pdscParser.getClass() == PdscParser.class) {
+			parser = new PdscParser(xsdFile);
+		} else {
+			parser = new PdscStreamParser(xsdFile);
+		}
+		parser.setCache(packCache);
+		parser.init();
+		return parser;
+	}
+
+	/**
+	 * Creates a new parser reading only pdsc header, the created packs load their full content on demand
+	 * @return new initialized PdscHeaderParser
+	 */
+	protected ICpXmlParser createHeaderParser() {
+		PdscHeaderParser parser = new PdscHeaderParser();
+		parser.setRteEventProxy(getRteEventProxy());
+		parser.setCache(packCache);
+		parser.init();
+		return parser;
+	}
+
+	/**
+	 * Parses a single pdsc file with the supplied parser without modifying pack collections
+	 * @param parser ICpXmlParser to use
+	 * @param file pdsc file to parse
+	 * @return PackLoadResult containing parsed pack and errors
+	 */
+	protected PackLoadResult parsePack(ICpXmlParser parser, String file) {
+		ICpItem item = parser.parseFile(file);
+		ICpPack pack = null;
+		if(item instanceof ICpPack) {
+			pack = (ICpPack)item;
+		}
+		return new PackLoadResult(file, pack, new ArrayList<String>(parser.getErrorStrings()));
+	}
+
 	@Override
 	public ICpPack readPack(String file){
 		if (pdscParser == null) {
@@ -481,20 +839,51 @@ public class CpPackManager implements ICpPackManager, IRteEventListener {
 		}
 
 		if(pdscParser.getErrorCount() > 0) {
-			List<String> errors = pdscParser.getErrorStrings();
-			if(errors != null && !errors.isEmpty()) {
-				for(String msg : errors) {
-					if(msg != null && !msg.isEmpty()){
-						getRteEventProxy().emitRteEvent(RteEvent.PRINT_ERROR, msg);
-					}
-				}
-			}
+			emitParserErrors(pdscParser.getErrorStrings());
 		}
 
 		return null;
 	}
 
+	/**
+	 * Emits parser errors as PRINT_ERROR events
+	 * @param errors list of error strings
+	 */
+	protected void emitParserErrors(List<String> errors) {
+		if(errors != null && !errors.isEmpty()) {
+			for(String msg : errors) {
+				if(msg != null && !msg.isEmpty()){
+					getRteEventProxy().emitRteEvent(RteEvent.PRINT_ERROR, msg);
+				}
+			}
+		}
+	}
+
 	protected ICpPack loadPack(String file){
+		if(isLazyLoad()) {
+			if(headerParser == null) {
+				headerParser = createHeaderParser();
+			} else {
+				headerParser.setCache(packCache);
+			}
+			PackLoadResult result = parsePack(headerParser, file);
+			if(result.pack == null) {
+				emitParserErrors(result.errors);
+			}
+			return addPack(file, result.pack, result.errors);
+		}
+		ICpPack pack  = readPack(file);
+		return addPack(file, pack, pdscParser.getErrorStrings());
+	}
+
+	/**
+	 * Adds parsed pack to the pack collections or to the error packs if the pack could not be parsed
+	 * @param file pdsc file the pack is read from
+	 * @param pack parsed ICpPack or null if parsing failed
+	 * @param errors parser errors
+	 * @return added ICpPack or created error pack
+	 */
+	protected ICpPack addPack(String file, ICpPack pack, List<String> errors){
 		if(allPacks == null) {
 			allPacks = new CpPackCollection();
 		}
@@ -508,9 +897,9 @@ public class CpPackManager implements ICpPackManager, IRteEventListener {
 			allInstalledPacks = new CpPackCollection();
 		}
 
-		ICpPack pack  = readPack(file);
 		if (pack != null && CmsisConstants.PACKAGE_TAG.equals(pack.getTag())) {
 			pack.setPackState(packState);
+			freezePack(pack);
 			allPacks.addChild(pack);
 			if (packState == PackState.INSTALLED) {
 				allInstalledPacks.addChild(pack);
@@ -531,8 +920,8 @@ public class CpPackManager implements ICpPackManager, IRteEventListener {
 			pack.setPackState(PackState.ERROR);
 			allErrorPacks.addChild(pack);
 			String errorString;
-			if (!pdscParser.getErrorStrings().isEmpty()) {
-				errorString = pdscParser.getErrorStrings().get(0);
+			if (errors != null && !errors.isEmpty()) {
+				errorString = errors.get(0);
 			} else if (!CmsisConstants.PACKAGE_TAG.equals(pack.getTag())) {
 				errorString = pack.getFileName() + ": " //$NON-NLS-1$
 						+ CpStrings.CpPackManager_UnrecognizedFileFormatError;
@@ -545,9 +934,41 @@ public class CpPackManager implements ICpPackManager, IRteEventListener {
 						ConsoleType.ERROR);
 			}
 		}
+		addLoadedFile(file, pack, packState);
 		return pack;
 	}
 
+	/**
+	 * Returns key to store loaded pdsc file under
+	 * @param file pdsc file name
+	 * @return normalized absolute file path
+	 */
+	protected static String getFileKey(String file) {
+		return new File(file).getAbsolutePath();
+	}
+
+	/**
+	 * Remembers pdsc file the pack is loaded from
+	 * @param file pdsc file name
+	 * @param pack loaded ICpPack or error pack
+	 * @param state state of the directory the file is loaded from
+	 */
+	protected void addLoadedFile(String file, ICpPack pack, PackState state) {
+		if(file == null || file.isEmpty()) {
+			return;
+		}
+		if(fLoadedFiles == null) {
+			fLoadedFiles = new HashMap<String, LoadedPdsc>();
+		}
+		fLoadedFiles.put(getFileKey(file), new LoadedPdsc(file, pack, state));
+	}
+
+	protected void removeLoadedFile(String file) {
+		if(fLoadedFiles != null && file != null && !file.isEmpty()) {
+			fLoadedFiles.remove(getFileKey(file));
+		}
+	}
+
 	@Override
 	public String getCmsisPackRootDirectory() {
 		return cmsisPackRootDirectory;
@@ -662,6 +1083,16 @@ public class CpPackManager implements ICpPackManager, IRteEventListener {
 		}
 	}
 
+	/**
+	 * Freezes attributes of pack items: they are not modified after loading and can be read without locking
+	 * @param pack ICpPack to freeze
+	 */
+	protected void freezePack(ICpPack pack) {
+		if(pack instanceof CpItem) {
+			((CpItem)pack).freezeAttributes();
+		}
+	}
+
 	protected void processPackAdded(RtePackJobResult jobResult) {
 		if (jobResult == null || !jobResult.isSuccess()) {
 			return;
@@ -677,6 +1108,9 @@ public class CpPackManager implements ICpPackManager, IRteEventListener {
 		if(pack == null) {
 			return;
 		}
+		freezePack(pack);
+		addLoadedFile(pack.getFileName(), pack, pack.getPackState());
+		packDeviceIndex = null;
 		// Update pack collection
 		allPacks.addChild(pack);
 		if (pack.isDevicelessPack()) {
@@ -710,6 +1144,8 @@ public class CpPackManager implements ICpPackManager, IRteEventListener {
 			return;
 		}
 		ICpPack pack = jobResult.getPack();
+		removeLoadedFile(pack.getFileName());
+		packDeviceIndex = null;
 		// if the deleted pack is an error pack, only need to remove it from allErrorPacks
 		if (pack.getPackState() == PackState.ERROR) {
 			allErrorPacks.removeChild(pack);
@@ -768,6 +1204,210 @@ public class CpPackManager implements ICpPackManager, IRteEventListener {
 		processPackAdded(newPack);
 	}
 
+	/**
+	 * Compares pdsc files in pack directories with the loaded ones and patches pack collections,
+	 * device, board and example trees for removed, added and modified files
+	 * @return RtePacksChange describing the changes or null if packs must be reloaded completely
+	 */
+	protected synchronized RtePacksChange updateChangedPacks() {
+		if(!bPacksLoaded || allPacks == null || fLoadedFiles == null || cmsisPackRootDirectory == null) {
+			return null;
+		}
+		File root = new File(cmsisPackRootDirectory);
+		if(!root.exists()) {
+			return null;
+		}
+
+		// a modified file is removed and added again
+		Map<String, PackState> allFiles = findPdscFiles(root);
+		Map<String, PackState> addedFiles = new LinkedHashMap<String, PackState>();
+		List<LoadedPdsc> removedFiles = new ArrayList<LoadedPdsc>();
+		Set<String> fileKeys = new HashSet<String>();
+		for(Entry<String, PackState> e : allFiles.entrySet()) {
+			String key = getFileKey(e.getKey());
+			fileKeys.add(key);
+			LoadedPdsc loaded = fLoadedFiles.get(key);
+			if(loaded == null) {
+				addedFiles.put(e.getKey(), e.getValue());
+			} else if(loaded.isModified(e.getValue())) {
+				removedFiles.add(loaded);
+				addedFiles.put(e.getKey(), e.getValue());
+			}
+		}
+		for(Entry<String, LoadedPdsc> e : fLoadedFiles.entrySet()) {
+			if(!fileKeys.contains(e.getKey())) {
+				removedFiles.add(e.getValue());
+			}
+		}
+
+		RtePacksChange change = new RtePacksChange();
+		if(removedFiles.isEmpty() && addedFiles.isEmpty()) {
+			return change;
+		}
+		CpConditionCache.getDefault().clear(); // cached results can refer to removed conditions
+		packDeviceIndex = null;
+
+		for(LoadedPdsc loaded : removedFiles) {
+			removeLoadedFile(loaded.file);
+			removePack(loaded.pack);
+			change.addRemovedPack(loaded.pack);
+		}
+
+		initPackCache(cmsisPackRootDirectory);
+		loadPacks(addedFiles);
+		for(String f : addedFiles.keySet()) {
+			LoadedPdsc loaded = fLoadedFiles.get(getFileKey(f));
+			if(loaded != null) {
+				change.addAddedPack(loaded.pack);
+			}
+		}
+
+		// restore packs hidden by removed ones and add content of the effective packs of changed families
+		Collection<String> familyIds = change.getPackFamilyIds();
+		for(LoadedPdsc loaded : fLoadedFiles.values()) {
+			ICpPack pack = loaded.pack;
+			if(pack.getPackState() != PackState.ERROR && familyIds.contains(pack.getPackFamilyId())) {
+				addPack(pack, loaded.state);
+			}
+		}
+		removeEmptyFamilies(familyIds);
+		for(String familyId : familyIds) {
+			ICpPackFamily family = allPacks.getFamily(familyId);
+			Collection<ICpPack> packs = family != null ? family.getPacks() : null;
+			if(packs == null) {
+				continue;
+			}
+			for(ICpPack pack : packs) {
+				if (allRteBoards != null) {
+					allRteBoards.addBoards(pack);
+				}
+				addBoards(pack);
+				if (allExamples != null) {
+					allExamples.addExamples(pack);
+				}
+			}
+		}
+		if(allDevices != null) {
+			for(ICpPack pack : allPacks.getLatestEffectivePacks()) {
+				if(familyIds.contains(pack.getPackFamilyId())) {
+					allDevices.addDevices(pack);
+				}
+			}
+		}
+		if(allInstalledDevices != null) {
+			for(ICpPack pack : allInstalledPacks.getLatestInstalledPacks()) {
+				if(familyIds.contains(pack.getPackFamilyId())) {
+					allInstalledDevices.addDevices(pack);
+				}
+			}
+		}
+
+		if(packCache != null) {
+			packCache.retainAll(allFiles.keySet());
+			packCache.save();
+		}
+		return change;
+	}
+
+	/**
+	 * Adds already loaded pack to pack collections
+	 * @param pack ICpPack to add
+	 * @param state state of the directory the pack is loaded from
+	 */
+	protected void addPack(ICpPack pack, PackState state) {
+		allPacks.addChild(pack);
+		if (state == PackState.INSTALLED) {
+			allInstalledPacks.addChild(pack);
+		}
+		if (pack.isDevicelessPack()) {
+			allGenericPacks.addChild(pack);
+		} else {
+			allDevicePacks.addChild(pack);
+		}
+	}
+
+	/**
+	 * Removes pack from pack collections, its devices, boards and examples from the trees
+	 * @param pack ICpPack to remove
+	 */
+	protected void removePack(ICpPack pack) {
+		if (pack.getPackState() == PackState.ERROR) {
+			if(allErrorPacks != null) {
+				allErrorPacks.removeChild(pack);
+			}
+			return;
+		}
+		if(!containsPack(allPacks, pack)) {
+			return; // hidden by a pack with the same ID, trees do not contain its items
+		}
+		if (allDevices != null) {
+			allDevices.removeDevices(pack);
+		}
+		if (allInstalledDevices != null) {
+			allInstalledDevices.removeDevices(pack);
+		}
+		if (allRteBoards != null) {
+			allRteBoards.removeBoards(pack);
+		}
+		if (allExamples != null) {
+			allExamples.removeExamples(pack);
+		}
+		if (allBoards != null) {
+			Collection<? extends ICpItem> boards = pack.getGrandChildren(CmsisConstants.BOARDS_TAG);
+			if(boards != null && !boards.isEmpty()) {
+				allBoards = null; // collected again on demand, boards with the same ID can come from other packs
+			}
+		}
+
+		String familyId = pack.getPackFamilyId();
+		ICpPackCollection[] packCollections = { allPacks, allInstalledPacks, allGenericPacks, allDevicePacks };
+		for (ICpPackCollection packCollection : packCollections) {
+			ICpPackFamily packFamily = packCollection.getFamily(familyId);
+			if(packFamily != null) {
+				packFamily.removeChild(pack); // empty family is kept: restored packs still refer to it as parent
+			}
+		}
+	}
+
+	/**
+	 * Removes pack families without packs from pack collections
+	 * @param familyIds IDs of families to check
+	 */
+	protected void removeEmptyFamilies(Collection<String> familyIds) {
+		ICpPackCollection[] packCollections = { allPacks, allInstalledPacks, allGenericPacks, allDevicePacks };
+		for (ICpPackCollection packCollection : packCollections) {
+			for(String familyId : familyIds) {
+				ICpPackFamily packFamily = packCollection.getFamily(familyId);
+				if(packFamily == null) {
+					continue;
+				}
+				Collection<ICpPack> packs = packFamily.getPacks();
+				if(packs == null || packs.isEmpty()) {
+					packCollection.removeChild(packFamily);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Checks if the collection contains the pack instance
+	 * @param packCollection ICpPackCollection to search
+	 * @param pack ICpPack to search for
+	 * @return true if the pack is contained in the collection
+	 */
+	protected static boolean containsPack(ICpPackCollection packCollection, ICpPack pack) {
+		ICpPackFamily packFamily = packCollection.getFamily(pack.getPackFamilyId());
+		Collection<ICpPack> packs = packFamily != null ? packFamily.getPacks() : null;
+		if(packs == null) {
+			return false;
+		}
+		for(ICpPack p : packs) {
+			if(p == pack) {
+				return true;
+			}
+		}
+		return false;
+	}
 
 	protected void addBoards(ICpPack pack) {
 		if (pack == null) {
@@ -845,6 +1485,7 @@ public class CpPackManager implements ICpPackManager, IRteEventListener {
 		ICpPack pack  = readPack(file);
 		if(pack != null) {
 			pack.setPackState(PackState.GENERATED);
+			freezePack(pack);
 		}
 
 		if(fGeneratedPacks == null) {
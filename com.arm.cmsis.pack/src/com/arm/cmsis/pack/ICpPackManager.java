@@ -31,6 +31,7 @@ import com.arm.cmsis.pack.repository.CpRepositoryList;
 import com.arm.cmsis.pack.rte.boards.IRteBoardItem;
 import com.arm.cmsis.pack.rte.devices.IRteDeviceItem;
 import com.arm.cmsis.pack.rte.examples.IRteExampleItem;
+import com.arm.cmsis.pack.rte.packs.RtePackDeviceIndex;
 
 /**
  *  Interface to a Pack manager responsible for loading CMSIS-Packs
@@ -160,6 +161,20 @@ public interface ICpPackManager {
 	 */
 	IRteBoardItem getRteBoards();
 
+	/**
+	 * Returns index of device-specific pack families by names of their devices and boards
+	 * <p/>
+	 * Default implementation creates a new index on every call, implementations should cache it
+	 * @return RtePackDeviceIndex, rebuilt after packs are changed, null if packs are not loaded
+	 */
+	default RtePackDeviceIndex getPackDeviceIndex() {
+		ICpPackCollection devicePacks = getDevicePacks();
+		if(devicePacks == null) {
+			return null;
+		}
+		return new RtePackDeviceIndex(devicePacks, getDevices());
+	}
+
 
 	/**
 	 * Returns collection of boards that contain mounted or compatible device matching suppled device attributes
@@ -0,0 +1,108 @@
+/*******************************************************************************
+* Copyright (c) 2015 ARM Ltd. and others
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* ARM Ltd and ARM Germany GmbH - Initial API and implementation
+*******************************************************************************/
+
+package com.arm.cmsis.pack.repository;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+import com.arm.cmsis.pack.data.ICpPack;
+import com.arm.cmsis.pack.data.ICpPack.PackState;
+
+/**
+ * Packs added and removed by an incremental pack update, sent as data of RteEvent.PACKS_UPDATED event.
+ * A modified pdsc file results in the same pack ID to be listed as removed and added.
+ */
+public class RtePacksChange {
+
+	protected Set<String> addedPackIds = new TreeSet<String>();
+	protected Set<String> removedPackIds = new TreeSet<String>();
+	protected Set<String> familyIds = new TreeSet<String>();
+	protected boolean errorsChanged = false;
+
+	/**
+	 * Registers added pack
+	 * @param pack added ICpPack
+	 */
+	public void addAddedPack(ICpPack pack) {
+		if(pack == null) {
+			return;
+		}
+		if(pack.getPackState() == PackState.ERROR) {
+			errorsChanged = true;
+			return;
+		}
+		addedPackIds.add(pack.getId());
+		familyIds.add(pack.getPackFamilyId());
+	}
+
+	/**
+	 * Registers removed pack
+	 * @param pack removed ICpPack
+	 */
+	public void addRemovedPack(ICpPack pack) {
+		if(pack == null) {
+			return;
+		}
+		if(pack.getPackState() == PackState.ERROR) {
+			errorsChanged = true;
+			return;
+		}
+		removedPackIds.add(pack.getId());
+		familyIds.add(pack.getPackFamilyId());
+	}
+
+	/**
+	 * @return IDs of added packs
+	 */
+	public Collection<String> getAddedPackIds() {
+		return Collections.unmodifiableSet(addedPackIds);
+	}
+
+	/**
+	 * @return IDs of removed packs
+	 */
+	public Collection<String> getRemovedPackIds() {
+		return Collections.unmodifiableSet(removedPackIds);
+	}
+
+	/**
+	 * @return IDs of pack families with added or removed packs
+	 */
+	public Collection<String> getPackFamilyIds() {
+		return Collections.unmodifiableSet(familyIds);
+	}
+
+	/**
+	 * Checks if given pack family has added or removed packs
+	 * @param familyId pack family ID
+	 * @return true if the family is affected by the change
+	 */
+	public boolean isPackFamilyChanged(String familyId) {
+		return familyId != null && familyIds.contains(familyId);
+	}
+
+	/**
+	 * @return true if error packs were added or removed
+	 */
+	public boolean isErrorsChanged() {
+		return errorsChanged;
+	}
+
+	/**
+	 * @return true if nothing has changed
+	 */
+	public boolean isEmpty() {
+		return familyIds.isEmpty() && !errorsChanged;
+	}
+}
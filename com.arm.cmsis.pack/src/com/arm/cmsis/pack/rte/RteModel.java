@@ -11,16 +11,24 @@
 
 package com.arm.cmsis.pack.rte;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import com.arm.cmsis.pack.CpPlugIn;
 import com.arm.cmsis.pack.ICpEnvironmentProvider;
 import com.arm.cmsis.pack.ICpPackManager;
 import com.arm.cmsis.pack.common.CmsisConstants;
+import com.arm.cmsis.pack.data.CpConditionCache;
 import com.arm.cmsis.pack.data.CpConditionContext;
 import com.arm.cmsis.pack.data.CpItem;
 import com.arm.cmsis.pack.data.CpPackFilter;
@@ -56,6 +64,7 @@ import com.arm.cmsis.pack.rte.dependencies.RteDependencySolver;
 import com.arm.cmsis.pack.rte.devices.IRteDeviceItem;
 import com.arm.cmsis.pack.rte.devices.IRteDeviceRoot;
 import com.arm.cmsis.pack.rte.devices.RteDeviceRoot;
+import com.arm.cmsis.pack.utils.DaemonThreadFactory;
 import com.arm.cmsis.pack.utils.Utils;
 
 /**
@@ -90,6 +99,11 @@ public class RteModel implements IRteModel {
 
 	protected Map<String, ICpPack> fGeneratedPacks = null; // read from configuration
 
+	// maximum number of threads to evaluate component conditions in parallel, 1 means sequential collection
+	protected int nCollectThreads = DaemonThreadFactory.getDefaultThreadCount();
+	// collector threads are shared by all models and reused between updates, idle threads terminate
+	private static ExecutorService collectorExecutor = null;
+
 
 	/**
 	 *  Default constructor
@@ -98,6 +112,22 @@ public class RteModel implements IRteModel {
 		fDependencySolver = new RteDependencySolver(this);
 	}
 
+	/**
+	 * Returns maximum number of threads used to evaluate component conditions
+	 * @return number of threads, 1 if components are collected sequentially
+	 */
+	public int getCollectThreads() {
+		return nCollectThreads;
+	}
+
+	/**
+	 * Sets maximum number of threads used to evaluate component conditions
+	 * @param nThreads number of threads, 1 or less to collect components sequentially
+	 */
+	public void setCollectThreads(int nThreads) {
+		nCollectThreads = nThreads > 1 ? nThreads : 1;
+	}
+
 	@Override
 	public void clear() {
 		fAllInstalledPacks = null;
@@ -571,9 +601,11 @@ public class RteModel implements IRteModel {
 	 *  Updates component filter by setting new device information
 	 */
 	protected void updateComponentFilter() {
-		fComponentFilter = new CpConditionContext();
+		CpConditionContext filter = new CpConditionContext();
+		filter.setSharedCache(CpConditionCache.getDefault()); // results depend on device and toolchain attributes only
+		fComponentFilter = filter;
 		if(fDeviceInfo != null) {
-			fComponentFilter.setAttributes(fDeviceInfo.attributes().getAttributesAsMap());
+			fComponentFilter.setAttributes(fDeviceInfo.attributes());
 			// Set proper Dname attribute for condition  evaluation
 			String deviceName = fDeviceInfo.getDeviceName();
 			int i = deviceName.indexOf(':');
@@ -591,6 +623,7 @@ public class RteModel implements IRteModel {
 		ICpEnvironmentProvider ep = CpPlugIn.getEnvironmentProvider();
 		if(ep != null)
 			fComponentFilter.setAttribute(CmsisConstants.TENVIRONMENT, ep.getName());
+		filter.freeze(); // the filter is read by evaluating threads
 		
 		fComponentFilter.resetResult();
 	}
@@ -607,17 +640,18 @@ public class RteModel implements IRteModel {
 		fComponentRoot.addChild(devClass);
 
 		Collection<? extends ICpItem> children;
-		// process components from generated packs 		
+		// component packs in precedence order: generated packs, device pack, other filtered packs
+		List<ICpPack> componentPacks = new ArrayList<ICpPack>();
 		if(fGeneratedPacks != null && !fGeneratedPacks.isEmpty()) {
 			for(ICpPack pack : fGeneratedPacks.values()){
 				if(pack == null)
 					continue; 
-				children = pack.getGrandChildren(CmsisConstants.COMPONENTS_TAG);
-				collectComponents(children);
+				componentPacks.add(pack);
 			}
 		}
 		// process regular packs		
 		if(fFilteredPacks == null || fFilteredPacks.isEmpty()) {
+			collectComponents(componentPacks);
 			return;
 		}
 		//  device pack has precedence, always collect its components, APIs and taxonomy first
@@ -629,16 +663,16 @@ public class RteModel implements IRteModel {
 
 		// first add components
 		if(devicePack != null) {
-			children = devicePack.getGrandChildren(CmsisConstants.COMPONENTS_TAG);
-			collectComponents(children);
+			componentPacks.add(devicePack);
 		}
 		for(ICpPack pack : fFilteredPacks ){
 			if(pack == devicePack) {
 				continue;
 			}
-			children = pack.getGrandChildren(CmsisConstants.COMPONENTS_TAG);
-			collectComponents(children);
+			componentPacks.add(pack);
 		}
+		collectComponents(componentPacks);
+
 		// then add APIs and taxonomy items
 		if(fGeneratedPacks != null && !fGeneratedPacks.isEmpty()) {
 			for(ICpPack pack : fGeneratedPacks.values()){
@@ -691,26 +725,126 @@ public class RteModel implements IRteModel {
 	}
 
 	/**
-	 * Collect components from given pack
-	 * @param pack
+	 * Adds filtered components of supplied packs to the component tree in the order of the packs
+	 * @param packs list of packs to collect components from
 	 */
-	protected void collectComponents(Collection<? extends ICpItem> children) {
-		if(children == null || children.isEmpty()) {
+	protected void collectComponents(List<ICpPack> packs) {
+		if(nCollectThreads > 1 && packs.size() > 1 && isParallelCollectSupported()) {
+			collectComponentsParallel(packs);
 			return;
 		}
+		for(ICpPack pack : packs) {
+			collectComponents(pack.getGrandChildren(CmsisConstants.COMPONENTS_TAG));
+		}
+	}
+
+	/**
+	 * Evaluates component conditions of supplied packs in parallel using a component filter copy per worker thread,
+	 * then adds the filtered components to the component tree in the order of the packs, same as sequential collection
+	 * @param packs list of packs to collect components from
+	 */
+	protected void collectComponentsParallel(final List<ICpPack> packs) {
+		int nThreads = Math.min(nCollectThreads, packs.size());
+		final AtomicInteger nextPack = new AtomicInteger(0);
+		final AtomicReferenceArray<List<ICpComponent>> results = new AtomicReferenceArray<List<ICpComponent>>(packs.size());
+		// every worker takes the next pack until all packs are processed
+		List<Callable<Void>> workers = new ArrayList<Callable<Void>>(nThreads);
+		for(int t = 0; t < nThreads; t++) {
+			workers.add(() -> {
+				ICpConditionContext filter = createComponentFilterCopy();
+				for(int i = nextPack.getAndIncrement(); i < packs.size(); i = nextPack.getAndIncrement()) {
+					results.set(i, filterComponents(packs.get(i).getGrandChildren(CmsisConstants.COMPONENTS_TAG), filter,
+							new ArrayList<ICpComponent>()));
+				}
+				return null;
+			});
+		}
+
+		try {
+			getCollectorExecutor().invokeAll(workers);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		for(int i = 0; i < packs.size(); i++) {
+			List<ICpComponent> components = results.get(i);
+			if(components == null) {
+				// not processed due to an error or interruption: fall back to sequential collection
+				components = filterComponents(packs.get(i).getGrandChildren(CmsisConstants.COMPONENTS_TAG), fComponentFilter,
+						new ArrayList<ICpComponent>());
+			}
+			for(ICpComponent c : components) {
+				fComponentRoot.addComponent(c);
+			}
+		}
+	}
+
+	/**
+	 * Returns executor for component collector threads shared by all models
+	 * @return ExecutorService
+	 */
+	protected static synchronized ExecutorService getCollectorExecutor() {
+		if(collectorExecutor == null) {
+			collectorExecutor = Executors.newCachedThreadPool(new DaemonThreadFactory("RTE Component Collector")); //$NON-NLS-1$
+		}
+		return collectorExecutor;
+	}
+
+	/**
+	 * Checks if components can be collected in parallel: the component filter must be replicable by createComponentFilterCopy()
+	 * @return true if parallel collection is supported
+	 */
+	protected boolean isParallelCollectSupported() {
+		return fComponentFilter != null && fComponentFilter.getClass() == CpConditionContext.class;
+	}
+
+	/**
+	 * Creates a component filter with the same attributes as the current one to be used by a worker thread
+	 * @return new ICpConditionContext
+	 */
+	protected ICpConditionContext createComponentFilterCopy() {
+		CpConditionContext filter = new CpConditionContext();
+		filter.setSharedCache(CpConditionCache.getDefault());
+		filter.setAttributes(fComponentFilter);
+		return filter;
+	}
+
+	/**
+	 * Collects components that fulfill the conditions of the supplied filter
+	 * @param children collection of component and bundle items
+	 * @param filter condition context to evaluate components
+	 * @param components list to add filtered components to
+	 * @return the supplied list
+	 */
+	protected List<ICpComponent> filterComponents(Collection<? extends ICpItem> children, ICpConditionContext filter,
+			List<ICpComponent> components) {
+		if(children == null || children.isEmpty()) {
+			return components;
+		}
 		for(ICpItem item : children){
 			if(item.getTag().equals(CmsisConstants.BUNDLE_TAG)){
-				// insert bundle implicitly since its components can be filtered out
-				collectComponents(item.getChildren());
+				filterComponents(item.getChildren(), filter, components);
 			} else if(item instanceof ICpComponent) { // skip doc and description items
 				ICpComponent c = (ICpComponent) item;
-				EEvaluationResult res = c.evaluate(fComponentFilter);
+				EEvaluationResult res = c.evaluate(filter);
 				if(res.ordinal() < EEvaluationResult.FULFILLED.ordinal()) {
 					continue; // filtered out
 				}
-				fComponentRoot.addComponent(c);
+				components.add(c);
 			}
 		}
+		return components;
+	}
+
+	/**
+	 * Collect components from given pack
+	 * @param children collection of component and bundle items of a pack
+	 */
+	protected void collectComponents(Collection<? extends ICpItem> children) {
+		// bundles are inserted implicitly since their components can be filtered out
+		for(ICpComponent c : filterComponents(children, fComponentFilter, new ArrayList<ICpComponent>())) {
+			fComponentRoot.addComponent(c);
+		}
 	}
 
 	@Override
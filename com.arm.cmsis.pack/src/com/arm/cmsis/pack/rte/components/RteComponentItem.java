@@ -12,6 +12,8 @@
 package com.arm.cmsis.pack.rte.components;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -28,6 +30,7 @@ import com.arm.cmsis.pack.item.CmsisMapItem;
 import com.arm.cmsis.pack.rte.RteConstants;
 import com.arm.cmsis.pack.rte.dependencies.IRteDependency;
 import com.arm.cmsis.pack.utils.AlnumComparator;
+import com.arm.cmsis.pack.utils.WildcardPattern;
 
 
 /**
@@ -40,6 +43,10 @@ public class RteComponentItem extends CmsisMapItem<IRteComponentItem> implements
 	protected boolean fbExclusive = true; // default is true
 	protected EComponentAttribute fComponentAttribute = EComponentAttribute.CNONE;
 	protected ICpItem fTaxonomy = null;  
+	protected Map<String, IRteComponentItem> fKeyIndex = null; // exact child keys, built on first dependency lookup
+	protected IRteComponentItem fActiveChild = null; // cached result of active child lookup
+	protected String fActiveChildKey = null; // active child name the cached child is looked up for
+	protected int fActiveChildCount = -1; // number of children when the active child was looked up
 	
 	/**
 	 * Hierarchical constructor
@@ -54,6 +61,29 @@ public class RteComponentItem extends CmsisMapItem<IRteComponentItem> implements
 	public void destroy() {
 		super.destroy();
 		fTaxonomy = null;
+		fKeyIndex = null;
+		fActiveChild = null;
+	}
+
+	@Override
+	public void clear() {
+		super.clear();
+		fKeyIndex = null;
+		fActiveChild = null;
+	}
+
+	@Override
+	public void addChild(IRteComponentItem item) {
+		super.addChild(item);
+		fKeyIndex = null;
+		fActiveChild = null;
+	}
+
+	@Override
+	public IRteComponentItem removeChild(String key) {
+		fKeyIndex = null;
+		fActiveChild = null;
+		return super.removeChild(key);
 	}
 	
 	@Override
@@ -197,9 +227,17 @@ public class RteComponentItem extends CmsisMapItem<IRteComponentItem> implements
 	@Override
 	public IRteComponentItem getActiveChild() {
 		if(hasChildren() && isExclusive()) {
+			IRteComponentItem activeChild = fActiveChild;
+			if(activeChild != null && fActiveChildKey == fActiveChildName && fActiveChildCount == fChildMap.size()) {
+				return activeChild; // child map lookups are expensive because of alpha-numeric and version comparators
+			}
 			String activeChildName = getActiveChildName();
 			if(fActiveChildName != null) {
-				return fChildMap.get(activeChildName);
+				activeChild = fChildMap.get(activeChildName);
+				fActiveChild = activeChild;
+				fActiveChildKey = fActiveChildName;
+				fActiveChildCount = fChildMap.size();
+				return activeChild;
 			}
 		}
 		return null;
@@ -660,7 +698,7 @@ public class RteComponentItem extends CmsisMapItem<IRteComponentItem> implements
 			}
 		}
   
-		for(Entry<String, ? extends IRteComponentItem> e : children.entrySet()) {
+		for(Entry<String, ? extends IRteComponentItem> e : getCandidateChildren(children, keyPattern).entrySet()) {
 			IRteComponentItem child = e.getValue();
 			if(child == activeChild) {
 				continue;
@@ -684,6 +722,50 @@ public class RteComponentItem extends CmsisMapItem<IRteComponentItem> implements
 	}
 
 
+	/**
+	 * Returns children that can match the key pattern: a pattern without wild cards is looked up in the child map directly,
+	 * otherwise all children are returned
+	 * @param children child map
+	 * @param keyPattern key attribute value of a dependency, can be null
+	 * @return map of candidate children, matchKey() still has to be checked for them
+	 */
+	protected Map<String, ? extends IRteComponentItem> getCandidateChildren(Map<String, ? extends IRteComponentItem> children, String keyPattern) {
+		if(keyPattern == null || !isKeyLookupSupported() || WildcardPattern.containsWildCards(keyPattern)) {
+			return children;
+		}
+		Map<String, IRteComponentItem> keyIndex = fKeyIndex;
+		if(keyIndex == null || keyIndex.size() != children.size()) {
+			// child map comparators are case-insensitive and alpha-numeric, exact keys are indexed separately
+			keyIndex = new HashMap<String, IRteComponentItem>(children);
+			fKeyIndex = keyIndex;
+		}
+		IRteComponentItem child = keyIndex.get(keyPattern);
+		if(child == null) {
+			return Collections.emptyMap();
+		}
+		return Collections.singletonMap(keyPattern, child);
+	}
+
+	/**
+	 * Checks if key attribute values are matched by wild card comparison only, so that an exact key can be looked up
+	 * @return true if children can be looked up by key
+	 */
+	protected boolean isKeyLookupSupported() {
+		EComponentAttribute keyAttribute = getKeyAttribute();
+		if(keyAttribute == null) {
+			return false;
+		}
+		switch(keyAttribute) {
+		case CVERSION:
+		case CAPIVERSION:
+		case CVENDOR:
+		case CNONE:
+			return false; // version ranges, vendor aliases or no key
+		default:
+			return true;
+		}
+	}
+
 	@Override
 	public boolean matchKey(String pattern, String key) {
 		if(pattern == null) {
@@ -11,13 +11,17 @@
 
 package com.arm.cmsis.pack.rte.dependencies;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.TreeMap;
 
 import com.arm.cmsis.pack.CpPlugIn;
@@ -58,6 +62,11 @@ public class RteDependencySolver extends CpConditionContext implements IRteDepen
 
 	protected Map<IRteComponentItem, EEvaluationResult> fEvaluationResults = null;
 
+	// data to keep dependencies between evaluations
+	protected IRteComponentItem fIndexedComponents = null; // component tree the dependencies are evaluated for
+	protected Map<String, List<Object>> fClassStates = null; // selection state of component classes
+	protected Map<String, Set<ICpExpression>> fClassExpressions = null; // reverse index: class name -> expressions matching it
+
 	/**
 	 *  Helper class to compare component by evaluation result (descending) and component name (acceding)
 	 */
@@ -92,6 +101,120 @@ public class RteDependencySolver extends CpConditionContext implements IRteDepen
 		fEvaluationResults = null;
 		fDependencyItems = null;
 		tSelectedComponents = null;
+		fIndexedComponents = null;
+		fClassStates = null;
+		fClassExpressions = null;
+	}
+
+	/**
+	 * Resets evaluation results, but keeps dependencies of component classes whose state has not changed since last evaluation.
+	 * All dependencies are dropped if the component tree or its classes have changed.
+	 */
+	protected void resetChangedResults() {
+		Map<ICpExpression, IRteDependency> dependencies = fDependencies;
+		Map<ICpExpression, IRteDependency> denyDependencies = fDenyDependencies;
+		Map<String, Set<ICpExpression>> classExpressions = fClassExpressions;
+		Map<String, List<Object>> oldStates = fClassStates;
+		IRteComponentItem components = fIndexedComponents;
+
+		resetResult();
+		if(rteModel == null) {
+			return;
+		}
+		fIndexedComponents = rteModel.getComponents();
+		fClassStates = collectClassStates(fIndexedComponents);
+		fClassExpressions = new HashMap<String, Set<ICpExpression>>();
+		if(components == null || components != fIndexedComponents || classExpressions == null ||
+				oldStates == null || !oldStates.keySet().equals(fClassStates.keySet())) {
+			return; // full evaluation
+		}
+
+		for(Entry<String, List<Object>> e : fClassStates.entrySet()) {
+			String className = e.getKey();
+			Set<ICpExpression> expressions = classExpressions.get(className);
+			if(expressions == null || expressions.isEmpty()) {
+				continue;
+			}
+			if(e.getValue().equals(oldStates.get(className))) {
+				continue;
+			}
+			// class state has changed: re-evaluate expressions referring to the class
+			for(ICpExpression expr : expressions) {
+				if(dependencies != null) {
+					dependencies.remove(expr);
+				}
+				if(denyDependencies != null) {
+					denyDependencies.remove(expr);
+				}
+			}
+		}
+		fDependencies = dependencies;
+		fDenyDependencies = denyDependencies;
+		fClassExpressions = classExpressions;
+	}
+
+	/**
+	 * Collects selection state of every component class: active children, selected instances and active components
+	 * @param components component tree root
+	 * @return map of class name to list of state objects, equal lists mean unchanged state
+	 */
+	protected Map<String, List<Object>> collectClassStates(IRteComponentItem components) {
+		Map<String, List<Object>> states = new HashMap<String, List<Object>>();
+		if(components == null) {
+			return states;
+		}
+		Map<String, ? extends IRteComponentItem> classes = components.getChildMap();
+		if(classes == null) {
+			return states;
+		}
+		for(Entry<String, ? extends IRteComponentItem> e : classes.entrySet()) {
+			List<Object> state = new ArrayList<Object>();
+			collectItemState(e.getValue(), state);
+			states.put(e.getKey(), state);
+		}
+		return states;
+	}
+
+	protected void collectItemState(IRteComponentItem item, List<Object> state) {
+		state.add(item.getActiveChild());
+		if(item instanceof IRteComponent) {
+			IRteComponent component = (IRteComponent)item;
+			state.add(component.getSelectedCount());
+			state.add(component.getActiveCpComponent());
+			state.add(component.isActive());
+		}
+		Collection<? extends IRteComponentItem> children = item.getChildren();
+		if(children != null) {
+			for(IRteComponentItem child : children) {
+				collectItemState(child, state);
+			}
+		}
+	}
+
+	/**
+	 * Registers expression in the reverse index for all component classes its Cclass attribute matches
+	 * @param expression component ICpExpression
+	 */
+	protected void indexExpression(ICpExpression expression) {
+		if(fClassExpressions == null || fIndexedComponents == null) {
+			return;
+		}
+		Map<String, ? extends IRteComponentItem> classes = fIndexedComponents.getChildMap();
+		if(classes == null) {
+			return;
+		}
+		String pattern = fIndexedComponents.getKeyAttributeValue(expression.attributes());
+		for(String className : classes.keySet()) {
+			if(!fIndexedComponents.matchKey(pattern, className)) {
+				continue;
+			}
+			Set<ICpExpression> expressions = fClassExpressions.get(className);
+			if(expressions == null) {
+				expressions = new HashSet<ICpExpression>();
+				fClassExpressions.put(className, expressions);
+			}
+			expressions.add(expression);
+		}
 	}
 
 	protected Collection<IRteComponent> getSelectedComponents(){
@@ -173,6 +296,11 @@ public class RteDependencySolver extends CpConditionContext implements IRteDepen
 	}
 
 
+	@Override
+	protected boolean isUseCompiledConditions() {
+		return false; // component expressions are evaluated against selection
+	}
+
 	@Override
 	public EEvaluationResult evaluateExpression(ICpExpression expression) {
 		if(expression == null) {
@@ -214,6 +342,7 @@ public class RteDependencySolver extends CpConditionContext implements IRteDepen
 				}
 			}
 			putDependency(expression, dep);
+			indexExpression(expression);
 		}
 
 		EEvaluationResult result = dep.getEvaluationResult();
@@ -281,7 +410,7 @@ public class RteDependencySolver extends CpConditionContext implements IRteDepen
 
 	@Override
 	public EEvaluationResult evaluateDependencies() {
-		resetResult();
+		resetChangedResults();
 		if(rteModel == null)
 		{
 			return EEvaluationResult.IGNORED; // nothing to do
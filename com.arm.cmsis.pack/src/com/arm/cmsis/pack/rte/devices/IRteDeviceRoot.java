@@ -30,5 +30,15 @@ public interface IRteDeviceRoot extends IRteDeviceItem  {
 	 * @param pack IcpPack to add devices from
 	 */
 	void removeDevices(ICpPack pack);
-	
+
+	/**
+	 * Returns search index over names of all items in the tree, the index is rebuilt after the tree changes
+	 * <p/>
+	 * Default implementation creates a new index on every call, implementations should cache it
+	 * @return RteDeviceSearchIndex for this tree
+	 */
+	default RteDeviceSearchIndex getSearchIndex() {
+		return new RteDeviceSearchIndex(this);
+	}
+
 }
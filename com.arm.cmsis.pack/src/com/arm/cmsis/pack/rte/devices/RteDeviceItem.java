@@ -217,10 +217,23 @@ public class RteDeviceItem extends CmsisMapItem<IRteDeviceItem> implements IRteD
 		if(di == null ) {
 			di = new RteDeviceItem(itemName, level, this);
 			addChild(di);
+			itemChanged(di, false);
 		}
 		di.addDevice(item);
 	}
 
+	/**
+	 * Notifies device root about added or removed item to update its indexes
+	 * @param item IRteDeviceItem that is added or removed
+	 * @param bRemoved true if item is removed from the tree
+	 */
+	protected void itemChanged(IRteDeviceItem item, boolean bRemoved) {
+		IRteDeviceItem root = getRoot();
+		if(root instanceof RteDeviceRoot) {
+			((RteDeviceRoot)root).updateIndex(item, bRemoved);
+		}
+	}
+
 	@Override
 	public void removeDevice(ICpDeviceItem item) {
 		if (item == null) {
@@ -240,6 +253,7 @@ public class RteDeviceItem extends CmsisMapItem<IRteDeviceItem> implements IRteD
 			fDevices.remove(packId);
 
 			if(fLevel == EDeviceHierarchyLevel.PROCESSOR.ordinal()) {
+				itemChanged(this, true);
 				getParent().removeChild(this);
 				return;
 			}
@@ -258,6 +272,7 @@ public class RteDeviceItem extends CmsisMapItem<IRteDeviceItem> implements IRteD
 			}
 			if (fDevices.size() == 0) {
 				removeDeviceName(fName);
+				itemChanged(this, true);
 				getParent().removeChild(this);
 			}
 			return;
@@ -270,6 +285,7 @@ public class RteDeviceItem extends CmsisMapItem<IRteDeviceItem> implements IRteD
 					if (p.getChildren() == null ||
 							p.getChildren().isEmpty()) {
 						IRteDeviceItem pp = p.getParent();
+						itemChanged(p, true);
 						pp.removeChild(p);
 						p = pp;
 					} else {
@@ -11,23 +11,42 @@
 
 package com.arm.cmsis.pack.rte.devices;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 
 import com.arm.cmsis.pack.common.CmsisConstants;
 import com.arm.cmsis.pack.data.ICpDeviceItem;
 import com.arm.cmsis.pack.data.ICpItem;
 import com.arm.cmsis.pack.data.ICpPack;
+import com.arm.cmsis.pack.enums.EDeviceHierarchyLevel;
+import com.arm.cmsis.pack.utils.AlnumComparator;
+import com.arm.cmsis.pack.utils.DeviceVendor;
 import com.arm.cmsis.pack.utils.VersionComparator;
 
 /**
  * Default implementation of IRteDeviceItem
+ * <p>
+ * The root maintains secondary indexes updated by addDevice()/removeDevice():
+ * <ul>
+ * <li>name index: alpha-numerically normalized item name to items, used for exact lookups by findItem()
+ * <li>search index: n-gram and prefix index for wild card name queries, built on the first getSearchIndex() call
+ * </ul>
  */
 public class RteDeviceRoot extends RteDeviceItem implements IRteDeviceRoot {
 
 	protected Map<String, ICpPack> packs = new HashMap<>();
 
+	protected Map<String, List<IRteDeviceItem>> fNameIndex = new HashMap<>();
+	protected int fWildcardNames = 0; // number of indexed names containing '*': they require tree search
+	protected volatile RteDeviceSearchIndex fSearchIndex = null; // discarded on any tree change
+
 	public RteDeviceRoot() {
 		super();
 	}
@@ -79,11 +98,204 @@ public class RteDeviceRoot extends RteDeviceItem implements IRteDeviceRoot {
 		}
 	}
 
+	/**
+	 * Returns name index key, uses the same normalization as AlnumComparator of the child maps,
+	 * so that "F01" and "f1" give the same key as for getChild()
+	 * @param name item name
+	 * @return normalized name
+	 */
+	protected static String getIndexKey(String name) {
+		return AlnumComparator.alnumNormalize(name, false);
+	}
+
+	/**
+	 * Updates indexes for added or removed item
+	 * @param item IRteDeviceItem to update
+	 * @param bRemoved true if item is removed from the tree
+	 */
+	protected synchronized void updateIndex(IRteDeviceItem item, boolean bRemoved) {
+		if(item == null || item == this) {
+			return;
+		}
+		fSearchIndex = null;
+		if(bRemoved) {
+			unindexName(item);
+			return;
+		}
+		String key = getIndexKey(item.getName());
+		List<IRteDeviceItem> items = fNameIndex.get(key);
+		if(items == null) {
+			items = new ArrayList<IRteDeviceItem>(1);
+			fNameIndex.put(key, items);
+		}
+		if(!containsItem(items, item)) {
+			items.add(item);
+			if(item.getName().indexOf('*') >= 0) {
+				fWildcardNames++;
+			}
+		}
+	}
+
+	/**
+	 * Removes item and its children from the name index
+	 * @param item IRteDeviceItem to remove
+	 */
+	protected void unindexName(IRteDeviceItem item) {
+		String key = getIndexKey(item.getName());
+		List<IRteDeviceItem> items = fNameIndex.get(key);
+		if(items != null) {
+			for(Iterator<IRteDeviceItem> it = items.iterator(); it.hasNext();) {
+				if(it.next() == item) {
+					it.remove();
+					if(item.getName().indexOf('*') >= 0) {
+						fWildcardNames--;
+					}
+				}
+			}
+			if(items.isEmpty()) {
+				fNameIndex.remove(key);
+			}
+		}
+		Collection<? extends IRteDeviceItem> children = item.getChildren();
+		if(children != null) {
+			for(IRteDeviceItem child : children) {
+				unindexName(child);
+			}
+		}
+	}
+
+	protected static boolean containsItem(Collection<IRteDeviceItem> items, IRteDeviceItem item) {
+		for(IRteDeviceItem i : items) {
+			if(i == item) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns all items (vendor, family, sub-family, device, variant or processor) with given name using name index
+	 * @param name item name, case insensitive
+	 * @return collection of IRteDeviceItem, empty if not found
+	 */
+	public synchronized Collection<IRteDeviceItem> findItems(String name) {
+		if(name == null) {
+			return Collections.emptyList();
+		}
+		List<IRteDeviceItem> items = fNameIndex.get(getIndexKey(name));
+		if(items == null) {
+			return Collections.emptyList();
+		}
+		return new ArrayList<IRteDeviceItem>(items);
+	}
+
+	@Override
+	public RteDeviceSearchIndex getSearchIndex() {
+		RteDeviceSearchIndex index = fSearchIndex;
+		if(index != null) {
+			return index;
+		}
+		synchronized(this) {
+			if(fSearchIndex == null) {
+				fSearchIndex = new RteDeviceSearchIndex(this);
+			}
+			return fSearchIndex;
+		}
+	}
+
+	@Override
+	public IRteDeviceItem findItem(final String deviceName, final String vendor, final boolean onlyDevice) {
+		if(deviceName == null || deviceName.indexOf('*') >= 0 || fWildcardNames > 0) {
+			return super.findItem(deviceName, vendor, onlyDevice); // wild card names need tree search
+		}
+		IRteDeviceItem start = this;
+		if(vendor != null && !vendor.isEmpty()) {
+			start = getChild(DeviceVendor.getOfficialVendorName(vendor));
+			if(start == null) {
+				return null;
+			}
+		}
+		// select the candidate the depth-first tree search would find
+		IRteDeviceItem found = null;
+		for(IRteDeviceItem item : findItems(deviceName)) {
+			if(onlyDevice && item.getLevel() <= EDeviceHierarchyLevel.SUBFAMILY.ordinal()) {
+				continue;
+			}
+			if(item == start || !isDescendant(item, start)) {
+				continue;
+			}
+			if(found == null || isFoundBefore(item, found, start)) {
+				found = item;
+			}
+		}
+		return found;
+	}
+
+	/**
+	 * Checks if item is a descendant of the given ancestor
+	 * @param item IRteDeviceItem to check
+	 * @param ancestor ancestor item
+	 * @return true if ancestor is found in item's parent chain
+	 */
+	protected static boolean isDescendant(IRteDeviceItem item, IRteDeviceItem ancestor) {
+		for(IRteDeviceItem p = item.getParent(); p != null; p = p.getParent()) {
+			if(p == ancestor) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns path from start item (exclusive) to the item (inclusive)
+	 */
+	protected static List<IRteDeviceItem> getPath(IRteDeviceItem item, IRteDeviceItem start) {
+		LinkedList<IRteDeviceItem> path = new LinkedList<IRteDeviceItem>();
+		for(IRteDeviceItem i = item; i != null && i != start; i = i.getParent()) {
+			path.addFirst(i);
+		}
+		return path;
+	}
+
+	/**
+	 * Checks if depth-first search from the start item finds item1 before item2:
+	 * on every level a direct child is checked before children are searched in their sort order
+	 * @param item1 first item
+	 * @param item2 second item
+	 * @param start search start item
+	 * @return true if item1 is found before item2
+	 */
+	protected static boolean isFoundBefore(IRteDeviceItem item1, IRteDeviceItem item2, IRteDeviceItem start) {
+		List<IRteDeviceItem> path1 = getPath(item1, start);
+		List<IRteDeviceItem> path2 = getPath(item2, start);
+		int n = Math.min(path1.size(), path2.size());
+		int i = 0;
+		while(i < n && path1.get(i) == path2.get(i)) {
+			i++;
+		}
+		if(i == path1.size() - 1 || i == path1.size()) {
+			return true; // item1 is direct child of common ancestor or ancestor of item2
+		}
+		if(i == path2.size() - 1 || i == path2.size()) {
+			return false;
+		}
+		AlnumComparator comparator = new AlnumComparator(false, false);
+		return comparator.compare(path1.get(i).getName(), path2.get(i).getName()) < 0;
+	}
+
 	@Override
 	public void removeDevices(ICpPack pack) {
 		if(pack == null) {
 			return;
 		}
+		String familyId = pack.getPackFamilyId();
+		ICpPack p = packs.get(familyId);
+		if(p != null) {
+			if(p != pack && !Objects.equals(p.getFileName(), pack.getFileName())) {
+				return; // the tree contains devices of another pack from the same family
+			}
+			packs.remove(familyId);
+		}
 		Collection<? extends ICpItem> devices = pack.getGrandChildren(CmsisConstants.DEVICES_TAG);
 		if (devices != null) {
 			for (ICpItem item : devices) {
@@ -0,0 +1,285 @@
+/*******************************************************************************
+* Copyright (c) 2015 ARM Ltd. and others
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* ARM Ltd and ARM Germany GmbH - Initial API and implementation
+*******************************************************************************/
+
+package com.arm.cmsis.pack.rte.devices;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.arm.cmsis.pack.utils.WildCards;
+import com.arm.cmsis.pack.utils.WildcardPattern;
+
+/**
+ * Immutable search index over names of a device tree (vendors, families, sub-families, devices, variants, processors).
+ * <p>
+ * Names are indexed by case-insensitive trigrams and kept in a sorted map for prefix lookups.
+ * Index lookups only narrow down candidate names, every candidate is verified with WildCards.matchNoCase(),
+ * therefore query results are the same as matching all tree items one by one.
+ * The index is a snapshot: it must be rebuilt when the tree changes. It can be queried from any thread.
+ * </p>
+ */
+public class RteDeviceSearchIndex {
+
+	private static final int GRAM = 3;
+
+	private final IRteDeviceItem fRoot;
+	private final List<String> fNames = new ArrayList<String>(); // distinct names, name id is the list index
+	private final List<List<IRteDeviceItem>> fItems = new ArrayList<List<IRteDeviceItem>>(); // items per name id
+	private final Map<String, Integer> fNameIds = new HashMap<String, Integer>();
+	private final TreeMap<String, List<Integer>> fSortedNames = new TreeMap<String, List<Integer>>(); // normalized name -> ids of names differing in case only
+	private final Map<String, List<Integer>> fTrigrams = new HashMap<String, List<Integer>>(); // trigram -> name ids
+	private final List<Integer> fWildcardNames = new ArrayList<Integer>(); // names with wild cards match symmetrically
+	private final Map<IRteDeviceItem, Integer> fOrder = new IdentityHashMap<IRteDeviceItem, Integer>(); // pre-order position
+
+	/**
+	 * Builds index for the given device tree
+	 * @param root root of device tree
+	 */
+	public RteDeviceSearchIndex(IRteDeviceItem root) {
+		fRoot = root;
+		if(root != null) {
+			addItem(root);
+		}
+	}
+
+	/**
+	 * Returns root item the index is built for
+	 * @return IRteDeviceItem root
+	 */
+	public IRteDeviceItem getRoot() {
+		return fRoot;
+	}
+
+	private void addItem(IRteDeviceItem item) {
+		fOrder.put(item, fOrder.size());
+		String name = item.getName();
+		if(name != null) {
+			Integer id = fNameIds.get(name);
+			if(id == null) {
+				id = fNames.size();
+				fNames.add(name);
+				fItems.add(new ArrayList<IRteDeviceItem>(1));
+				fNameIds.put(name, id);
+				indexName(name, id);
+			}
+			fItems.get(id).add(item);
+		}
+		Collection<? extends IRteDeviceItem> children = item.getChildren();
+		if(children != null) {
+			for(IRteDeviceItem child : children) {
+				addItem(child);
+			}
+		}
+	}
+
+	private void indexName(String name, Integer id) {
+		if(WildcardPattern.containsWildCards(name)) {
+			fWildcardNames.add(id);
+			return;
+		}
+		String norm = normalize(name);
+		List<Integer> sameNames = fSortedNames.get(norm);
+		if(sameNames == null) {
+			sameNames = new ArrayList<Integer>(1);
+			fSortedNames.put(norm, sameNames);
+		}
+		sameNames.add(id);
+		for(int i = 0; i + GRAM <= norm.length(); i++) {
+			String gram = norm.substring(i, i + GRAM);
+			List<Integer> ids = fTrigrams.get(gram);
+			if(ids == null) {
+				ids = new ArrayList<Integer>();
+				fTrigrams.put(gram, ids);
+			}
+			if(ids.isEmpty() || !ids.get(ids.size() - 1).equals(id)) {
+				ids.add(id);
+			}
+		}
+	}
+
+	/**
+	 * Converts string to upper case char by char, the same way as case-insensitive wild card matching does
+	 */
+	private static String normalize(String s) {
+		StringBuilder sb = new StringBuilder(s.length());
+		for(int i = 0; i < s.length(); i++) {
+			sb.append(Character.toUpperCase(s.charAt(i)));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Returns items whose names match the pattern ignoring case
+	 * @param pattern string with wild cards
+	 * @return collection of matching items in tree order
+	 */
+	public Collection<IRteDeviceItem> findItems(String pattern) {
+		if(pattern == null) {
+			return Collections.emptyList();
+		}
+		List<IRteDeviceItem> result = new ArrayList<IRteDeviceItem>();
+		for(Integer id : getCandidates(pattern)) {
+			if(WildCards.matchNoCase(pattern, fNames.get(id))) {
+				result.addAll(fItems.get(id));
+			}
+		}
+		Collections.sort(result, (i1, i2) -> fOrder.get(i1) - fOrder.get(i2));
+		return result;
+	}
+
+	/**
+	 * Returns the first item in tree order whose name matches the pattern, the same as root.getFirstItem(pattern)
+	 * @param pattern string with wild cards
+	 * @return matching IRteDeviceItem or null if not found
+	 */
+	public IRteDeviceItem findFirstItem(String pattern) {
+		IRteDeviceItem first = null;
+		int firstOrder = Integer.MAX_VALUE;
+		if(pattern == null) {
+			return null;
+		}
+		for(Integer id : getCandidates(pattern)) {
+			if(!WildCards.matchNoCase(pattern, fNames.get(id))) {
+				continue;
+			}
+			for(IRteDeviceItem item : fItems.get(id)) {
+				int order = fOrder.get(item);
+				if(order < firstOrder) {
+					firstOrder = order;
+					first = item;
+				}
+			}
+		}
+		return first;
+	}
+
+	/**
+	 * Returns items to show for the pattern: matching items, their ancestors and descendants
+	 * @param pattern string with wild cards
+	 * @return set of items to show (identity-based)
+	 */
+	public Set<IRteDeviceItem> findVisibleItems(String pattern) {
+		Set<IRteDeviceItem> visible = Collections.newSetFromMap(new IdentityHashMap<IRteDeviceItem, Boolean>());
+		Set<IRteDeviceItem> expanded = Collections.newSetFromMap(new IdentityHashMap<IRteDeviceItem, Boolean>());
+		for(IRteDeviceItem item : findItems(pattern)) {
+			addSubtree(item, expanded);
+			for(IRteDeviceItem parent = item.getParent(); parent != null; parent = parent.getParent()) {
+				if(!visible.add(parent)) {
+					break; // the rest of ancestors is already added
+				}
+			}
+		}
+		visible.addAll(expanded);
+		return visible;
+	}
+
+	private void addSubtree(IRteDeviceItem item, Set<IRteDeviceItem> expanded) {
+		if(!expanded.add(item)) {
+			return;
+		}
+		Collection<? extends IRteDeviceItem> children = item.getChildren();
+		if(children != null) {
+			for(IRteDeviceItem child : children) {
+				addSubtree(child, expanded);
+			}
+		}
+	}
+
+	/**
+	 * Collects ids of names that can match the pattern
+	 * @param pattern string with wild cards
+	 * @return collection of name ids to verify
+	 */
+	private Collection<Integer> getCandidates(String pattern) {
+		List<String> literals = getLiterals(normalize(pattern));
+		Collection<Integer> candidates = null;
+		if(!pattern.isEmpty() && !isWildCard(pattern.charAt(0)) && !literals.isEmpty()) {
+			// pattern without leading wild card: names must start with the first literal
+			String prefix = literals.get(0);
+			List<Integer> ids = new ArrayList<Integer>();
+			for(Entry<String, List<Integer>> e : fSortedNames.tailMap(prefix, true).entrySet()) {
+				if(!e.getKey().startsWith(prefix)) {
+					break;
+				}
+				ids.addAll(e.getValue());
+			}
+			candidates = ids;
+		}
+		for(String literal : literals) {
+			for(int i = 0; i + GRAM <= literal.length(); i++) {
+				List<Integer> ids = fTrigrams.get(literal.substring(i, i + GRAM));
+				if(ids == null) {
+					ids = Collections.emptyList();
+				}
+				if(candidates == null || ids.size() < candidates.size()) {
+					candidates = ids; // the shortest posting list is enough, candidates are verified anyway
+				}
+			}
+		}
+		if(candidates == null) {
+			// no literal of sufficient length: check all names
+			List<Integer> ids = new ArrayList<Integer>(fNames.size());
+			for(List<Integer> sameNames : fSortedNames.values()) {
+				ids.addAll(sameNames);
+			}
+			candidates = ids;
+		}
+		if(fWildcardNames.isEmpty()) {
+			return candidates;
+		}
+		List<Integer> all = new ArrayList<Integer>(candidates);
+		all.addAll(fWildcardNames);
+		return all;
+	}
+
+	private static boolean isWildCard(char ch) {
+		return ch == '*' || ch == '?' || ch == '[';
+	}
+
+	/**
+	 * Splits normalized pattern into literal segments between wild cards and character ranges
+	 */
+	private static List<String> getLiterals(String pattern) {
+		List<String> literals = new ArrayList<String>();
+		StringBuilder sb = new StringBuilder();
+		boolean inRange = false;
+		for(int i = 0; i < pattern.length(); i++) {
+			char ch = pattern.charAt(i);
+			if(inRange) {
+				if(ch == ']') {
+					inRange = false;
+				}
+				continue;
+			}
+			if(isWildCard(ch)) {
+				inRange = ch == '[';
+				if(sb.length() > 0) {
+					literals.add(sb.toString());
+					sb.setLength(0);
+				}
+				continue;
+			}
+			sb.append(ch);
+		}
+		if(sb.length() > 0) {
+			literals.add(sb.toString());
+		}
+		return literals;
+	}
+}
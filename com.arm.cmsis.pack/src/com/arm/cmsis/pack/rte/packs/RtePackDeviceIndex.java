@@ -0,0 +1,181 @@
+/*******************************************************************************
+* Copyright (c) 2016 ARM Ltd. and others
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v1.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v10.html
+*
+* Contributors:
+* ARM Ltd and ARM Germany GmbH - Initial API and implementation
+*******************************************************************************/
+
+package com.arm.cmsis.pack.rte.packs;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import com.arm.cmsis.pack.common.CmsisConstants;
+import com.arm.cmsis.pack.data.ICpBoard;
+import com.arm.cmsis.pack.data.ICpItem;
+import com.arm.cmsis.pack.data.ICpPack;
+import com.arm.cmsis.pack.data.ICpPackCollection;
+import com.arm.cmsis.pack.data.ICpPackFamily;
+import com.arm.cmsis.pack.rte.devices.IRteDeviceItem;
+
+/**
+ * Inverted index from device and board names to device-specific pack families.
+ * <p>
+ * A family is indexed by the latest pack: names of devices declared in the pack (family, sub-family, device, variant),
+ * names of the pack boards and names of devices mounted on or compatible with the pack boards.
+ * The index is a snapshot of the pack collection and the device tree, it must be rebuilt when they change.
+ * </p>
+ */
+public class RtePackDeviceIndex {
+
+	protected Set<ICpPackFamily> fPackFamilies = new HashSet<ICpPackFamily>(); // all indexed families
+	protected Map<String, Set<ICpPackFamily>> fDeviceIndex = new HashMap<String, Set<ICpPackFamily>>();
+	protected Map<String, Set<ICpPackFamily>> fBoardIndex = new HashMap<String, Set<ICpPackFamily>>();
+
+	/**
+	 * Builds index for supplied device-specific packs
+	 * @param devicePacks collection of device-specific pack families
+	 * @param allDevices device tree used to resolve devices of the pack boards
+	 */
+	public RtePackDeviceIndex(ICpPackCollection devicePacks, IRteDeviceItem allDevices) {
+		if(devicePacks == null || !devicePacks.hasChildren()) {
+			return;
+		}
+		for(ICpItem item : devicePacks.getChildren()) {
+			if(item instanceof ICpPackFamily) {
+				addPackFamily((ICpPackFamily)item, allDevices);
+			}
+		}
+	}
+
+	protected void addPackFamily(ICpPackFamily f, IRteDeviceItem allDevices) {
+		ICpPack pack = f.getPack();
+		if(pack == null || pack.isDevicelessPack()) {
+			return;
+		}
+		fPackFamilies.add(f);
+		addNames(fDeviceIndex, pack.getAllDeviceNames(), f);
+		addNames(fBoardIndex, pack.getBoardNames(), f);
+
+		Collection<? extends ICpItem> boards = pack.getGrandChildren(CmsisConstants.BOARDS_TAG);
+		if (boards == null) {
+			return;
+		}
+		for (ICpItem item : boards) {
+			if(!(item instanceof ICpBoard)) {
+				continue;
+			}
+			ICpBoard b = (ICpBoard)item;
+			addBoardDevices(b.getMountedDevices(), allDevices, f);
+			addBoardDevices(b.getCompatibleDevices(), allDevices, f);
+		}
+	}
+
+	protected void addBoardDevices(Collection<ICpItem> boardDevices, IRteDeviceItem allDevices, ICpPackFamily f) {
+		if(boardDevices == null || allDevices == null) {
+			return;
+		}
+		for(ICpItem boardDevice : boardDevices) {
+			IRteDeviceItem deviceItem = findDeviceItem(boardDevice, allDevices);
+			if(deviceItem != null) {
+				addNames(fDeviceIndex, deviceItem.getAllDeviceNames(), f);
+			}
+		}
+	}
+
+	protected static void addNames(Map<String, Set<ICpPackFamily>> index, Set<String> names, ICpPackFamily f) {
+		if(names == null) {
+			return;
+		}
+		for(String name : names) {
+			Set<ICpPackFamily> families = index.get(name);
+			if(families == null) {
+				families = new HashSet<ICpPackFamily>();
+				index.put(name, families);
+			}
+			families.add(f);
+		}
+	}
+
+	/**
+	 * Finds device tree item for a board device description
+	 * @param item mounted or compatible device of a board
+	 * @param allDevices device tree to search in
+	 * @return the corresponding IRteDeviceItem, null if no matching IRteDeviceItem is found
+	 */
+	public static IRteDeviceItem findDeviceItem(ICpItem item, IRteDeviceItem allDevices) {
+		String vendorName = item.getVendor();
+		String deviceName = CmsisConstants.EMPTY_STRING;
+		if (item.hasAttribute(CmsisConstants.DFAMILY)) {
+			deviceName = item.getAttribute(CmsisConstants.DFAMILY);
+		} else if (item.hasAttribute(CmsisConstants.DSUBFAMILY)) {
+			deviceName = item.getAttribute(CmsisConstants.DSUBFAMILY);
+		} else if (item.hasAttribute(CmsisConstants.DNAME)) {
+			deviceName = item.getAttribute(CmsisConstants.DNAME);
+		} else if (item.hasAttribute(CmsisConstants.DVARIANT)) {
+			deviceName = item.getAttribute(CmsisConstants.DVARIANT);
+		}
+
+		if (vendorName.isEmpty()) {
+			return null;
+		}
+
+		if (deviceName.isEmpty()) {
+			return allDevices.getVendorItem(vendorName);
+		}
+		return allDevices.findItem(deviceName, vendorName, false);
+	}
+
+	/**
+	 * Returns all indexed pack families, i.e. families with a device-specific pack
+	 * @return set of ICpPackFamily
+	 */
+	public Set<ICpPackFamily> getPackFamilies() {
+		return Collections.unmodifiableSet(fPackFamilies);
+	}
+
+	/**
+	 * Returns pack families containing any of supplied devices directly or on their boards
+	 * @param deviceNames names of devices to look up
+	 * @return set of ICpPackFamily, empty if none
+	 */
+	public Set<ICpPackFamily> getPackFamiliesForDevices(Set<String> deviceNames) {
+		Set<ICpPackFamily> result = new HashSet<ICpPackFamily>();
+		addFamilies(result, fDeviceIndex, deviceNames);
+		return result;
+	}
+
+	/**
+	 * Returns pack families containing the board or any of its devices
+	 * @param boardName name of the board to look up
+	 * @param deviceNames names of devices mounted on or compatible with the board
+	 * @return set of ICpPackFamily, empty if none
+	 */
+	public Set<ICpPackFamily> getPackFamiliesForBoard(String boardName, Set<String> deviceNames) {
+		Set<ICpPackFamily> result = getPackFamiliesForDevices(deviceNames);
+		if(boardName != null) {
+			addFamilies(result, fBoardIndex, Collections.singleton(boardName));
+		}
+		return result;
+	}
+
+	protected static void addFamilies(Set<ICpPackFamily> result, Map<String, Set<ICpPackFamily>> index, Set<String> names) {
+		if(names == null) {
+			return;
+		}
+		for(String name : names) {
+			Set<ICpPackFamily> families = index.get(name);
+			if(families != null) {
+				result.addAll(families);
+			}
+		}
+	}
+}